@@ -1,14 +1,33 @@
 package pocketknife.internal.codegen;
 
 import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import pocketknife.internal.BoxedValues;
+import pocketknife.internal.LazyBundleValue;
+import pocketknife.internal.LazyExtraValue;
 
 import javax.annotation.Generated;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 
+import static javax.lang.model.element.Modifier.PROTECTED;
+
 public class BaseGenerator {
 
+    protected static final String VALUE = "value";
+    private static final String READ_METHOD = "read";
+    private static final String SOURCE = "source";
+    private static final String KEY = "key";
+    protected static final AnnotationSpec UNCHECKED = AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build();
+
     protected final TypeUtil typeUtil;
 
     public BaseGenerator(TypeUtil typeUtil) {
@@ -22,4 +41,217 @@ public class BaseGenerator {
                 .build();
     }
 
+    /**
+     * Declare the local variable used by {@link #addReadField}.
+     */
+    protected void addValueVariable(MethodSpec.Builder methodBuilder) {
+        methodBuilder.addStatement("$T $N", Object.class, VALUE);
+    }
+
+    /**
+     * Read a field with a single lookup. Primitives are read whatever their stored type and checked against their boxed type, a value of
+     * another type is logged and the field keeps its value. Other values are read with the typed getter of their stored type, which does
+     * the same and returns null. The key is only probed again if the value is null, to tell a missing key from a null value, and only for
+     * required primitives or for values that do not keep their field's value. Fields with a {@code @BundleConverter} are read by the
+     * converter once the key is known to be there, from a bundle source.
+     */
+    protected void addReadField(MethodSpec.Builder methodBuilder, ValueSource source, String key, String target, String name, TypeMirror type,
+                                String bundleType, TypeMirror converter, boolean keepValue, boolean required, String missingMessage) {
+        CodeBlock keyCode = CodeBlock.builder().add("$S", key).build();
+        if (typeUtil.isLazy(type)) {
+            addReadLazyField(methodBuilder, source, key, target, name, type, bundleType, converter, required, missingMessage);
+            return;
+        }
+        if (converter != null) {
+            methodBuilder.beginControlFlow("if ($L)", source.contains(keyCode));
+            methodBuilder.addStatement("$N.$N = $L", target, name, typeUtil.readWithConverter(converter,
+                    CodeBlock.builder().add("$N", source.getName()).build(), keyCode));
+            if (required) {
+                methodBuilder.nextControlFlow("else");
+                methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class, missingMessage);
+            }
+            methodBuilder.endControlFlow();
+            return;
+        }
+        if (type.getKind().isPrimitive()) {
+            TypeName boxed = TypeName.get(typeUtil.box(type));
+            methodBuilder.addStatement("$N = $L", VALUE, source.get(keyCode));
+            methodBuilder.beginControlFlow("if ($N instanceof $T)", VALUE, boxed);
+            methodBuilder.addStatement("$N.$N = ($T) $N", target, name, boxed, VALUE);
+            methodBuilder.addCode("$<} else if ($N != null) {\n$>", VALUE);
+            methodBuilder.addStatement("$T.warnMismatch($S, $T.class, $N, $N.$N)", BoxedValues.class, key, boxed, VALUE, target, name);
+            if (required) {
+                methodBuilder.addCode("$<} else if (!$L) {\n$>", source.contains(keyCode));
+                methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class, missingMessage);
+            }
+            methodBuilder.endControlFlow();
+            return;
+        }
+        methodBuilder.addStatement("$N = $L", VALUE, readStored(source, type, bundleType, keyCode));
+        if (keepValue) {
+            methodBuilder.beginControlFlow("if ($N != null)", VALUE);
+        } else {
+            methodBuilder.beginControlFlow("if ($N != null || $L)", VALUE, source.contains(keyCode));
+        }
+        methodBuilder.addStatement("$N.$N = $L", target, name, decode(type, CodeBlock.builder().add("$N", VALUE).build()));
+        if (required) {
+            methodBuilder.nextControlFlow("else");
+            methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class, missingMessage);
+        }
+        methodBuilder.endControlFlow();
+    }
+
+    /**
+     * Read a field that is stored some other way than by its bundle type through the local variable declared by {@link #addValueVariable}.
+     * {@code stored} is the code returning the stored value or {@code null} if it is missing or gone, which is converted back by the codec
+     * of the type if it has one. A required field throws if the value is null, or only if {@code present} tells the key is not there
+     * when it is not null, so a value that is gone keeps the field's value.
+     */
+    protected void addReadStoredField(MethodSpec.Builder methodBuilder, String target, String name, TypeMirror type, CodeBlock stored,
+                                      CodeBlock present, boolean required, String missingMessage) {
+        methodBuilder.addStatement("$N = $L", VALUE, stored);
+        methodBuilder.beginControlFlow("if ($N != null)", VALUE);
+        methodBuilder.addStatement("$N.$N = $L", target, name, decode(type, CodeBlock.builder().add("$N", VALUE).build()));
+        if (required && present != null) {
+            methodBuilder.addCode("$<} else if (!$L) {\n$>", present);
+            methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class, missingMessage);
+        } else if (required) {
+            methodBuilder.nextControlFlow("else");
+            methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class, missingMessage);
+        }
+        methodBuilder.endControlFlow();
+    }
+
+    /**
+     * @return the code reading the stored value of a non-primitive type with the typed getter of its bundle type.
+     */
+    private CodeBlock readStored(ValueSource source, TypeMirror type, String bundleType, CodeBlock key) {
+        ValueCodec codec = typeUtil.getCodec(type);
+        if (codec != null && codec.isBoxed()) {
+            return source.getBoxed(codec.getStoredType(), key);
+        }
+        if (codec == null && typeUtil.isBoxed(type)) {
+            return source.getBoxed(TypeName.get(type), key);
+        }
+        return source.get(bundleType, key);
+    }
+
+    /**
+     * @return the code converting a stored value back to the type, with the codec of the type if it has one.
+     */
+    private CodeBlock decode(TypeMirror type, CodeBlock stored) {
+        return decode(type, stored, true);
+    }
+
+    /**
+     * @param cast false if {@code stored} already is of the type the value is decoded from.
+     */
+    private CodeBlock decode(TypeMirror type, CodeBlock stored, boolean cast) {
+        ValueCodec codec = typeUtil.getCodec(type);
+        if (codec != null) {
+            return codec.decode(stored, cast);
+        }
+        if (!cast) {
+            return stored;
+        }
+        return CodeBlock.builder().add("($T) $L", TypeName.get(typeUtil.box(type)), stored).build();
+    }
+
+    /**
+     * @return true if the code returned by {@link #readStored} is already of the type {@link #decode} casts it to.
+     */
+    private boolean isReadTyped(ValueSource source, TypeMirror type, String bundleType) {
+        ValueCodec codec = typeUtil.getCodec(type);
+        if (codec != null && (codec.getStoredType() == null || codec.isBoxed())) {
+            return true;
+        }
+        if (codec == null && typeUtil.isBoxed(type)) {
+            return true;
+        }
+        TypeMirror sourceType;
+        if (source.isIntent()) {
+            sourceType = typeUtil.intentType;
+        } else {
+            sourceType = typeUtil.bundleType;
+        }
+        TypeMirror getterType = typeUtil.getGetterType(sourceType, source.getGetter(bundleType));
+        if (getterType == null) {
+            return false;
+        }
+        if (getterType.getKind() == TypeKind.TYPEVAR) {
+            // Inferred from the return type of read
+            return true;
+        }
+        if (codec != null) {
+            return TypeName.get(getterType).equals(codec.getStoredType());
+        }
+        return typeUtil.isAssignable(getterType, type);
+    }
+
+    /**
+     * The source is not touched, a bundle read from a parcel stays parcelled. Whether the key is there is only checked on the first call to
+     * {@link pocketknife.Lazy#get()}, which reads the value or throws if a required value is missing.
+     */
+    private void addReadLazyField(MethodSpec.Builder methodBuilder, ValueSource source, String key, String target, String name, TypeMirror type,
+                                  String bundleType, TypeMirror converter, boolean required, String missingMessage) {
+        TypeMirror lazyType = typeUtil.getLazyType(type);
+        TypeName sourceType;
+        Class<?> lazyClass;
+        ValueSource lazySource;
+        if (source.isIntent()) {
+            sourceType = ClassName.get(typeUtil.intentType);
+            lazyClass = LazyExtraValue.class;
+            lazySource = ValueSource.intent(SOURCE);
+        } else {
+            sourceType = ClassName.get(typeUtil.bundleType);
+            lazyClass = LazyBundleValue.class;
+            lazySource = ValueSource.bundle(SOURCE);
+        }
+        CodeBlock read;
+        if (converter == null) {
+            read = decode(lazyType, readStored(lazySource, lazyType, bundleType, CodeBlock.builder().add("$N", KEY).build()),
+                    !isReadTyped(lazySource, lazyType, bundleType));
+        } else if (source.isIntent()) {
+            // Converters read from a bundle, which for an intent is a copy of its extras
+            read = typeUtil.readWithConverter(converter, CodeBlock.builder().add("$N.getExtras()", SOURCE).build(),
+                    CodeBlock.builder().add("$N", KEY).build());
+        } else {
+            read = typeUtil.readWithConverter(converter, CodeBlock.builder().add("$N", SOURCE).build(),
+                    CodeBlock.builder().add("$N", KEY).build());
+        }
+        MethodSpec.Builder readMethod = MethodSpec.methodBuilder(READ_METHOD)
+                .addAnnotation(Override.class)
+                .addModifiers(PROTECTED)
+                .returns(TypeName.get(lazyType))
+                .addParameter(sourceType, SOURCE)
+                .addParameter(String.class, KEY)
+                .addStatement("return $L", read);
+        if (isUncheckedCast(lazyType, converter)) {
+            readMethod.addAnnotation(UNCHECKED);
+        }
+        TypeSpec.Builder reading;
+        if (required) {
+            reading = TypeSpec.anonymousClassBuilder("$N, $S, $S", source.getName(), key, missingMessage);
+        } else {
+            reading = TypeSpec.anonymousClassBuilder("$N, $S, null", source.getName(), key);
+        }
+        methodBuilder.addStatement("$N.$N = $L", target, name, reading
+                .superclass(ParameterizedTypeName.get(ClassName.get(lazyClass), TypeName.get(lazyType)))
+                .addMethod(readMethod.build())
+                .build());
+    }
+
+    /**
+     * @return true if assigning a value read by {@link #addReadField} to a field of this type is an unchecked cast.
+     */
+    protected boolean isUncheckedCast(TypeMirror type, TypeMirror converter) {
+        return converter == null && !typeUtil.isLazy(type) && TypeName.get(type) instanceof ParameterizedTypeName;
+    }
+
+    /**
+     * @return true if {@link #addReadField} reads a field of this type through the local variable declared by {@link #addValueVariable}.
+     */
+    protected boolean needsValueVariable(TypeMirror type, TypeMirror converter) {
+        return converter == null && !typeUtil.isLazy(type);
+    }
 }
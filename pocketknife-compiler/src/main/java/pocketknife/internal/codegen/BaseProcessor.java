@@ -1,7 +1,5 @@
 package pocketknife.internal.codegen;
 
-import com.google.common.base.CaseFormat;
-
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
@@ -10,6 +8,15 @@ import java.util.Map;
 
 public abstract class BaseProcessor {
 
+    private KeyGenerator keyGenerator = new KeyGenerator(false);
+
+    /**
+     * Share the generator of keys with the other processors, so they generate the same keys and collisions between them are found.
+     */
+    public void setKeyGenerator(KeyGenerator keyGenerator) {
+        this.keyGenerator = keyGenerator;
+    }
+
     protected boolean isDefaultAnnotationElement(Element element, String annotation, String annotationElement) {
         for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
             if (annotation.equals(mirror.getAnnotationType().toString())) {
@@ -24,6 +31,15 @@ public abstract class BaseProcessor {
     }
 
     protected String generateKey(String prefix, String name) {
-        return prefix + CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, name);
+        return keyGenerator.generateKey(prefix, name);
+    }
+
+    protected String shortenKey(String key) {
+        return keyGenerator.shortenKey(key);
+    }
+
+    protected String explicitKey(String key) {
+        keyGenerator.addExplicitKey(key);
+        return key;
     }
 }
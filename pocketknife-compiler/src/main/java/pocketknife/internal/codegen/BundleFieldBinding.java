@@ -5,6 +5,7 @@ import javax.lang.model.type.TypeMirror;
 public class BundleFieldBinding extends FieldBinding {
     public static final String ARGUMENT_KEY_PREFIX = "ARG_";
     public static final String SAVE_STATE_KEY_PREFIX = "BUNDLE_";
+    public static final String RETAINED_STATE_KEY_PREFIX = "RETAINED_";
 
 
     public enum AnnotationType {
@@ -16,26 +17,35 @@ public class BundleFieldBinding extends FieldBinding {
     private final TypeMirror type;
     private final String bundleType;
     private final String key;
+    private final TypeMirror converter;
 
     // Injector Only
     private final boolean needsToBeCast;
     private final boolean canHaveDefault;
     private final boolean required;
+    private final boolean spill;
+    private final boolean retain;
+    private final boolean consume;
 
-    public BundleFieldBinding(String name, TypeMirror type, String bundleType, String key) {
-        this(AnnotationType.BUILDER, name, type, bundleType, key, false, false, false);
+    public BundleFieldBinding(String name, TypeMirror type, String bundleType, String key, TypeMirror converter) {
+        this(AnnotationType.BUILDER, name, type, bundleType, key, converter, false, false, false, false, false, false);
     }
 
-    public BundleFieldBinding(AnnotationType annotationType, String name, TypeMirror type, String bundleType, String key, boolean needsToBeCast,
-                              boolean canHaveDefault, boolean required) {
+    public BundleFieldBinding(AnnotationType annotationType, String name, TypeMirror type, String bundleType, String key, TypeMirror converter,
+                              boolean needsToBeCast, boolean canHaveDefault, boolean required, boolean spill, boolean retain,
+                              boolean consume) {
         this.annotationType = annotationType;
         this.name = name;
         this.type = type;
         this.bundleType = bundleType;
         this.needsToBeCast = needsToBeCast;
         this.key = key;
+        this.converter = converter;
         this.canHaveDefault = canHaveDefault;
         this.required = required;
+        this.spill = spill;
+        this.retain = retain;
+        this.consume = consume;
     }
 
     @Override
@@ -59,6 +69,13 @@ public class BundleFieldBinding extends FieldBinding {
         return new KeySpec(generateKey(ARGUMENT_KEY_PREFIX, name), key);
     }
 
+    /**
+     * @return the {@code @BundleConverter} class the value is stored with, or {@code null} if it is stored by its bundle type.
+     */
+    public TypeMirror getConverter() {
+        return converter;
+    }
+
     public AnnotationType getAnnotationType() {
         return annotationType;
     }
@@ -67,6 +84,27 @@ public class BundleFieldBinding extends FieldBinding {
         return required;
     }
 
+    /**
+     * @return true if the value is stored through {@link pocketknife.internal.SpilledState}.
+     */
+    public boolean isSpill() {
+        return spill;
+    }
+
+    /**
+     * @return true if the value is also kept in memory by {@link pocketknife.internal.RetainedState}.
+     */
+    public boolean isRetain() {
+        return retain;
+    }
+
+    /**
+     * @return true if the value is removed from the bundle once it is injected, see {@link pocketknife.Consume}.
+     */
+    public boolean isConsume() {
+        return consume;
+    }
+
     public boolean canHaveDefault() {
         return canHaveDefault;
     }
@@ -9,6 +9,8 @@ public class IntentFieldBinding extends FieldBinding {
     private final TypeMirror type;
     private final String intentType;
     private final String key;
+    private final TypeMirror converter;
+    private final boolean handoff;
     // Builder Only
     private final boolean arrayList;
 
@@ -16,27 +18,35 @@ public class IntentFieldBinding extends FieldBinding {
     private final boolean required;
     private final boolean needsToBeCast;
     private final boolean hasDefault;
+    private final boolean consume;
 
-    public IntentFieldBinding(String name, TypeMirror type, String intentType, String key, boolean arrayList) {
+    public IntentFieldBinding(String name, TypeMirror type, String intentType, String key, TypeMirror converter, boolean handoff, boolean arrayList) {
         this.name = name;
         this.type = type;
         this.intentType = intentType;
         this.key = key;
+        this.converter = converter;
+        this.handoff = handoff;
         this.arrayList = arrayList;
 
         this.required = false;
         this.needsToBeCast = false;
         this.hasDefault = false;
+        this.consume = false;
     }
 
-    public IntentFieldBinding(String name, TypeMirror type, String intentType, String key, Boolean needsToBeCast, boolean hasDefault, boolean required) {
+    public IntentFieldBinding(String name, TypeMirror type, String intentType, String key, TypeMirror converter, boolean handoff, Boolean needsToBeCast,
+                              boolean hasDefault, boolean required, boolean consume) {
         this.name = name;
         this.type = type;
         this.intentType = intentType;
         this.key = key;
+        this.converter = converter;
+        this.handoff = handoff;
         this.needsToBeCast = needsToBeCast;
         this.hasDefault = hasDefault;
         this.required = required;
+        this.consume = consume;
 
         this.arrayList = false;
     }
@@ -58,6 +68,20 @@ public class IntentFieldBinding extends FieldBinding {
         return new KeySpec(generateKey(KEY_PREFIX, name), key);
     }
 
+    /**
+     * @return the {@code @BundleConverter} class the value is stored with, or {@code null} if it is stored by its intent type.
+     */
+    public TypeMirror getConverter() {
+        return converter;
+    }
+
+    /**
+     * @return true if the value is passed through {@link pocketknife.internal.Handoffs}.
+     */
+    public boolean isHandoff() {
+        return handoff;
+    }
+
     public boolean isArrayList() {
         return arrayList;
     }
@@ -78,6 +102,13 @@ public class IntentFieldBinding extends FieldBinding {
         return hasDefault;
     }
 
+    /**
+     * @return true if the extra is removed from the intent once it is injected, see {@link pocketknife.Consume}.
+     */
+    public boolean isConsume() {
+        return consume;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof IntentFieldBinding && this.name.equals(((IntentFieldBinding) obj).name);
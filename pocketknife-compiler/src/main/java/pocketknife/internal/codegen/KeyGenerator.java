@@ -0,0 +1,73 @@
+package pocketknife.internal.codegen;
+
+import com.google.common.base.CaseFormat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generates the keys of fields and parameters without an explicit key. With short keys, the key is a base 36 hash of the long key, which
+ * only depends on the prefix and the name, so a builder and the injector of the same argument or extra still agree on it. One instance is
+ * shared by all processors to detect two keys with the same hash in the whole compilation.
+ */
+public class KeyGenerator {
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final boolean shortKeys;
+    // Every short key and explicit key seen, with the key it was generated from
+    private final Map<String, String> sources = new HashMap<String, String>();
+
+    public KeyGenerator(boolean shortKeys) {
+        this.shortKeys = shortKeys;
+    }
+
+    public String generateKey(String prefix, String name) {
+        return shortenKey(prefix + CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, name));
+    }
+
+    /**
+     * @return {@code key} or, with short keys, its hash.
+     * @throws IllegalStateException if the hash is the same as that of another key or an explicit key.
+     */
+    public String shortenKey(String key) {
+        if (!shortKeys) {
+            return key;
+        }
+        String shortKey = hash(key);
+        register(shortKey, key);
+        return shortKey;
+    }
+
+    /**
+     * Record a key given in an annotation, so a short key can't collide with it.
+     */
+    public void addExplicitKey(String key) {
+        if (shortKeys) {
+            register(key, key);
+        }
+    }
+
+    private void register(String key, String source) {
+        String previous = sources.get(key);
+        if (previous == null) {
+            sources.put(key, source);
+        } else if (!previous.equals(source)) {
+            throw new IllegalStateException(String.format("Keys '%s' and '%s' are both stored as '%s'. Set an explicit key for one of them",
+                    previous, source, key));
+        }
+    }
+
+    /**
+     * 32 bit FNV-1a hash of the chars of the key. Unlike {@link String#hashCode()}, keys that differ in their last char don't get adjacent
+     * hashes.
+     */
+    private static String hash(String key) {
+        int hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return Long.toString(hash & 0xffffffffL, Character.MAX_RADIX);
+    }
+}
@@ -1,19 +1,27 @@
 package pocketknife.internal.codegen;
 
 import com.google.common.collect.ImmutableSet;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.JavaFile;
 import pocketknife.BundleBuilder;
+import pocketknife.Columnar;
 import pocketknife.FragmentBuilder;
 import pocketknife.InjectArgument;
 import pocketknife.InjectExtra;
 import pocketknife.IntentBuilder;
+import pocketknife.PocketParcel;
 import pocketknife.SaveState;
 import pocketknife.internal.codegen.builder.BuilderGenerator;
 import pocketknife.internal.codegen.builder.BuilderProcessor;
+import pocketknife.internal.codegen.injection.AdapterIndexGenerator;
 import pocketknife.internal.codegen.injection.BundleInjectionAdapterGenerator;
 import pocketknife.internal.codegen.injection.BundleInjectionProcessor;
 import pocketknife.internal.codegen.injection.IntentInjectionAdapterGenerator;
 import pocketknife.internal.codegen.injection.IntentInjectionProcessor;
+import pocketknife.internal.codegen.injection.InjectorGenerator;
+import pocketknife.internal.codegen.parcel.ColumnsGenerator;
+import pocketknife.internal.codegen.parcel.ParcelProcessor;
+import pocketknife.internal.codegen.parcel.ParcelableGenerator;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
@@ -27,20 +35,38 @@ import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
 import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.WARNING;
 
 public class PocketKnifeProcessor extends AbstractProcessor {
 
+    /** Fully qualified name of the adapter index to generate. The app installs it by calling its static {@code install()} method. */
+    public static final String OPTION_INDEX = "pocketknife.index";
+
+    /** Set to {@code true} to inline the fields of annotated ancestors in the same package instead of calling their injectors. */
+    public static final String OPTION_FLATTEN = "pocketknife.flatten";
+
+    /** Set to {@code true} to generate short hashed keys instead of keys spelled out from the field name. See {@link KeyGenerator}. */
+    public static final String OPTION_SHORT_KEYS = "pocketknife.shortKeys";
+
+    /** Set to {@code true} to save the fields of each class into a bundle of their own, nested in the saved state under a key for the class. */
+    public static final String OPTION_NESTED_STATE = "pocketknife.nestedState";
 
     private Messager messager;
     private Filer filer;
+    private Elements elements;
+    private TypeUtil typeUtil;
 
     private BundleInjectionProcessor bundleInjectionProcessor;
     private IntentInjectionProcessor intentInjectionProcessor;
     private BuilderProcessor builderProcessor;
+    private ParcelProcessor parcelProcessor;
+    private AdapterIndexGenerator indexGenerator;
+    private boolean indexWritten;
 
     @Override
     public SourceVersion getSupportedSourceVersion() {
@@ -52,11 +78,30 @@ public class PocketKnifeProcessor extends AbstractProcessor {
         super.init(processingEnv);
         messager = processingEnv.getMessager();
         filer = processingEnv.getFiler();
-        Elements elements = processingEnv.getElementUtils();
+        elements = processingEnv.getElementUtils();
         Types types = processingEnv.getTypeUtils();
+        typeUtil = TypeUtil.getInstance(elements, types);
         bundleInjectionProcessor = new BundleInjectionProcessor(messager, elements, types);
         intentInjectionProcessor = new IntentInjectionProcessor(messager, elements, types);
         builderProcessor = new BuilderProcessor(messager, elements, types);
+        parcelProcessor = new ParcelProcessor(messager, elements, types);
+        boolean flatten = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_FLATTEN));
+        bundleInjectionProcessor.setFlatten(flatten);
+        intentInjectionProcessor.setFlatten(flatten);
+        bundleInjectionProcessor.setNestedState(Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_NESTED_STATE)));
+        KeyGenerator keyGenerator = new KeyGenerator(Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_SHORT_KEYS)));
+        bundleInjectionProcessor.setKeyGenerator(keyGenerator);
+        intentInjectionProcessor.setKeyGenerator(keyGenerator);
+        builderProcessor.setKeyGenerator(keyGenerator);
+        String index = processingEnv.getOptions().get(OPTION_INDEX);
+        if (index != null && !index.isEmpty()) {
+            indexGenerator = new AdapterIndexGenerator(index, typeUtil);
+        }
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return ImmutableSet.of(OPTION_INDEX, OPTION_FLATTEN, OPTION_SHORT_KEYS, OPTION_NESTED_STATE);
     }
 
     @Override
@@ -67,12 +112,38 @@ public class PocketKnifeProcessor extends AbstractProcessor {
                 InjectExtra.class.getCanonicalName(),
                 IntentBuilder.class.getCanonicalName(),
                 BundleBuilder.class.getCanonicalName(),
-                FragmentBuilder.class.getCanonicalName()
+                FragmentBuilder.class.getCanonicalName(),
+                PocketParcel.class.getCanonicalName(),
+                Columnar.class.getCanonicalName()
         );
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, InjectorGenerator> injectorMap = new LinkedHashMap<TypeElement, InjectorGenerator>();
+
+        // Parcelable Wrappers
+        Map<TypeElement, ParcelableGenerator> parcelMap = parcelProcessor.findAndParseTargets(roundEnv);
+
+        for (Map.Entry<TypeElement, ParcelableGenerator> entry : parcelMap.entrySet()) {
+            try {
+                entry.getValue().generate().writeTo(filer);
+            } catch (Exception e) {
+                error(entry.getKey(), "Unable to write parcelable wrapper for type %s: %s", entry.getKey(), e.getMessage());
+            }
+        }
+
+        // Columnar Collections
+        Map<TypeElement, ColumnsGenerator> columnsMap = parcelProcessor.findAndParseColumnarTargets(roundEnv);
+
+        for (Map.Entry<TypeElement, ColumnsGenerator> entry : columnsMap.entrySet()) {
+            try {
+                entry.getValue().generate().writeTo(filer);
+            } catch (Exception e) {
+                error(entry.getKey(), "Unable to write columns class for type %s: %s", entry.getKey(), e.getMessage());
+            }
+        }
+
         // Bundle Injections
         Map<TypeElement, BundleInjectionAdapterGenerator> bundleInjectionMap = bundleInjectionProcessor.findAndParseTargets(roundEnv);
 
@@ -82,6 +153,10 @@ public class PocketKnifeProcessor extends AbstractProcessor {
             try {
                 JavaFile javaFile = generator.generate();
                 javaFile.writeTo(filer);
+                if (indexAdapter(typeElement)) {
+                    indexGenerator.addBundleAdapter(elements.getBinaryName(typeElement).toString(), generator.getAdapterClassName());
+                }
+                getOrCreateInjector(injectorMap, typeElement, generator.getInjectorClassName()).setBundleAdapter(generator);
             } catch (Exception e) {
                 error(typeElement, "Unable to write adapter for type %s: %s", typeElement, e.getMessage());
             }
@@ -96,11 +171,35 @@ public class PocketKnifeProcessor extends AbstractProcessor {
             try {
                 JavaFile javaFile = generator.generate();
                 javaFile.writeTo(filer);
+                if (indexAdapter(typeElement)) {
+                    indexGenerator.addIntentAdapter(elements.getBinaryName(typeElement).toString(), generator.getAdapterClassName());
+                }
+                getOrCreateInjector(injectorMap, typeElement, generator.getInjectorClassName()).setIntentAdapter(generator);
             } catch (Exception e) {
                 error(typeElement, "Unable to write adapter for type %s: %s", typeElement, e.getMessage());
             }
         }
 
+        // Static Injectors
+        for (Map.Entry<TypeElement, InjectorGenerator> entry : injectorMap.entrySet()) {
+            try {
+                entry.getValue().generate().writeTo(filer);
+            } catch (Exception e) {
+                error(entry.getKey(), "Unable to write injector for type %s: %s", entry.getKey(), e.getMessage());
+            }
+        }
+
+        // Adapter Index
+        if (indexGenerator != null && !indexWritten && !indexGenerator.isEmpty()) {
+            try {
+                indexGenerator.generate().writeTo(filer);
+            } catch (Exception e) {
+                messager.printMessage(ERROR, String.format("Unable to write adapter index %s: %s", processingEnv.getOptions().get(OPTION_INDEX),
+                        e.getMessage()));
+            }
+            indexWritten = true;
+        }
+
         // Builders
         Map<TypeElement, BuilderGenerator> builderMap = builderProcessor.findAndParseTargets(roundEnv);
 
@@ -120,6 +219,28 @@ public class PocketKnifeProcessor extends AbstractProcessor {
         return false;
     }
 
+    private InjectorGenerator getOrCreateInjector(Map<TypeElement, InjectorGenerator> injectorMap, TypeElement typeElement, ClassName injector) {
+        InjectorGenerator generator = injectorMap.get(typeElement);
+        if (generator == null) {
+            generator = new InjectorGenerator(injector, typeUtil);
+            injectorMap.put(typeElement, generator);
+        }
+        return generator;
+    }
+
+    private boolean indexAdapter(TypeElement typeElement) {
+        if (indexGenerator == null) {
+            return false;
+        }
+        if (indexWritten) {
+            // The index can only be written once. Adapters found in later rounds are still found by name at runtime.
+            messager.printMessage(WARNING, String.format("Adapter for %s was generated after the adapter index was written and will not be indexed.",
+                    typeElement), typeElement);
+            return false;
+        }
+        return true;
+    }
+
     private void error(Element element, String message, Object... args) {
         if (args.length > 0) {
             message = String.format(message, args);
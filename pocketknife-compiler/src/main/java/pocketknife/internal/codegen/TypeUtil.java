@@ -1,13 +1,42 @@
 package pocketknife.internal.codegen;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import pocketknife.BundleConverter;
+import pocketknife.Columnar;
+import pocketknife.PocketParcel;
+import pocketknife.internal.BoxedValues;
+import pocketknife.internal.PackedCollections;
+import pocketknife.internal.PackedSparseArrays;
+import pocketknife.internal.ValueEncodings;
+import pocketknife.internal.codegen.parcel.ColumnsGenerator;
+import pocketknife.internal.codegen.parcel.ParcelableGenerator;
+
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static pocketknife.internal.GeneratedAdapters.COLUMNS_SUFFIX;
+import static pocketknife.internal.GeneratedAdapters.PARCELABLE_SUFFIX;
 
 public class TypeUtil {
     private static final String SERIALIZABLE = "java.io.Serializable";
@@ -19,6 +48,9 @@ public class TypeUtil {
     private static final String INTEGER = "java.lang.Integer";
     private static final String ARRAY_LIST = "java.util.ArrayList";
     private static final String SPARSE_ARRAY = "android.util.SparseArray";
+    private static final String SPARSE_INT_ARRAY = "android.util.SparseIntArray";
+    private static final String SPARSE_BOOLEAN_ARRAY = "android.util.SparseBooleanArray";
+    private static final String LONG_SPARSE_ARRAY = "android.util.LongSparseArray";
 
     private static final String INTENT = "android.content.Intent";
     private static final String CONTEXT = "android.content.Context";
@@ -26,6 +58,34 @@ public class TypeUtil {
     private static final String URI = "android.net.Uri";
     private static final String FRAGMENT = "android.app.Fragment";
     private static final String SUPPORT_FRAGMENT = "android.support.v4.app.Fragment";
+    private static final String LAZY = "pocketknife.Lazy";
+    private static final String CONVERTER_WRITE = "write";
+    private static final String CONVERTER_READ = "read";
+    private static final String UUID = "java.util.UUID";
+    private static final String DATE = "java.util.Date";
+    private static final String BIG_DECIMAL = "java.math.BigDecimal";
+
+    // Collection classes packed by PackedCollections, with the kind of collection they are rebuilt as
+    private static final Map<String, String> COLLECTION_KINDS = ImmutableMap.<String, String>builder()
+            .put("java.util.Collection", "ARRAY_LIST")
+            .put("java.util.List", "ARRAY_LIST")
+            .put("java.util.ArrayList", "ARRAY_LIST")
+            .put("java.util.LinkedList", "LINKED_LIST")
+            .put("java.util.Set", "HASH_SET")
+            .put("java.util.HashSet", "HASH_SET")
+            .put("java.util.LinkedHashSet", "LINKED_HASH_SET")
+            .put("java.util.SortedSet", "TREE_SET")
+            .put("java.util.NavigableSet", "TREE_SET")
+            .put("java.util.TreeSet", "TREE_SET")
+            .build();
+    private static final Map<String, String> MAP_KINDS = ImmutableMap.<String, String>builder()
+            .put("java.util.Map", "HASH_MAP")
+            .put("java.util.HashMap", "HASH_MAP")
+            .put("java.util.LinkedHashMap", "LINKED_HASH_MAP")
+            .put("java.util.SortedMap", "TREE_MAP")
+            .put("java.util.NavigableMap", "TREE_MAP")
+            .put("java.util.TreeMap", "TREE_MAP")
+            .build();
 
 
     public final TypeMirror serializableType;
@@ -37,24 +97,37 @@ public class TypeUtil {
     public final TypeMirror integerType;
     public final TypeMirror arrayListType;
     public final TypeMirror sparseArrayType;
+    public final TypeMirror sparseIntArrayType;
+    public final TypeMirror sparseBooleanArrayType;
+    public final TypeMirror longSparseArrayType;
     public final TypeMirror intentType;
     public final TypeMirror fragmentType;
     public final TypeMirror supportFragmentType;
     public final TypeMirror uriType;
     public final TypeMirror contextType;
     public final TypeMirror buildType;
+    public final TypeMirror lazyType;
+    public final TypeMirror uuidType;
+    public final TypeMirror dateType;
+    public final TypeMirror bigDecimalType;
 
     private static TypeUtil instance;
+    private final Elements elements;
     private final Types types;
 
+    /**
+     * @return the instance for the current compilation. A new compilation in the same JVM, as in a build daemon, gets a new instance, since
+     * the type mirrors of another compilation can't be compared with its own.
+     */
     public static synchronized TypeUtil getInstance(Elements elements, Types types) {
-        if (instance == null) {
+        if (instance == null || instance.types != types) {
             instance = new TypeUtil(elements, types);
         }
         return instance;
     }
 
     private TypeUtil(Elements elements, Types types) {
+        this.elements = elements;
         this.types = types;
         Element element = elements.getTypeElement(SERIALIZABLE);
         if (element == null) {
@@ -101,6 +174,21 @@ public class TypeUtil {
             throw new IllegalStateException("Unable to find SparseArray type");
         }
         sparseArrayType = element.asType();
+        element = elements.getTypeElement(SPARSE_INT_ARRAY);
+        if (element == null) {
+            throw new IllegalStateException("Unable to find SparseIntArray type");
+        }
+        sparseIntArrayType = element.asType();
+        element = elements.getTypeElement(SPARSE_BOOLEAN_ARRAY);
+        if (element == null) {
+            throw new IllegalStateException("Unable to find SparseBooleanArray type");
+        }
+        sparseBooleanArrayType = element.asType();
+        element = elements.getTypeElement(LONG_SPARSE_ARRAY);
+        if (element == null) {
+            throw new IllegalStateException("Unable to find LongSparseArray type");
+        }
+        longSparseArrayType = types.erasure(element.asType());
         element = elements.getTypeElement(INTENT);
         if (element == null) {
             throw new IllegalStateException("Unable to find Intent type");
@@ -131,14 +219,50 @@ public class TypeUtil {
             throw new IllegalStateException("Unable to find Build type");
         }
         buildType = element.asType();
+        element = elements.getTypeElement(LAZY);
+        if (element == null) {
+            throw new IllegalStateException("Unable to find Lazy type");
+        }
+        lazyType = types.erasure(element.asType());
+        element = elements.getTypeElement(UUID);
+        if (element == null) {
+            throw new IllegalStateException("Unable to find UUID type");
+        }
+        uuidType = element.asType();
+        element = elements.getTypeElement(DATE);
+        if (element == null) {
+            throw new IllegalStateException("Unable to find Date type");
+        }
+        dateType = element.asType();
+        element = elements.getTypeElement(BIG_DECIMAL);
+        if (element == null) {
+            throw new IllegalStateException("Unable to find BigDecimal type");
+        }
+        bigDecimalType = element.asType();
     }
 
     public String getBundleType(TypeMirror type) throws InvalidTypeException {
+        // Lazy values are stored as the type they wrap
+        if (isLazy(type)) {
+            return getBundleType(getLazyType(type));
+        }
+
+        // Types that are converted to be stored
+        ValueCodec codec = getCodec(type);
+        if (codec != null) {
+            return codec.getBundleType();
+        }
+
         // Primitive
         if (isPrimitive(type)) {
             return getPrimitiveType(type);
         }
 
+        // Boxed primitives are put with the primitive method, see putBundleValue
+        if (isBoxed(type)) {
+            return getPrimitiveType(unbox(type));
+        }
+
         // Array
         if (isArrayType(type)) {
             return getArrayType((ArrayType) type);
@@ -170,11 +294,27 @@ public class TypeUtil {
     }
 
     public String getIntentType(TypeMirror type) throws InvalidTypeException {
+        // Lazy values are stored as the type they wrap
+        if (isLazy(type)) {
+            return getIntentType(getLazyType(type));
+        }
+
+        // Types that are converted to be stored
+        ValueCodec codec = getCodec(type);
+        if (codec != null) {
+            return codec.getBundleType();
+        }
+
         // Primitive
         if (isPrimitive(type)) {
             return getPrimitiveType(type);
         }
 
+        // Boxed primitives are put with the primitive method, see putBundleValue
+        if (isBoxed(type)) {
+            return getPrimitiveType(unbox(type));
+        }
+
         // Array
         if (isArrayType(type)) {
             return getArrayType((ArrayType) type);
@@ -203,6 +343,328 @@ public class TypeUtil {
         return type.getKind().isPrimitive();
     }
 
+    /**
+     * @return the boxed type of a primitive, any other type as is.
+     */
+    public TypeMirror box(TypeMirror type) {
+        if (isPrimitive(type)) {
+            return types.boxedClass((PrimitiveType) type).asType();
+        }
+        return type;
+    }
+
+    /**
+     * @return the primitive type of a boxed primitive or {@code null} for any other type.
+     */
+    public TypeMirror unbox(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        try {
+            return types.unboxedType(type);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public boolean isBoxed(TypeMirror type) {
+        return unbox(type) != null;
+    }
+
+    public boolean isSameType(TypeMirror type, TypeMirror other) {
+        return types.isSameType(type, other);
+    }
+
+    public boolean isAssignable(TypeMirror type, TypeMirror other) {
+        return types.isAssignable(type, other);
+    }
+
+    public TypeMirror erasure(TypeMirror type) {
+        return types.erasure(type);
+    }
+
+    /**
+     * @return the return type of the method of {@code type} named {@code getter} that takes a key, or {@code null} if there is none.
+     */
+    public TypeMirror getGetterType(TypeMirror type, String getter) {
+        TypeElement element = (TypeElement) types.asElement(type);
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(element))) {
+            if (method.getSimpleName().contentEquals(getter) && method.getParameters().size() == 1
+                    && isSameType(method.getParameters().get(0).asType(), stringType)) {
+                return method.getReturnType();
+            }
+        }
+        return null;
+    }
+
+    public boolean isLazy(TypeMirror type) {
+        return type instanceof DeclaredType && types.isSameType(types.erasure(type), lazyType)
+                && ((DeclaredType) type).getTypeArguments().size() == 1;
+    }
+
+    /**
+     * @return the type wrapped by a {@code Lazy<T>}.
+     */
+    public TypeMirror getLazyType(TypeMirror type) {
+        TypeMirror lazy = ((DeclaredType) type).getTypeArguments().get(0);
+        if (lazy instanceof WildcardType && ((WildcardType) lazy).getExtendsBound() != null) {
+            return ((WildcardType) lazy).getExtendsBound();
+        }
+        return lazy;
+    }
+
+    /**
+     * @return the class named by a {@code @BundleConverter} on the element or on the class of its type, or {@code null} if there is none.
+     * @throws IllegalStateException if the converter does not have the static read and write methods.
+     */
+    public TypeMirror getConverter(Element element) {
+        TypeMirror converter = getConverterValue(element);
+        if (converter == null) {
+            TypeMirror type = element.asType();
+            if (isLazy(type)) {
+                type = getLazyType(type);
+            }
+            if (type.getKind() == TypeKind.DECLARED) {
+                converter = getConverterValue(((DeclaredType) type).asElement());
+            }
+        }
+        if (converter != null) {
+            validateConverter(converter);
+        }
+        return converter;
+    }
+
+    private TypeMirror getConverterValue(Element element) {
+        BundleConverter annotation = element.getAnnotation(BundleConverter.class);
+        if (annotation == null) {
+            return null;
+        }
+        try {
+            annotation.value();
+        } catch (MirroredTypeException e) {
+            return e.getTypeMirror();
+        }
+        throw new IllegalStateException("Unable to read the @BundleConverter class of " + element);
+    }
+
+    private void validateConverter(TypeMirror converter) {
+        boolean write = false;
+        boolean read = false;
+        for (ExecutableElement method : ElementFilter.methodsIn(types.asElement(converter).getEnclosedElements())) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            String name = method.getSimpleName().toString();
+            write |= CONVERTER_WRITE.equals(name) && method.getParameters().size() == 3;
+            read |= CONVERTER_READ.equals(name) && method.getParameters().size() == 2;
+        }
+        if (!write || !read) {
+            throw new IllegalStateException(String.format("@BundleConverter %s must have static write(Bundle, String, T) and read(Bundle, String) methods",
+                    converter));
+        }
+    }
+
+    /**
+     * @return the code calling the static write method of a {@code @BundleConverter}.
+     */
+    public CodeBlock writeWithConverter(TypeMirror converter, CodeBlock bundle, CodeBlock key, CodeBlock value) {
+        return CodeBlock.builder().add("$T.$N($L, $L, $L)", TypeName.get(converter), CONVERTER_WRITE, bundle, key, value).build();
+    }
+
+    /**
+     * @return the code calling the static read method of a {@code @BundleConverter}.
+     */
+    public CodeBlock readWithConverter(TypeMirror converter, CodeBlock bundle, CodeBlock key) {
+        return CodeBlock.builder().add("$T.$N($L, $L)", TypeName.get(converter), CONVERTER_READ, bundle, key).build();
+    }
+
+    /**
+     * @return the codec converting values of this type for storage or {@code null} if they are stored as is.
+     */
+    public ValueCodec getCodec(TypeMirror type) {
+        if (isPocketParcel(type)) {
+            return new ValueCodec("Parcelable", getParcelableWrapper(type), ParcelableGenerator.WRAP_METHOD, ParcelableGenerator.UNWRAP_METHOD);
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        ClassName valueEncodings = ClassName.get(ValueEncodings.class);
+        if (((DeclaredType) type).asElement().getKind() == ElementKind.ENUM) {
+            return new ValueCodec("String", ClassName.get(String.class), valueEncodings, "encodeEnum", "decodeEnum",
+                    CodeBlock.builder().add("$T.class", TypeName.get(types.erasure(type))).build());
+        }
+        if (types.isSameType(type, uuidType)) {
+            return new ValueCodec("LongArray", ArrayTypeName.of(long.class), valueEncodings, "encodeUuid", "decodeUuid", null);
+        }
+        if (types.isSameType(type, dateType)) {
+            return new ValueCodec("Long", ClassName.get(Long.class), valueEncodings, "encodeDate", "decodeDate", null);
+        }
+        if (types.isSameType(type, bigDecimalType)) {
+            return new ValueCodec("ByteArray", ArrayTypeName.of(byte.class), valueEncodings, "encodeBigDecimal", "decodeBigDecimal", null);
+        }
+        ValueCodec sparseArrayCodec = getSparseArrayCodec((DeclaredType) type);
+        if (sparseArrayCodec != null) {
+            return sparseArrayCodec;
+        }
+        ValueCodec columnarCodec = getColumnarCodec((DeclaredType) type);
+        if (columnarCodec != null) {
+            return columnarCodec;
+        }
+        if (!isArrayListType(type)) {
+            return getCollectionCodec((DeclaredType) type);
+        }
+        return null;
+    }
+
+    /**
+     * Collections of a {@code @Columnar} type are packed into a bundle of one array per field of the type, by its generated columns class.
+     * This goes before the {@code ParcelableArrayList} of a Parcelable type.
+     */
+    private ValueCodec getColumnarCodec(DeclaredType type) {
+        String kind = COLLECTION_KINDS.get(((TypeElement) type.asElement()).getQualifiedName().toString());
+        List<? extends TypeMirror> typeArguments = type.getTypeArguments();
+        if (kind == null || typeArguments.size() != 1 || !isColumnar(typeArguments.get(0))) {
+            return null;
+        }
+        return new ValueCodec("Bundle", TypeName.get(bundleType), getColumnsClass(typeArguments.get(0)), ColumnsGenerator.PACK_METHOD,
+                ColumnsGenerator.UNPACK_METHOD, CodeBlock.builder().add("$T.$N", ClassName.get(PackedCollections.class), kind).build());
+    }
+
+    /**
+     * Sparse arrays with primitive keys are packed into a bundle of a key array and a parallel value array.
+     */
+    private ValueCodec getSparseArrayCodec(DeclaredType type) {
+        ClassName packedSparseArrays = ClassName.get(PackedSparseArrays.class);
+        TypeName bundle = TypeName.get(bundleType);
+        if (types.isSameType(type, sparseIntArrayType)) {
+            return new ValueCodec("Bundle", bundle, packedSparseArrays, "packSparseIntArray", "unpackSparseIntArray", null);
+        }
+        if (types.isSameType(type, sparseBooleanArrayType)) {
+            return new ValueCodec("Bundle", bundle, packedSparseArrays, "packSparseBooleanArray", "unpackSparseBooleanArray", null);
+        }
+        List<? extends TypeMirror> typeArguments = type.getTypeArguments();
+        if (types.isSameType(types.erasure(type), longSparseArrayType) && typeArguments.size() == 1) {
+            String element = getPackedElement(typeArguments.get(0));
+            if (element != null) {
+                return new ValueCodec("Bundle", bundle, packedSparseArrays, "pack" + element + "LongSparseArray", "unpack" + element + "LongSparseArray",
+                        null);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collections are packed into an array of their elements, maps with {@link String} keys into a pair of parallel arrays. Both are stored
+     * as {@link java.io.Serializable} so a collection or map put as it is, or packed as one because it holds null, still reads back.
+     */
+    private ValueCodec getCollectionCodec(DeclaredType type) {
+        String name = ((TypeElement) type.asElement()).getQualifiedName().toString();
+        List<? extends TypeMirror> typeArguments = type.getTypeArguments();
+        ClassName packedCollections = ClassName.get(PackedCollections.class);
+        String kind = COLLECTION_KINDS.get(name);
+        if (kind != null && typeArguments.size() == 1) {
+            String element = getPackedElement(typeArguments.get(0));
+            if (element != null) {
+                return new ValueCodec("Serializable", null, packedCollections, "pack" + element + "s", "unpack" + element + "s",
+                        CodeBlock.builder().add("$T.$N", packedCollections, kind).build());
+            }
+        }
+        kind = MAP_KINDS.get(name);
+        if (kind != null && typeArguments.size() == 2 && types.isSameType(typeArguments.get(0), stringType)) {
+            String element = getPackedElement(typeArguments.get(1));
+            if (element != null) {
+                return new ValueCodec("Serializable", null, packedCollections, "pack" + element + "Map", "unpack" + element + "Map",
+                        CodeBlock.builder().add("$T.$N", packedCollections, kind).build());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the bundle type of the array a collection of this element type is packed into, or {@code null} if it can't be packed.
+     */
+    private String getPackedElement(TypeMirror element) {
+        if (element.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        if (types.isSameType(element, stringType)) {
+            return "String";
+        }
+        TypeMirror primitive = unbox(element);
+        if (primitive == null) {
+            return null;
+        }
+        try {
+            return getPrimitiveType(primitive);
+        } catch (InvalidTypeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the code storing {@code value} of this type, converted by its codec if it has one.
+     */
+    public CodeBlock encode(TypeMirror type, CodeBlock value) {
+        ValueCodec codec = getCodec(type);
+        if (codec == null) {
+            return value;
+        }
+        return codec.encode(value);
+    }
+
+    /**
+     * @return the code putting {@code value} of this type in {@code bundle}. Boxed primitives go through {@link BoxedValues} to keep null.
+     */
+    public CodeBlock putBundleValue(TypeMirror type, String bundleType, CodeBlock bundle, CodeBlock key, CodeBlock value) {
+        if (isStoredBoxed(type)) {
+            return CodeBlock.builder().add("$T.put$L($L, $L, $L)", BoxedValues.class, bundleType, bundle, key, encode(type, value)).build();
+        }
+        return CodeBlock.builder().add("$L.put$L($L, $L)", bundle, bundleType, key, encode(type, value)).build();
+    }
+
+    /**
+     * @return the code putting {@code value} of this type in the extras of {@code intent}.
+     */
+    public CodeBlock putIntentExtra(TypeMirror type, String intentType, CodeBlock intent, CodeBlock key, CodeBlock value) {
+        if (isStoredBoxed(type)) {
+            return CodeBlock.builder().add("$T.put$LExtra($L, $L, $L)", BoxedValues.class, intentType, intent, key, encode(type, value)).build();
+        }
+        return CodeBlock.builder().add("$L.putExtra($L, $L)", intent, key, encode(type, value)).build();
+    }
+
+    private boolean isStoredBoxed(TypeMirror type) {
+        ValueCodec codec = getCodec(type);
+        if (codec != null) {
+            return codec.isBoxed();
+        }
+        return isBoxed(type);
+    }
+
+    public boolean isPocketParcel(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).asElement().getAnnotation(PocketParcel.class) != null;
+    }
+
+    /**
+     * @return the generated {@code Parcelable} wrapper of a {@code @PocketParcel} type.
+     */
+    public ClassName getParcelableWrapper(TypeMirror type) {
+        ClassName className = ClassName.get((TypeElement) ((DeclaredType) type).asElement());
+        return ClassName.get(className.packageName(), Joiner.on('$').join(className.simpleNames()) + PARCELABLE_SUFFIX);
+    }
+
+    public boolean isColumnar(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).asElement().getAnnotation(Columnar.class) != null;
+    }
+
+    /**
+     * @return the generated class packing collections of a {@code @Columnar} type.
+     */
+    public ClassName getColumnsClass(TypeMirror type) {
+        ClassName className = ClassName.get((TypeElement) ((DeclaredType) type).asElement());
+        return ClassName.get(className.packageName(), Joiner.on('$').join(className.simpleNames()) + COLUMNS_SUFFIX);
+    }
+
     private boolean isAggregateType(TypeMirror type) {
         return types.isAssignable(type, stringType) || types.isAssignable(type, charSequenceType) || types.isAssignable(type, parcelableType);
     }
@@ -307,7 +769,16 @@ public class TypeUtil {
     }
 
     public boolean needToCastBundleType(TypeMirror type) throws InvalidTypeException {
-        if (isPrimitive(type)) {
+        // Lazy values are stored as the type they wrap
+        if (isLazy(type)) {
+            return needToCastBundleType(getLazyType(type));
+        }
+
+        if (getCodec(type) != null) {
+            return false;
+        }
+
+        if (isPrimitive(type) || isBoxed(type)) {
             return false;
         }
 
@@ -339,7 +810,16 @@ public class TypeUtil {
     }
 
     public boolean needToCastIntentType(TypeMirror type) throws InvalidTypeException {
-        if (isPrimitive(type)) {
+        // Lazy values are stored as the type they wrap
+        if (isLazy(type)) {
+            return needToCastIntentType(getLazyType(type));
+        }
+
+        if (getCodec(type) != null) {
+            return false;
+        }
+
+        if (isPrimitive(type) || isBoxed(type)) {
             return false;
         }
 
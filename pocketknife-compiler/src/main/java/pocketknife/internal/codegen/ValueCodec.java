@@ -0,0 +1,94 @@
+package pocketknife.internal.codegen;
+
+import com.google.common.collect.ImmutableSet;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+
+import java.util.Set;
+
+/**
+ * Converts a value that can't be put in a {@link android.os.Bundle} as is to a type that can and back, by calling static {@code encode}
+ * and {@code decode} methods on a codec class.
+ */
+public class ValueCodec {
+
+    private static final Set<TypeName> BOXED = ImmutableSet.<TypeName>of(ClassName.get(Boolean.class), ClassName.get(Byte.class),
+            ClassName.get(Character.class), ClassName.get(Short.class), ClassName.get(Integer.class), ClassName.get(Long.class),
+            ClassName.get(Float.class), ClassName.get(Double.class));
+
+    private final String bundleType;
+    private final TypeName storedType;
+    private final TypeName codec;
+    private final String encode;
+    private final String decode;
+    private final CodeBlock decodeArgument;
+
+    public ValueCodec(String bundleType, TypeName codec, String encode, String decode) {
+        this(bundleType, null, codec, encode, decode, null);
+    }
+
+    /**
+     * @param storedType     type the stored value is cast to before decoding, or {@code null} if {@code decode} takes an {@link Object}.
+     * @param decodeArgument second argument passed to {@code decode}, or {@code null} for none.
+     */
+    public ValueCodec(String bundleType, TypeName storedType, TypeName codec, String encode, String decode, CodeBlock decodeArgument) {
+        this.bundleType = bundleType;
+        this.storedType = storedType;
+        this.codec = codec;
+        this.encode = encode;
+        this.decode = decode;
+        this.decodeArgument = decodeArgument;
+    }
+
+    /**
+     * @return the bundle type the value is stored as.
+     */
+    public String getBundleType() {
+        return bundleType;
+    }
+
+    /**
+     * @return the type the stored value is cast to before decoding, or {@code null} if {@code decode} takes an {@link Object}.
+     */
+    public TypeName getStoredType() {
+        return storedType;
+    }
+
+    /**
+     * @return true if the stored value is a boxed primitive, which is put through {@link pocketknife.internal.BoxedValues}.
+     */
+    public boolean isBoxed() {
+        return BOXED.contains(storedType);
+    }
+
+    /**
+     * @return the code converting {@code value} to the stored type.
+     */
+    public CodeBlock encode(CodeBlock value) {
+        return CodeBlock.builder().add("$T.$N($L)", codec, encode, value).build();
+    }
+
+    /**
+     * @return the code converting the stored {@code value} back.
+     */
+    public CodeBlock decode(CodeBlock value) {
+        return decode(value, true);
+    }
+
+    /**
+     * @param cast false if {@code value} already is of the stored type.
+     * @return the code converting the stored {@code value} back.
+     */
+    public CodeBlock decode(CodeBlock value, boolean cast) {
+        CodeBlock.Builder builder = CodeBlock.builder().add("$T.$N(", codec, decode);
+        if (storedType != null && cast) {
+            builder.add("($T) ", storedType);
+        }
+        builder.add("$L", value);
+        if (decodeArgument != null) {
+            builder.add(", $L", decodeArgument);
+        }
+        return builder.add(")").build();
+    }
+}
@@ -0,0 +1,91 @@
+package pocketknife.internal.codegen;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import pocketknife.internal.BoxedValues;
+
+/**
+ * A bundle or an intent that generated code reads values from with the typed getters. Intent extras are read through the intent itself,
+ * since {@link android.content.Intent#getExtras()} copies them. The typed getters log a value of another type and return the default
+ * instead of throwing.
+ */
+public final class ValueSource {
+
+    private final String name;
+    private final boolean intent;
+
+    private ValueSource(String name, boolean intent) {
+        this.name = name;
+        this.intent = intent;
+    }
+
+    /**
+     * @param name name of the {@link android.os.Bundle} variable.
+     */
+    public static ValueSource bundle(String name) {
+        return new ValueSource(name, false);
+    }
+
+    /**
+     * @param name name of the {@link android.content.Intent} variable.
+     */
+    public static ValueSource intent(String name) {
+        return new ValueSource(name, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isIntent() {
+        return intent;
+    }
+
+    /**
+     * @return the code telling whether there is a value under {@code key}.
+     */
+    public CodeBlock contains(CodeBlock key) {
+        if (intent) {
+            return CodeBlock.builder().add("$N.hasExtra($L)", name, key).build();
+        }
+        return CodeBlock.builder().add("$N.containsKey($L)", name, key).build();
+    }
+
+    /**
+     * @return the code getting the value under {@code key} whatever its type, or {@code null} if it is missing. Intent extras go through
+     * {@link android.content.Intent#getSerializableExtra(String)}, which does not copy them and returns boxed primitives as they are.
+     */
+    public CodeBlock get(CodeBlock key) {
+        if (intent) {
+            return CodeBlock.builder().add("$N.getSerializableExtra($L)", name, key).build();
+        }
+        return CodeBlock.builder().add("$N.get($L)", name, key).build();
+    }
+
+    /**
+     * @return the code getting the value of a bundle type under {@code key}, or {@code null} if it is missing.
+     */
+    public CodeBlock get(String bundleType, CodeBlock key) {
+        return CodeBlock.builder().add("$N.$N($L)", name, getGetter(bundleType), key).build();
+    }
+
+    /**
+     * @return the name of the typed getter of a bundle type.
+     */
+    public String getGetter(String bundleType) {
+        if (intent) {
+            return "get" + bundleType + "Extra";
+        }
+        return "get" + bundleType;
+    }
+
+    /**
+     * @return the code getting a boxed primitive put through {@link BoxedValues}, which may be null.
+     */
+    public CodeBlock getBoxed(TypeName boxedType, CodeBlock key) {
+        if (intent) {
+            return CodeBlock.builder().add("$T.getExtra($N, $L, $T.class)", BoxedValues.class, name, key, boxedType).build();
+        }
+        return CodeBlock.builder().add("$T.get($N, $L, $T.class)", BoxedValues.class, name, key, boxedType).build();
+    }
+}
@@ -11,6 +11,7 @@ import pocketknife.internal.codegen.MethodBinding;
 import pocketknife.internal.codegen.TypeUtil;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -21,6 +22,8 @@ import static javax.lang.model.element.Modifier.PUBLIC;
 import static javax.lang.model.element.Modifier.STATIC;
 
 public class BuilderGenerator extends BaseGenerator {
+    private static final String PROTOTYPE_SUFFIX = "Prototype";
+
     private final String classPackage;
     private final String className;
     private final String interfaceName;
@@ -72,6 +75,19 @@ public class BuilderGenerator extends BaseGenerator {
     }
 
     private void generateMethods(TypeSpec.Builder classBuilder) {
+        Set<String> prototypeNames = new HashSet<String>();
+        for (MethodBinding method : methods) {
+            if (method instanceof IntentMethodBinding && ((IntentMethodBinding) method).hasConstantParts()) {
+                IntentMethodBinding intentMethod = (IntentMethodBinding) method;
+                // Overloaded methods each get their own prototype
+                String prototypeName = intentMethod.getName() + PROTOTYPE_SUFFIX;
+                for (int count = 1; !prototypeNames.add(prototypeName); count++) {
+                    prototypeName = intentMethod.getName() + PROTOTYPE_SUFFIX + count;
+                }
+                intentMethod.setPrototypeName(prototypeName);
+                classBuilder.addField(intentMethod.generatePrototypeField(typeUtil));
+            }
+        }
         for (MethodBinding method : methods) {
             classBuilder.addMethod(method.generateMethodSpec(typeUtil));
         }
@@ -3,6 +3,8 @@ package pocketknife.internal.codegen.builder;
 import pocketknife.BundleBuilder;
 import pocketknife.Data;
 import pocketknife.FragmentBuilder;
+import pocketknife.Handoff;
+import pocketknife.InjectExtra;
 import pocketknife.IntentBuilder;
 import pocketknife.Key;
 import pocketknife.internal.codegen.BaseProcessor;
@@ -18,6 +20,7 @@ import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVariable;
 import javax.lang.model.util.Elements;
@@ -28,6 +31,7 @@ import java.lang.annotation.Annotation;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import static javax.lang.model.element.ElementKind.FIELD;
 import static javax.lang.model.element.ElementKind.INTERFACE;
 import static javax.lang.model.element.ElementKind.METHOD;
 import static javax.lang.model.element.Modifier.PRIVATE;
@@ -148,10 +152,19 @@ public class BuilderProcessor extends BaseProcessor {
             type = ((TypeVariable) type).getUpperBound();
         }
 
+        // Lazy is only supported for injected fields
+        if (typeUtil.isLazy(type)) {
+            throw new InvalidTypeException(InvalidTypeException.Container.BUNDLE, type);
+        }
+
         String name = element.getSimpleName().toString();
-        String bundleType = typeUtil.getBundleType(type);
+        TypeMirror converter = typeUtil.getConverter(element);
+        String bundleType = null;
+        if (converter == null) {
+            bundleType = typeUtil.getBundleType(type);
+        }
         String key = getKey(element, ARG_KEY_PREFIX);
-        return new BundleFieldBinding(name, type, bundleType, key);
+        return new BundleFieldBinding(name, type, bundleType, key, converter);
     }
 
     private void processIntentBuilder(Map<TypeElement, BuilderGenerator> targetMap, RoundEnvironment roundEnv) {
@@ -173,9 +186,10 @@ public class BuilderProcessor extends BaseProcessor {
                 validateBindingPackage(IntentBuilder.class, element);
 
                 IntentMethodBinding methodBinding = getIntentMethodBinding(executableElement);
+                validateHandoffs(methodBinding, getIntentBuilderClsValue(executableElement));
                 BuilderGenerator generator = getOrCreateTargetClass(targetMap, enclosingElement);
                 generator.addMethod(methodBinding);
-            } catch (InvalidTypeException e) {
+            } catch (Exception e) {
                 StringWriter stackTrace = new StringWriter();
                 e.printStackTrace(new PrintWriter(stackTrace));
                 error(element, "Unable to generate @%s.\n\n%s", IntentBuilder.class.getSimpleName(), stackTrace.toString());
@@ -192,6 +206,63 @@ public class BuilderProcessor extends BaseProcessor {
         }
     }
 
+    /**
+     * A {@link Handoff} extra is only handed over if the injected field reads it as one, so each parameter must agree with the
+     * {@link InjectExtra} field of the started class that has its key.
+     */
+    private void validateHandoffs(IntentMethodBinding binding, TypeMirror cls) {
+        Map<String, Element> injectedFields = null;
+        if (cls != null) {
+            injectedFields = getInjectedExtras(cls);
+        }
+        for (IntentFieldBinding field : binding.getFields()) {
+            String key = field.getKey().getValue();
+            if (injectedFields == null) {
+                if (field.isHandoff()) {
+                    throw new IllegalStateException(String.format("@Handoff parameter '%s' needs @IntentBuilder(cls = ...) to be paired with an injected"
+                            + " field", field.getName()));
+                }
+                continue;
+            }
+            Element injected = injectedFields.get(key);
+            if (injected == null) {
+                if (field.isHandoff()) {
+                    throw new IllegalStateException(String.format("@Handoff parameter '%s' has no @InjectExtra field with key '%s' in %s",
+                            field.getName(), key, cls));
+                }
+            } else if (field.isHandoff() != (injected.getAnnotation(Handoff.class) != null)) {
+                throw new IllegalStateException(String.format("Parameter '%s' and field %s.%s with key '%s' must both be @Handoff or neither",
+                        field.getName(), injected.getEnclosingElement(), injected.getSimpleName(), key));
+            }
+        }
+    }
+
+    /**
+     * @return the {@link InjectExtra} fields of {@code cls} and its superclasses by key.
+     */
+    private Map<String, Element> getInjectedExtras(TypeMirror cls) {
+        Map<String, Element> fields = new LinkedHashMap<String, Element>();
+        TypeMirror type = cls;
+        while (type.getKind() == TypeKind.DECLARED) {
+            TypeElement typeElement = (TypeElement) types.asElement(type);
+            for (Element element : typeElement.getEnclosedElements()) {
+                if (element.getKind() == FIELD && element.getAnnotation(InjectExtra.class) != null) {
+                    String key;
+                    if (isDefaultAnnotationElement(element, InjectExtra.class.getName(), "value")) {
+                        key = generateKey(IntentFieldBinding.KEY_PREFIX, element.getSimpleName().toString());
+                    } else {
+                        key = element.getAnnotation(InjectExtra.class).value();
+                    }
+                    if (!fields.containsKey(key)) {
+                        fields.put(key, element);
+                    }
+                }
+            }
+            type = typeElement.getSuperclass();
+        }
+        return fields;
+    }
+
     private TypeMirror getIntentBuilderClsValue(Element element) {
         for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
             if (IntentBuilder.class.getName().equals(annotationMirror.getAnnotationType().toString())) {
@@ -264,11 +335,25 @@ public class BuilderProcessor extends BaseProcessor {
             type = ((TypeVariable) type).getUpperBound();
         }
 
+        // Lazy is only supported for injected fields
+        if (typeUtil.isLazy(type)) {
+            throw new InvalidTypeException(InvalidTypeException.Container.INTENT, type);
+        }
+
         String name = element.getSimpleName().toString();
-        String intentType = typeUtil.getIntentType(type);
-        boolean arrayList = isIntentArrayList(intentType);
+        TypeMirror converter = typeUtil.getConverter(element);
+        String intentType = null;
+        boolean arrayList = false;
+        if (converter == null) {
+            intentType = typeUtil.getIntentType(type);
+            arrayList = isIntentArrayList(intentType);
+        }
+        boolean handoff = element.getAnnotation(Handoff.class) != null;
+        if (handoff && converter != null) {
+            throw new IllegalStateException("@Handoff can't be used with a @BundleConverter");
+        }
         String key = getKey(element, EXTRA_KEY_PREFIX);
-        return new IntentFieldBinding(name, type, intentType, key, arrayList);
+        return new IntentFieldBinding(name, type, intentType, key, converter, handoff, arrayList);
     }
 
     private boolean isIntentArrayList(String intentType) {
@@ -330,7 +415,7 @@ public class BuilderProcessor extends BaseProcessor {
     private String getKey(Element element, String keyPrefix) {
         Key key = element.getAnnotation(Key.class);
         if (key != null) {
-            return key.value();
+            return explicitKey(key.value());
         }
         return generateKey(keyPrefix, element.getSimpleName().toString());
     }
@@ -1,6 +1,7 @@
 package pocketknife.internal.codegen.builder;
 
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.MethodSpec;
 import pocketknife.internal.codegen.BundleFieldBinding;
 import pocketknife.internal.codegen.KeySpec;
@@ -54,8 +55,14 @@ public class BundleMethodBinding extends MethodBinding {
 
         for (BundleFieldBinding fieldBinding : fields) {
             methodBuilder.addParameter(ClassName.get(fieldBinding.getType()), fieldBinding.getName());
-            methodBuilder.addStatement("$N.put$L($N, $N)", returnVarName, fieldBinding.getBundleType(), fieldBinding.getKey().getName(),
-                    fieldBinding.getName());
+            CodeBlock bundle = CodeBlock.builder().add("$N", returnVarName).build();
+            CodeBlock key = CodeBlock.builder().add("$N", fieldBinding.getKey().getName()).build();
+            CodeBlock value = CodeBlock.builder().add("$N", fieldBinding.getName()).build();
+            if (fieldBinding.getConverter() != null) {
+                methodBuilder.addStatement("$L", typeUtil.writeWithConverter(fieldBinding.getConverter(), bundle, key, value));
+            } else {
+                methodBuilder.addStatement("$L", typeUtil.putBundleValue(fieldBinding.getType(), fieldBinding.getBundleType(), bundle, key, value));
+            }
         }
 
         methodBuilder.addStatement("return $N", returnVarName);
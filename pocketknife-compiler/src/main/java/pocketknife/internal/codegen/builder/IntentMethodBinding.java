@@ -1,8 +1,11 @@
 package pocketknife.internal.codegen.builder;
 
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import org.apache.commons.lang3.StringUtils;
+import pocketknife.internal.Handoffs;
 import pocketknife.internal.codegen.IntentFieldBinding;
 import pocketknife.internal.codegen.KeySpec;
 import pocketknife.internal.codegen.MethodBinding;
@@ -14,11 +17,16 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.VOLATILE;
 
 public class IntentMethodBinding extends MethodBinding {
 
     private static final String RETURN_VAR_NAME_ROOT = "intent";
+    private static final String EXTRAS_VAR_NAME_ROOT = "extras";
+    private static final String PROTOTYPE_VAR_NAME_ROOT = "prototype";
 
     private final String name;
     private final TypeMirror className;
@@ -30,6 +38,7 @@ public class IntentMethodBinding extends MethodBinding {
     private final boolean dataParamIsString;
 
     private final List<IntentFieldBinding> fields = new ArrayList<IntentFieldBinding>();
+    private String prototypeName;
 
     public IntentMethodBinding(String name, TypeMirror className, String action, String dataParam, Integer flags, String[] categories, String type,
                                boolean dataParamIsString) {
@@ -59,6 +68,31 @@ public class IntentMethodBinding extends MethodBinding {
         return keys;
     }
 
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if the intent has parts that are the same on every call, which are then set once on a prototype.
+     */
+    public boolean hasConstantParts() {
+        return action != null || className != null || flags != null || categories.length > 0 || type != null && dataParam == null;
+    }
+
+    /**
+     * Set the name of the static field holding the prototype of the intent, see {@link #generatePrototypeField}.
+     */
+    public void setPrototypeName(String prototypeName) {
+        this.prototypeName = prototypeName;
+    }
+
+    /**
+     * The prototype is created on the first call, because the component needs the context. It is never modified afterwards.
+     */
+    public FieldSpec generatePrototypeField(TypeUtil typeUtil) {
+        return FieldSpec.builder(ClassName.get(typeUtil.intentType), prototypeName, PRIVATE, STATIC, VOLATILE).build();
+    }
+
     @Override
     public MethodSpec generateMethodSpec(TypeUtil typeUtil) {
         String returnVarName = getReturnVarName(RETURN_VAR_NAME_ROOT);
@@ -66,20 +100,48 @@ public class IntentMethodBinding extends MethodBinding {
         MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(name)
                 .addAnnotation(Override.class)
                 .addModifiers(PUBLIC)
-                .returns(ClassName.get(typeUtil.intentType))
-                .addStatement("$T $N = new $T()", ClassName.get(typeUtil.intentType), returnVarName, ClassName.get(typeUtil.intentType));
-        if (action != null) {
-            methodBuilder.addStatement("$N.setAction($S)", returnVarName, action);
-        }
-        addDataAndOrType(methodBuilder, returnVarName, typeUtil);
-        if (className != null) {
-            methodBuilder.addStatement("$N.setClass(this.context, $T.class)", returnVarName, ClassName.get(className));
-        }
-        if (flags != null) {
-            methodBuilder.addStatement("$N.setFlags($L)", returnVarName, flags);
+                .returns(ClassName.get(typeUtil.intentType));
+        if (prototypeName != null) {
+            // The action, component, flags, categories and a type without data are the same on every call, only copy them
+            String prototypeVarName = getReturnVarName(PROTOTYPE_VAR_NAME_ROOT);
+            methodBuilder.addStatement("$T $N = $N", ClassName.get(typeUtil.intentType), prototypeVarName, prototypeName);
+            methodBuilder.beginControlFlow("if ($N == null)", prototypeVarName);
+            methodBuilder.addStatement("$N = new $T()", prototypeVarName, ClassName.get(typeUtil.intentType));
+            if (action != null) {
+                methodBuilder.addStatement("$N.setAction($S)", prototypeVarName, action);
+            }
+            if (dataParam == null) {
+                addDataAndOrType(methodBuilder, prototypeVarName, typeUtil);
+            }
+            if (className != null) {
+                methodBuilder.addStatement("$N.setClass(this.context, $T.class)", prototypeVarName, ClassName.get(className));
+            }
+            if (flags != null) {
+                methodBuilder.addStatement("$N.setFlags($L)", prototypeVarName, flags);
+            }
+            for (String category : categories) {
+                methodBuilder.addStatement("$N.addCategory($S)", prototypeVarName, category);
+            }
+            methodBuilder.addStatement("$N = $N", prototypeName, prototypeVarName);
+            methodBuilder.endControlFlow();
+            methodBuilder.addStatement("$T $N = new $T($N)", ClassName.get(typeUtil.intentType), returnVarName, ClassName.get(typeUtil.intentType),
+                    prototypeVarName);
+            if (dataParam != null) {
+                addDataAndOrType(methodBuilder, returnVarName, typeUtil);
+            }
+        } else {
+            methodBuilder.addStatement("$T $N = new $T()", ClassName.get(typeUtil.intentType), returnVarName, ClassName.get(typeUtil.intentType));
+            addDataAndOrType(methodBuilder, returnVarName, typeUtil);
         }
-        for (String category : categories) {
-            methodBuilder.addStatement("$N.addCategory($S)", returnVarName, category);
+
+        // Converters write to a bundle, which is added to the extras once every field is written
+        String extrasVarName = null;
+        for (IntentFieldBinding fieldBinding : fields) {
+            if (fieldBinding.getConverter() != null) {
+                extrasVarName = getReturnVarName(EXTRAS_VAR_NAME_ROOT);
+                methodBuilder.addStatement("$T $N = new $T()", ClassName.get(typeUtil.bundleType), extrasVarName, ClassName.get(typeUtil.bundleType));
+                break;
+            }
         }
 
         for (IntentFieldBinding fieldBinding : fields) {
@@ -87,14 +149,26 @@ public class IntentMethodBinding extends MethodBinding {
             if (StringUtils.equals(fieldBinding.getName(), dataParam)) {
                 continue;  // Data is handled previously
             }
-            if (fieldBinding.isArrayList()) {
+            if (fieldBinding.isHandoff()) {
+                methodBuilder.addStatement("$T.put($N, $N, $L)", Handoffs.class, returnVarName, fieldBinding.getKey().getName(),
+                        typeUtil.encode(fieldBinding.getType(), CodeBlock.builder().add("$N", fieldBinding.getName()).build()));
+            } else if (fieldBinding.getConverter() != null) {
+                methodBuilder.addStatement("$L", typeUtil.writeWithConverter(fieldBinding.getConverter(), CodeBlock.builder().add("$N", extrasVarName).build(),
+                        CodeBlock.builder().add("$N", fieldBinding.getKey().getName()).build(), CodeBlock.builder().add("$N", fieldBinding.getName()).build()));
+            } else if (fieldBinding.isArrayList()) {
                 methodBuilder.addStatement("$N.put$LExtra($N, $N)", returnVarName, fieldBinding.getIntentType(), fieldBinding.getKey().getName(),
                         fieldBinding.getName());
             } else {
-                methodBuilder.addStatement("$N.putExtra($N, $N)", returnVarName, fieldBinding.getKey().getName(), fieldBinding.getName());
+                methodBuilder.addStatement("$L", typeUtil.putIntentExtra(fieldBinding.getType(), fieldBinding.getIntentType(),
+                        CodeBlock.builder().add("$N", returnVarName).build(), CodeBlock.builder().add("$N", fieldBinding.getKey().getName()).build(),
+                        CodeBlock.builder().add("$N", fieldBinding.getName()).build()));
             }
         }
 
+        if (extrasVarName != null) {
+            methodBuilder.addStatement("$N.putExtras($N)", returnVarName, extrasVarName);
+        }
+
         methodBuilder.addStatement("return $N", returnVarName);
 
         return methodBuilder.build();
@@ -0,0 +1,127 @@
+package pocketknife.internal.codegen.injection;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+import pocketknife.internal.AdapterIndex;
+import pocketknife.internal.AdapterIndexes;
+import pocketknife.internal.BundleBinding;
+import pocketknife.internal.IntentBinding;
+import pocketknife.internal.codegen.BaseGenerator;
+import pocketknife.internal.codegen.TypeUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static pocketknife.internal.GeneratedAdapters.INSTANCE_FIELD;
+
+public class AdapterIndexGenerator extends BaseGenerator {
+
+    public static final String INSTALL_METHOD = "install";
+
+    private static final String CLASS_NAME = "className";
+
+    private final String classPackage;
+    private final String className;
+    private final Map<String, ClassName> bundleAdapters = new LinkedHashMap<String, ClassName>();
+    private final Map<String, ClassName> intentAdapters = new LinkedHashMap<String, ClassName>();
+
+    public AdapterIndexGenerator(String index, TypeUtil typeUtil) {
+        super(typeUtil);
+        int lastDot = index.lastIndexOf('.');
+        if (lastDot < 0) {
+            this.classPackage = "";
+        } else {
+            this.classPackage = index.substring(0, lastDot);
+        }
+        this.className = index.substring(lastDot + 1);
+    }
+
+    public void addBundleAdapter(String targetName, ClassName adapter) {
+        bundleAdapters.put(targetName, adapter);
+    }
+
+    public void addIntentAdapter(String targetName, ClassName adapter) {
+        intentAdapters.put(targetName, adapter);
+    }
+
+    public boolean isEmpty() {
+        return bundleAdapters.isEmpty() && intentAdapters.isEmpty();
+    }
+
+    public JavaFile generate() {
+        TypeSpec.Builder classBuilder = TypeSpec.classBuilder(className)
+                .addSuperinterface(ClassName.get(AdapterIndex.class))
+                .addModifiers(PUBLIC, FINAL)
+                .addAnnotation(getGeneratedAnnotationSpec(AdapterIndexGenerator.class));
+
+        // Installed through the index itself, so the app never refers to the internal AdapterIndex type
+        ClassName index = ClassName.get(classPackage, className);
+        classBuilder.addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(PRIVATE)
+                .build());
+        classBuilder.addMethod(MethodSpec.methodBuilder(INSTALL_METHOD)
+                .addJavadoc("Look up the adapters of the indexed classes in this index, call once before any injection.\n")
+                .addModifiers(PUBLIC, STATIC)
+                .addStatement("$T.add(new $T())", AdapterIndexes.class, index)
+                .build());
+        classBuilder.addMethod(generateLookupMethod("getBundleBinding", BundleBinding.class, bundleAdapters));
+        classBuilder.addMethod(generateLookupMethod("getIntentBinding", IntentBinding.class, intentAdapters));
+
+        return JavaFile.builder(classPackage, classBuilder.build()).build();
+    }
+
+    /**
+     * Switch on the precomputed hash of the class name the same way javac compiles a switch on a String,
+     * so a lookup neither allocates nor loads any class other than the adapter it returns.
+     */
+    private MethodSpec generateLookupMethod(String name, Class<?> binding, Map<String, ClassName> adapters) {
+        TypeName returnType = ParameterizedTypeName.get(ClassName.get(binding), WildcardTypeName.subtypeOf(Object.class));
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(name)
+                .addAnnotation(Override.class)
+                .addModifiers(PUBLIC)
+                .returns(returnType)
+                .addParameter(String.class, CLASS_NAME);
+
+        Map<Integer, List<String>> buckets = new TreeMap<Integer, List<String>>();
+        for (String targetName : adapters.keySet()) {
+            List<String> bucket = buckets.get(targetName.hashCode());
+            if (bucket == null) {
+                bucket = new ArrayList<String>();
+                buckets.put(targetName.hashCode(), bucket);
+            }
+            bucket.add(targetName);
+        }
+
+        if (!buckets.isEmpty()) {
+            methodBuilder.beginControlFlow("switch ($N.hashCode())", CLASS_NAME);
+            for (Map.Entry<Integer, List<String>> bucket : buckets.entrySet()) {
+                methodBuilder.addCode("case $L:\n$>", bucket.getKey());
+                for (String targetName : bucket.getValue()) {
+                    methodBuilder.beginControlFlow("if ($S.equals($N))", targetName, CLASS_NAME)
+                            .addStatement("return $T.$N", adapters.get(targetName), INSTANCE_FIELD)
+                            .endControlFlow();
+                }
+                methodBuilder.addStatement("break")
+                        .addCode("$<");
+            }
+            methodBuilder.addCode("default:\n$>")
+                    .addStatement("break")
+                    .addCode("$<")
+                    .endControlFlow();
+        }
+        methodBuilder.addStatement("return null");
+        return methodBuilder.build();
+    }
+}
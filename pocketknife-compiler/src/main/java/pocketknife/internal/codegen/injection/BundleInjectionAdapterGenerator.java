@@ -1,25 +1,43 @@
 package pocketknife.internal.codegen.injection;
 
+import com.google.common.collect.ImmutableMap;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
 import pocketknife.internal.BundleBinding;
+import pocketknife.internal.CompactStateReader;
+import pocketknife.internal.CompactStateWriter;
+import pocketknife.internal.Consumed;
+import pocketknife.internal.LazyBundleValue;
+import pocketknife.internal.RetainedState;
+import pocketknife.internal.SavedFields;
+import pocketknife.internal.SpilledState;
 import pocketknife.internal.codegen.BaseGenerator;
 import pocketknife.internal.codegen.BundleFieldBinding;
 import pocketknife.internal.codegen.TypeUtil;
+import pocketknife.internal.codegen.ValueCodec;
+import pocketknife.internal.codegen.ValueSource;
 
 import javax.lang.model.type.TypeMirror;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static pocketknife.internal.GeneratedAdapters.INSTANCE_FIELD;
 import static pocketknife.internal.codegen.BundleFieldBinding.AnnotationType.ARGUMENT;
 import static pocketknife.internal.codegen.BundleFieldBinding.AnnotationType.SAVE_STATE;
 
@@ -28,32 +46,240 @@ public final class BundleInjectionAdapterGenerator extends BaseGenerator {
     public static final String SAVE_METHOD = "saveInstanceState";
     public static final String RESTORE_METHOD = "restoreInstanceState";
     public static final String INJECT_ARGUMENTS_METHOD = "injectArguments";
+    public static final String SAVE_ALL_METHOD = "saveAll";
+    public static final String RESTORE_ALL_METHOD = "restoreAll";
 
     private static final String BUNDLE = "bundle";
     private static final String TARGET = "target";
+    private static final String STATE = "state";
+    private static final String STATE_BUNDLE = "stateBundle";
+    private static final String RETAINED = "retained";
+    private static final String TARGETS = "targets";
+    private static final String SIZE = "size";
+    private static final String INDEX = "i";
+    private static final String ITEMS = "items";
+    private static final String ITEM = "item";
+    private static final String COLUMN_SUFFIX = "Column";
+    private static final String PARCELABLE = "Parcelable";
+    private static final String NULLS_SUFFIX = "Nulls";
+    private static final String NULLS_KEY_SUFFIX = ":nulls";
+
+    // Types of the values in a column of primitive or boxed values, by bundle type
+    private static final Map<String, TypeName> PRIMITIVE_COLUMNS = ImmutableMap.<String, TypeName>builder()
+            .put("Boolean", TypeName.BOOLEAN)
+            .put("Byte", TypeName.BYTE)
+            .put("Char", TypeName.CHAR)
+            .put("Short", TypeName.SHORT)
+            .put("Int", TypeName.INT)
+            .put("Long", TypeName.LONG)
+            .put("Float", TypeName.FLOAT)
+            .put("Double", TypeName.DOUBLE)
+            .build();
+
+    // Bytes taken by each type packed in compact state, strings are assumed to be short
+    private static final Map<String, Integer> COMPACT_SIZES = ImmutableMap.<String, Integer>builder()
+            .put("Boolean", 1)
+            .put("Byte", 1)
+            .put("Char", 2)
+            .put("Short", 2)
+            .put("Int", 4)
+            .put("Long", 8)
+            .put("Float", 4)
+            .put("Double", 8)
+            .put("String", 4 + 2 * 16)
+            .build();
 
     private final Set<BundleFieldBinding> fields = new LinkedHashSet<BundleFieldBinding>();
+    private final List<BundleFieldBinding> inheritedFields = new ArrayList<BundleFieldBinding>();
     private final String classPackage;
     private final String className;
     private final TypeMirror targetType;
+    private final ClassName injector;
     private boolean required = false;
-    private ClassName parentAdapter;
+    private String compactStateKey;
+    private String nestedStateKey;
+    private String retainedStateKey;
+    private String itemsKey;
+    private boolean trackChanges = false;
+    private ClassName parentInjector;
 
-    public BundleInjectionAdapterGenerator(String classPackage, String className, TypeMirror targetType, TypeUtil typeUtil) {
+    public BundleInjectionAdapterGenerator(String classPackage, String className, TypeMirror targetType, ClassName injector, TypeUtil typeUtil) {
         super(typeUtil);
         this.classPackage = classPackage;
         this.className = className;
         this.targetType = targetType;
+        this.injector = injector;
     }
 
     public void addField(BundleFieldBinding binding) {
         fields.add(binding);
     }
 
+    /**
+     * Inline the fields of an ancestor. Ancestors must be added starting from the top of the hierarchy.
+     */
+    public void addInheritedFields(BundleInjectionAdapterGenerator ancestor) {
+        inheritedFields.addAll(ancestor.fields);
+        required |= ancestor.required;
+    }
+
+    private List<BundleFieldBinding> getAllFields() {
+        List<BundleFieldBinding> allFields = new ArrayList<BundleFieldBinding>(inheritedFields);
+        allFields.addAll(fields);
+        return allFields;
+    }
+
+    private List<BundleFieldBinding> getFields(BundleFieldBinding.AnnotationType annotationType) {
+        List<BundleFieldBinding> annotatedFields = new ArrayList<BundleFieldBinding>();
+        for (BundleFieldBinding field : getAllFields()) {
+            if (annotationType == field.getAnnotationType()) {
+                annotatedFields.add(field);
+            }
+        }
+        return annotatedFields;
+    }
+
+    /**
+     * Pack the primitive and String fields saved by this adapter into a single {@code byte[]} under {@code key}, see
+     * {@link pocketknife.CompactState}.
+     */
+    public void setCompactStateKey(String key) {
+        this.compactStateKey = key;
+    }
+
+    /**
+     * Save the fields of this adapter into a bundle of their own, nested in the saved state under {@code key}.
+     */
+    public void setNestedStateKey(String key) {
+        this.nestedStateKey = key;
+    }
+
+    /**
+     * Keep the values of retained fields in memory under a token saved in the bundle under {@code key}, see
+     * {@link pocketknife.SaveState#retain()}.
+     */
+    public void setRetainedStateKey(String key) {
+        this.retainedStateKey = key;
+    }
+
+    /**
+     * Save the fields of a batch of targets that can't be stored in a column into a bundle per target, all of them under {@code key},
+     * see {@link pocketknife.PocketKnife#saveAll}.
+     */
+    public void setItemsKey(String key) {
+        this.itemsKey = key;
+    }
+
+    /**
+     * Count the saved fields that are written, see {@link pocketknife.TrackChanges}.
+     */
+    public void setTrackChanges(boolean trackChanges) {
+        this.trackChanges = trackChanges;
+    }
+
+    private boolean isCompact(BundleFieldBinding field) {
+        if (compactStateKey == null || SAVE_STATE != field.getAnnotationType() || field.getConverter() != null || field.isSpill()
+                || field.isRetain()) {
+            return false;
+        }
+        TypeMirror type = field.getType();
+        return typeUtil.isPrimitive(type) || typeUtil.isSameType(type, typeUtil.stringType);
+    }
+
+    /**
+     * @return true if the values of the field in a batch of targets are saved together in a single array.
+     */
+    private boolean isColumn(BundleFieldBinding field) {
+        return getColumnType(field) != null;
+    }
+
+    /**
+     * @return the type of the values in the column of the field, or {@code null} if the field is saved in a bundle per target. Boxed values
+     * are stored in a primitive array with a mask of the null values, Parcelables and Bundles in a {@code Parcelable[]}. Values with a codec
+     * are stored encoded.
+     */
+    private TypeName getColumnType(BundleFieldBinding field) {
+        TypeMirror type = field.getType();
+        if (field.getConverter() != null || field.isSpill() || typeUtil.isLazy(type)) {
+            return null;
+        }
+        String bundleType = field.getBundleType();
+        if (PRIMITIVE_COLUMNS.containsKey(bundleType)) {
+            return PRIMITIVE_COLUMNS.get(bundleType);
+        }
+        if ("String".equals(bundleType)) {
+            return ClassName.get(String.class);
+        }
+        if ((PARCELABLE.equals(bundleType) || "Bundle".equals(bundleType))
+                && (typeUtil.getCodec(type) != null || !(TypeName.get(type) instanceof ParameterizedTypeName))) {
+            return ClassName.get(typeUtil.parcelableType);
+        }
+        return null;
+    }
+
+    /**
+     * @return the bundle type of the array holding the column of the field.
+     */
+    private String getColumnBundleType(BundleFieldBinding field) {
+        if (PRIMITIVE_COLUMNS.containsKey(field.getBundleType()) || "String".equals(field.getBundleType())) {
+            return field.getBundleType();
+        }
+        return PARCELABLE;
+    }
+
+    /**
+     * @return true if the column of the field holds boxed values, which are saved with a mask of the null values.
+     */
+    private boolean hasNullMask(BundleFieldBinding field) {
+        return !typeUtil.isPrimitive(field.getType()) && PRIMITIVE_COLUMNS.containsKey(field.getBundleType());
+    }
+
+    /**
+     * @return the names of the saved fields that are not saved in a column, which are saved in a bundle per target of a batch.
+     */
+    public List<String> getItemFieldNames() {
+        List<String> names = new ArrayList<String>();
+        for (BundleFieldBinding field : getFields(SAVE_STATE)) {
+            if (!isColumn(field)) {
+                names.add(field.getName());
+            }
+        }
+        return names;
+    }
+
+    private List<BundleFieldBinding> getCompactFields() {
+        List<BundleFieldBinding> compactFields = new ArrayList<BundleFieldBinding>();
+        for (BundleFieldBinding field : getFields(SAVE_STATE)) {
+            if (isCompact(field)) {
+                compactFields.add(field);
+            }
+        }
+        return compactFields;
+    }
+
+    /**
+     * Changing the name, type or order of a compact field changes the hash, so state saved before the change is not misread.
+     */
+    private int getCompactSchemaHash(List<BundleFieldBinding> compactFields) {
+        StringBuilder schema = new StringBuilder();
+        for (BundleFieldBinding field : compactFields) {
+            schema.append(field.getType()).append(' ').append(field.getName()).append(';');
+        }
+        return schema.toString().hashCode();
+    }
+
     public void orRequired(boolean required) {
         this.required |= required;
     }
 
+    public ClassName getAdapterClassName() {
+        return ClassName.get(classPackage, className);
+    }
+
+    public ClassName getInjectorClassName() {
+        return injector;
+    }
+
     public JavaFile generate() throws IOException {
         TypeVariableName t = TypeVariableName.get("T");
         TypeSpec.Builder classBuilder = TypeSpec.classBuilder(className)
@@ -61,88 +287,392 @@ public final class BundleInjectionAdapterGenerator extends BaseGenerator {
                 .addModifiers(PUBLIC)
                 .addAnnotation(getGeneratedAnnotationSpec(BundleInjectionAdapterGenerator.class));
 
-        if (parentAdapter != null) {
-            classBuilder.superclass(ParameterizedTypeName.get(parentAdapter, t));
-        } else {
-            classBuilder.addSuperinterface(ParameterizedTypeName.get(ClassName.get(BundleBinding.class), t));
-        }
+        // Adapters are stateless, so one instance is shared. Holding it here ties its lifetime to the adapter's class loader.
+        ParameterizedTypeName instanceType = ParameterizedTypeName.get(getAdapterClassName(), ClassName.get(targetType));
+        classBuilder.addField(FieldSpec.builder(instanceType, INSTANCE_FIELD, PUBLIC, STATIC, FINAL)
+                .initializer("new $T()", instanceType)
+                .build());
 
-        addSaveStateMethod(classBuilder, t);
-        addRestoreStateMethod(classBuilder, t);
-        addInjectArugmentsMethod(classBuilder, t);
+        classBuilder.addSuperinterface(ParameterizedTypeName.get(ClassName.get(BundleBinding.class), t));
+
+        // Each method delegates to the static injector, which also injects the fields of the parent classes.
+        for (String method : new String[]{SAVE_METHOD, RESTORE_METHOD, INJECT_ARGUMENTS_METHOD}) {
+            classBuilder.addMethod(MethodSpec.methodBuilder(method)
+                    .addModifiers(PUBLIC)
+                    .addParameter(ParameterSpec.builder(t, TARGET).build())
+                    .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.bundleType), BUNDLE).build())
+                    .addStatement("$T.$L($N, $N)", injector, method, TARGET, BUNDLE)
+                    .build());
+        }
+        TypeName targets = ParameterizedTypeName.get(ClassName.get(List.class), WildcardTypeName.subtypeOf(t));
+        for (String method : new String[]{SAVE_ALL_METHOD, RESTORE_ALL_METHOD}) {
+            classBuilder.addMethod(MethodSpec.methodBuilder(method)
+                    .addModifiers(PUBLIC)
+                    .addParameter(ParameterSpec.builder(targets, TARGETS).build())
+                    .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.bundleType), BUNDLE).build())
+                    .addStatement("$T.$L($N, $N)", injector, method, TARGETS, BUNDLE)
+                    .build());
+        }
 
         return JavaFile.builder(classPackage, classBuilder.build()).build();
     }
 
-    private void addSaveStateMethod(TypeSpec.Builder classBuilder, TypeVariableName t) {
+    /**
+     * Add the static save, restore and inject methods for the target to its static injector.
+     */
+    public void addInjectorMethods(TypeSpec.Builder injectorBuilder) {
+        TypeName target = ClassName.get(targetType);
+        addSaveStateMethod(injectorBuilder, target);
+        addRestoreStateMethod(injectorBuilder, target);
+        addInjectArugmentsMethod(injectorBuilder, target);
+        addSaveAllMethod(injectorBuilder, target);
+        addRestoreAllMethod(injectorBuilder, target);
+    }
+
+    private void addSaveStateMethod(TypeSpec.Builder classBuilder, TypeName t) {
         MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(SAVE_METHOD)
-                .addModifiers(PUBLIC)
+                .addModifiers(PUBLIC, STATIC)
                 .addParameter(ParameterSpec.builder(t, TARGET).build())
                 .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.bundleType), BUNDLE).build());
-        if (parentAdapter != null) {
-            methodBuilder.addStatement("super.$L($N, $N)", SAVE_METHOD, TARGET, BUNDLE);
+        if (parentInjector != null) {
+            methodBuilder.addStatement("$T.$L($N, $N)", parentInjector, SAVE_METHOD, TARGET, BUNDLE);
+        }
+        String stateBundle = BUNDLE;
+        boolean nested = nestedStateKey != null && !getFields(SAVE_STATE).isEmpty();
+        if (nested) {
+            stateBundle = STATE_BUNDLE;
+            methodBuilder.addStatement("$T $N = new $T()", ClassName.get(typeUtil.bundleType), stateBundle, ClassName.get(typeUtil.bundleType));
+        }
+        List<BundleFieldBinding> retainedFields = new ArrayList<BundleFieldBinding>();
+        for (BundleFieldBinding field : getFields(SAVE_STATE)) {
+            if (field.isRetain()) {
+                retainedFields.add(field);
+            }
+        }
+        if (!retainedFields.isEmpty()) {
+            CodeBlock.Builder values = CodeBlock.builder();
+            for (int i = 0; i < retainedFields.size(); i++) {
+                if (i > 0) {
+                    values.add(", ");
+                }
+                values.add("$N.$N", TARGET, retainedFields.get(i).getName());
+            }
+            methodBuilder.addStatement("$N.putString($S, $T.put($N, $L))", stateBundle, retainedStateKey, RetainedState.class, TARGET, values.build());
+            if (trackChanges) {
+                methodBuilder.addStatement("$T.wrote()", SavedFields.class);
+            }
         }
-        for (BundleFieldBinding field : fields) {
-            if (SAVE_STATE == field.getAnnotationType()) {
-                methodBuilder.addStatement("$N.put$L($S, $N.$N)", BUNDLE, field.getBundleType(), field.getKey().getValue(), TARGET, field.getName());
+        for (BundleFieldBinding field : getAllFields()) {
+            if (SAVE_STATE == field.getAnnotationType() && !isCompact(field)) {
+                methodBuilder.addStatement("$L", getPut(field, stateBundle));
+                if (trackChanges) {
+                    methodBuilder.addStatement("$T.wrote()", SavedFields.class);
+                }
+            }
+        }
+        List<BundleFieldBinding> compactFields = getCompactFields();
+        if (!compactFields.isEmpty()) {
+            int size = 0;
+            for (BundleFieldBinding field : compactFields) {
+                size += COMPACT_SIZES.get(field.getBundleType());
             }
+            methodBuilder.addStatement("$T $N = new $T($L, $L)", CompactStateWriter.class, STATE, CompactStateWriter.class,
+                    getCompactSchemaHash(compactFields), size);
+            for (BundleFieldBinding field : compactFields) {
+                methodBuilder.addStatement("$N.write$L($N.$N)", STATE, field.getBundleType(), TARGET, field.getName());
+            }
+            methodBuilder.addStatement("$N.putByteArray($S, $N.toByteArray())", stateBundle, compactStateKey, STATE);
+            if (trackChanges) {
+                methodBuilder.addStatement("$T.wrote()", SavedFields.class);
+            }
+        }
+        if (nested) {
+            methodBuilder.addStatement("$N.putBundle($S, $N)", BUNDLE, nestedStateKey, stateBundle);
         }
         classBuilder.addMethod(methodBuilder.build());
     }
 
-    private void addRestoreStateMethod(TypeSpec.Builder classBuilder, TypeVariableName t) {
-        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(RESTORE_METHOD)
-                .addModifiers(PUBLIC)
-                .addParameter(ParameterSpec.builder(t, TARGET).build())
+    /**
+     * @return the type the value of the field is saved as, the wrapped type for Lazy fields.
+     */
+    private TypeMirror getSavedType(BundleFieldBinding field) {
+        TypeMirror type = field.getType();
+        if (typeUtil.isLazy(type)) {
+            return typeUtil.getLazyType(type);
+        }
+        return type;
+    }
+
+    private CodeBlock getSavedValue(BundleFieldBinding field) {
+        if (typeUtil.isLazy(field.getType())) {
+            return CodeBlock.builder().add("$T.valueOf($N.$N)", LazyBundleValue.class, TARGET, field.getName()).build();
+        }
+        return CodeBlock.builder().add("$N.$N", TARGET, field.getName()).build();
+    }
+
+    /**
+     * @return the code putting the value of the field in {@code stateBundle}, without tracking changes.
+     */
+    private CodeBlock getPut(BundleFieldBinding field, String stateBundle) {
+        TypeMirror type = getSavedType(field);
+        CodeBlock value = getSavedValue(field);
+        CodeBlock bundle = CodeBlock.builder().add("$N", stateBundle).build();
+        CodeBlock key = CodeBlock.builder().add("$S", field.getKey().getValue()).build();
+        if (field.isSpill()) {
+            return CodeBlock.builder().add("$T.put($L, $L, $L)", SpilledState.class, bundle, key, typeUtil.encode(type, value)).build();
+        }
+        if (field.getConverter() != null) {
+            return typeUtil.writeWithConverter(field.getConverter(), bundle, key, value);
+        }
+        return typeUtil.putBundleValue(type, field.getBundleType(), bundle, key, value);
+    }
+
+    /**
+     * Save a batch of targets column-wise: the values of a primitive, boxed, String, Parcelable or Bundle field, encoded by its codec if it
+     * has one, are put in a single array under the key of the field, and the other fields in a bundle per target. Retained, compact and
+     * nested state are not used for a batch.
+     */
+    private void addSaveAllMethod(TypeSpec.Builder classBuilder, TypeName t) {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(SAVE_ALL_METHOD)
+                .addModifiers(PUBLIC, STATIC)
+                .addParameter(ParameterSpec.builder(ParameterizedTypeName.get(ClassName.get(List.class), WildcardTypeName.subtypeOf(t)), TARGETS).build())
                 .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.bundleType), BUNDLE).build());
-        if (parentAdapter != null) {
-            methodBuilder.addStatement("super.$L($N, $N)", RESTORE_METHOD, TARGET, BUNDLE);
+        if (parentInjector != null) {
+            methodBuilder.addStatement("$T.$L($N, $N)", parentInjector, SAVE_ALL_METHOD, TARGETS, BUNDLE);
         }
-        methodBuilder.beginControlFlow("if ($N != null)", BUNDLE);
-        for (BundleFieldBinding field : fields) {
-            if (SAVE_STATE == field.getAnnotationType()) {
-                methodBuilder.beginControlFlow("if ($N.containsKey($S))", BUNDLE, field.getKey().getValue());
-                List<Object> stmtArgs = new ArrayList<Object>();
-                String stmt = "$N.$N = ";
-                stmtArgs.add(TARGET);
-                stmtArgs.add(field.getName());
-                if (field.needsToBeCast()) {
-                    stmt = stmt.concat("($T)");
-                    stmtArgs.add(field.getType());
+        List<BundleFieldBinding> savedFields = getFields(SAVE_STATE);
+        if (savedFields.isEmpty()) {
+            classBuilder.addMethod(methodBuilder.build());
+            return;
+        }
+        TypeName bundleType = ClassName.get(typeUtil.bundleType);
+        List<BundleFieldBinding> itemFields = new ArrayList<BundleFieldBinding>();
+        methodBuilder.addStatement("int $N = $N.size()", SIZE, TARGETS);
+        for (BundleFieldBinding field : savedFields) {
+            if (isColumn(field)) {
+                TypeName columnType = getColumnType(field);
+                methodBuilder.addStatement("$T[] $N = new $T[$N]", columnType, field.getName() + COLUMN_SUFFIX, columnType, SIZE);
+                if (hasNullMask(field)) {
+                    // Only allocated once a null value is found
+                    methodBuilder.addStatement("boolean[] $N = null", field.getName() + NULLS_SUFFIX);
+                }
+            } else {
+                itemFields.add(field);
+            }
+        }
+        if (!itemFields.isEmpty()) {
+            methodBuilder.addStatement("$T[] $N = new $T[$N]", bundleType, ITEMS, bundleType, SIZE);
+        }
+        methodBuilder.beginControlFlow("for (int $N = 0; $N < $N; $N++)", INDEX, INDEX, SIZE, INDEX);
+        methodBuilder.addStatement("$T $N = $N.get($N)", t, TARGET, TARGETS, INDEX);
+        for (BundleFieldBinding field : savedFields) {
+            if (isColumn(field)) {
+                addWriteColumnValue(methodBuilder, field);
+            }
+        }
+        if (!itemFields.isEmpty()) {
+            methodBuilder.addStatement("$T $N = new $T()", bundleType, ITEM, bundleType);
+            for (BundleFieldBinding field : itemFields) {
+                methodBuilder.addStatement("$L", getPut(field, ITEM));
+            }
+            methodBuilder.addStatement("$N[$N] = $N", ITEMS, INDEX, ITEM);
+        }
+        methodBuilder.endControlFlow();
+        for (BundleFieldBinding field : savedFields) {
+            if (isColumn(field)) {
+                methodBuilder.addStatement("$N.put$LArray($S, $N)", BUNDLE, getColumnBundleType(field), field.getKey().getValue(),
+                        field.getName() + COLUMN_SUFFIX);
+                if (hasNullMask(field)) {
+                    String nulls = field.getName() + NULLS_SUFFIX;
+                    methodBuilder.beginControlFlow("if ($N != null)", nulls);
+                    methodBuilder.addStatement("$N.putBooleanArray($S, $N)", BUNDLE, field.getKey().getValue() + NULLS_KEY_SUFFIX, nulls);
+                    methodBuilder.endControlFlow();
+                }
+            }
+        }
+        if (!itemFields.isEmpty()) {
+            methodBuilder.addStatement("$N.putParcelableArray($S, $N)", BUNDLE, itemsKey, ITEMS);
+        }
+        classBuilder.addMethod(methodBuilder.build());
+    }
+
+    private void addWriteColumnValue(MethodSpec.Builder methodBuilder, BundleFieldBinding field) {
+        String column = field.getName() + COLUMN_SUFFIX;
+        CodeBlock value = typeUtil.encode(field.getType(), CodeBlock.builder().add("$N.$N", TARGET, field.getName()).build());
+        if (!hasNullMask(field)) {
+            methodBuilder.addStatement("$N[$N] = $L", column, INDEX, value);
+            return;
+        }
+        String nulls = field.getName() + NULLS_SUFFIX;
+        String boxed = field.getName() + "Value";
+        TypeName boxedType = TypeName.get(field.getType());
+        ValueCodec codec = typeUtil.getCodec(field.getType());
+        if (codec != null) {
+            boxedType = codec.getStoredType();
+        }
+        methodBuilder.addStatement("$T $N = $L", boxedType, boxed, value);
+        methodBuilder.beginControlFlow("if ($N == null)", boxed);
+        methodBuilder.beginControlFlow("if ($N == null)", nulls);
+        methodBuilder.addStatement("$N = new boolean[$N]", nulls, SIZE);
+        methodBuilder.endControlFlow();
+        methodBuilder.addStatement("$N[$N] = true", nulls, INDEX);
+        methodBuilder.nextControlFlow("else");
+        methodBuilder.addStatement("$N[$N] = $N", column, INDEX, boxed);
+        methodBuilder.endControlFlow();
+    }
+
+    private void addRestoreAllMethod(TypeSpec.Builder classBuilder, TypeName t) {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(RESTORE_ALL_METHOD)
+                .addModifiers(PUBLIC, STATIC)
+                .addParameter(ParameterSpec.builder(ParameterizedTypeName.get(ClassName.get(List.class), WildcardTypeName.subtypeOf(t)), TARGETS).build())
+                .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.bundleType), BUNDLE).build());
+        if (parentInjector != null) {
+            methodBuilder.addStatement("$T.$L($N, $N)", parentInjector, RESTORE_ALL_METHOD, TARGETS, BUNDLE);
+        }
+        List<BundleFieldBinding> savedFields = getFields(SAVE_STATE);
+        if (savedFields.isEmpty()) {
+            classBuilder.addMethod(methodBuilder.build());
+            return;
+        }
+        TypeName bundleType = ClassName.get(typeUtil.bundleType);
+        // A missing bundle means nothing was saved, as for a single target
+        methodBuilder.beginControlFlow("if ($N == null)", BUNDLE);
+        methodBuilder.addStatement("return");
+        methodBuilder.endControlFlow();
+        methodBuilder.addStatement("int $N = $N.size()", SIZE, TARGETS);
+        List<BundleFieldBinding> itemFields = new ArrayList<BundleFieldBinding>();
+        boolean itemsRequired = false;
+        for (BundleFieldBinding field : savedFields) {
+            if (isColumn(field)) {
+                String key = field.getKey().getValue();
+                String missingMessage = String.format("Required Bundle value with key '%s' was not found for '%s'. "
+                        + "If this field is not required add '@NotRequired' annotation", key, field.getName());
+                addReadColumn(methodBuilder, getColumnType(field), getColumnBundleType(field), field.getName() + COLUMN_SUFFIX, key,
+                        field.isRequired(), missingMessage);
+                if (hasNullMask(field)) {
+                    methodBuilder.addStatement("boolean[] $N = $N.getBooleanArray($S)", field.getName() + NULLS_SUFFIX, BUNDLE,
+                            key + NULLS_KEY_SUFFIX);
                 }
-                stmt = stmt.concat("$N.get$L($S");
-                stmtArgs.add(BUNDLE);
-                stmtArgs.add(field.getBundleType());
-                stmtArgs.add(field.getKey().getValue());
-                if (field.canHaveDefault()) {
-                    stmt = stmt.concat(", $N.$N");
-                    stmtArgs.add(TARGET);
-                    stmtArgs.add(field.getName());
+            } else {
+                itemFields.add(field);
+                itemsRequired |= field.isRequired();
+            }
+        }
+        if (!itemFields.isEmpty()) {
+            addReadColumn(methodBuilder, ClassName.get(typeUtil.parcelableType), PARCELABLE, ITEMS, itemsKey, itemsRequired, String.format(
+                    "Required Bundle value with key '%s' was not found", itemsKey));
+        }
+        methodBuilder.beginControlFlow("for (int $N = 0; $N < $N; $N++)", INDEX, INDEX, SIZE, INDEX);
+        methodBuilder.addStatement("$T $N = $N.get($N)", t, TARGET, TARGETS, INDEX);
+        for (BundleFieldBinding field : savedFields) {
+            if (isColumn(field)) {
+                String column = field.getName() + COLUMN_SUFFIX;
+                if (!field.isRequired()) {
+                    methodBuilder.beginControlFlow("if ($N != null)", column);
                 }
-                stmt = stmt.concat(")");
-                methodBuilder.addStatement(stmt, stmtArgs.toArray(new Object[stmtArgs.size()]));
-                if (field.isRequired()) {
+                String nulls = field.getName() + NULLS_SUFFIX;
+                if (hasNullMask(field)) {
+                    methodBuilder.beginControlFlow("if ($N != null && $N[$N])", nulls, nulls, INDEX);
+                    methodBuilder.addStatement("$N.$N = null", TARGET, field.getName());
                     methodBuilder.nextControlFlow("else");
-                    methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class,
-                            String.format("Required Bundle value with key '%s' was not found for '%s'. "
-                                            + "If this field is not required add '@NotRequired' annotation",
-                                    field.getKey().getValue(), field.getName()));
                 }
+                CodeBlock value = CodeBlock.builder().add("$N[$N]", column, INDEX).build();
+                ValueCodec codec = typeUtil.getCodec(field.getType());
+                if (codec != null) {
+                    // Only the values of a Parcelable column are not of the stored type
+                    methodBuilder.addStatement("$N.$N = $L", TARGET, field.getName(), codec.decode(value, PARCELABLE.equals(getColumnBundleType(field))));
+                } else if (PARCELABLE.equals(getColumnBundleType(field))) {
+                    methodBuilder.addStatement("$N.$N = ($T) $L", TARGET, field.getName(), TypeName.get(field.getType()), value);
+                } else {
+                    methodBuilder.addStatement("$N.$N = $L", TARGET, field.getName(), value);
+                }
+                if (hasNullMask(field)) {
+                    methodBuilder.endControlFlow();
+                }
+                if (!field.isRequired()) {
+                    methodBuilder.endControlFlow();
+                }
+            }
+        }
+        if (!itemFields.isEmpty()) {
+            if (!itemsRequired) {
+                methodBuilder.beginControlFlow("if ($N != null)", ITEMS);
+            }
+            methodBuilder.addStatement("$T $N = ($T) $N[$N]", bundleType, ITEM, bundleType, ITEMS, INDEX);
+            // Bundles read from a parcel have no class loader for the values of the application
+            methodBuilder.addStatement("$N.setClassLoader($N.getClass().getClassLoader())", ITEM, TARGET);
+            for (BundleFieldBinding field : itemFields) {
+                if (needsValueVariable(field.getType(), field.getConverter())) {
+                    addValueVariable(methodBuilder);
+                    break;
+                }
+            }
+            boolean unchecked = false;
+            for (BundleFieldBinding field : itemFields) {
+                unchecked |= addReadField(methodBuilder, ITEM, field);
+            }
+            if (unchecked) {
+                methodBuilder.addAnnotation(UNCHECKED);
+            }
+            if (!itemsRequired) {
                 methodBuilder.endControlFlow();
             }
         }
+        methodBuilder.endControlFlow();
+        classBuilder.addMethod(methodBuilder.build());
+    }
+
+    /**
+     * Read the array holding a column of a batch, which must hold a value for each target.
+     */
+    private void addReadColumn(MethodSpec.Builder methodBuilder, TypeName columnType, String bundleType, String column, String key,
+                               boolean required, String missingMessage) {
+        methodBuilder.addStatement("$T[] $N = $N.get$LArray($S)", columnType, column, BUNDLE, bundleType, key);
+        if (required) {
+            methodBuilder.beginControlFlow("if ($N == null)", column);
+            methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class, missingMessage);
+            methodBuilder.endControlFlow();
+            methodBuilder.beginControlFlow("if ($N.length != $N)", column, SIZE);
+        } else {
+            methodBuilder.beginControlFlow("if ($N != null && $N.length != $N)", column, column, SIZE);
+        }
+        methodBuilder.addStatement("throw new $T($S + $N.length + $S + $N)", IllegalStateException.class, "Saved ", column,
+                " values with key '" + key + "' for a batch of ", SIZE);
+        methodBuilder.endControlFlow();
+    }
+
+    private void addRestoreStateMethod(TypeSpec.Builder classBuilder, TypeName t) {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(RESTORE_METHOD)
+                .addModifiers(PUBLIC, STATIC)
+                .addParameter(ParameterSpec.builder(t, TARGET).build())
+                .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.bundleType), BUNDLE).build());
+        if (parentInjector != null) {
+            methodBuilder.addStatement("$T.$L($N, $N)", parentInjector, RESTORE_METHOD, TARGET, BUNDLE);
+        }
+        methodBuilder.beginControlFlow("if ($N != null)", BUNDLE);
+        if (nestedStateKey != null && !getFields(SAVE_STATE).isEmpty()) {
+            // A missing nested bundle means nothing was saved, the same as a null bundle
+            methodBuilder.addStatement("$T $N = $N.getBundle($S)", ClassName.get(typeUtil.bundleType), STATE_BUNDLE, BUNDLE, nestedStateKey);
+            methodBuilder.beginControlFlow("if ($N != null)", STATE_BUNDLE);
+            addReadFields(methodBuilder, SAVE_STATE, STATE_BUNDLE);
+            addReadCompactFields(methodBuilder, STATE_BUNDLE);
+            methodBuilder.endControlFlow();
+        } else {
+            addReadFields(methodBuilder, SAVE_STATE, BUNDLE);
+            addReadCompactFields(methodBuilder, BUNDLE);
+        }
 
         methodBuilder.endControlFlow();
         classBuilder.addMethod(methodBuilder.build());
     }
 
-    private void addInjectArugmentsMethod(TypeSpec.Builder classBuilder, TypeVariableName t) {
+    private void addInjectArugmentsMethod(TypeSpec.Builder classBuilder, TypeName t) {
         MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(INJECT_ARGUMENTS_METHOD)
-                .addModifiers(PUBLIC)
+                .addModifiers(PUBLIC, STATIC)
                 .addParameter(ParameterSpec.builder(t, TARGET).build())
                 .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.bundleType), BUNDLE).build());
-        if (parentAdapter != null) {
-            methodBuilder.addStatement("super.$L($N, $N)", INJECT_ARGUMENTS_METHOD, TARGET, BUNDLE);
+        if (parentInjector != null) {
+            methodBuilder.addStatement("$T.$L($N, $N)", parentInjector, INJECT_ARGUMENTS_METHOD, TARGET, BUNDLE);
         }
         methodBuilder.beginControlFlow("if ($N == null)", BUNDLE);
         if (required) {
@@ -151,42 +681,107 @@ public final class BundleInjectionAdapterGenerator extends BaseGenerator {
             methodBuilder.addStatement("$N = new $T()", BUNDLE, ClassName.get(typeUtil.bundleType));
         }
         methodBuilder.endControlFlow();
-        for (BundleFieldBinding field : fields) {
-            if (ARGUMENT == field.getAnnotationType()) {
-                methodBuilder.beginControlFlow("if ($N.containsKey($S))", BUNDLE, field.getKey().getValue());
-                List<Object> stmtArgs = new ArrayList<Object>();
-                String stmt = "$N.$N = ";
-                stmtArgs.add(TARGET);
-                stmtArgs.add(field.getName());
-                if (field.needsToBeCast()) {
-                    stmt = stmt.concat("($T)");
-                    stmtArgs.add(field.getType());
-                }
-                stmt = stmt.concat("$N.get$L($S");
-                stmtArgs.add(BUNDLE);
-                stmtArgs.add(field.getBundleType());
-                stmtArgs.add(field.getKey().getValue());
-                if (field.canHaveDefault()) {
-                    stmt = stmt.concat(", $N.$N");
-                    stmtArgs.add(TARGET);
-                    stmtArgs.add(field.getName());
-                }
-                stmt = stmt.concat(")");
-                methodBuilder.addStatement(stmt, stmtArgs.toArray(new Object[stmtArgs.size()]));
-                if (field.isRequired()) {
-                    methodBuilder.nextControlFlow("else");
-                    methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class,
-                            String.format("Required Bundle value with key '%s' was not found for '%s'. "
-                                            + "If this field is not required add '@NotRequired' annotation",
-                                    field.getKey().getValue(), field.getName()));
-                }
-                methodBuilder.endControlFlow();
+        addReadFields(methodBuilder, ARGUMENT, BUNDLE);
+        classBuilder.addMethod(methodBuilder.build());
+    }
+
+    private void addReadCompactFields(MethodSpec.Builder methodBuilder, String bundle) {
+        List<BundleFieldBinding> compactFields = getCompactFields();
+        if (compactFields.isEmpty()) {
+            return;
+        }
+        methodBuilder.addStatement("$T $N = $T.open($N.getByteArray($S), $L)", CompactStateReader.class, STATE, CompactStateReader.class, bundle,
+                compactStateKey, getCompactSchemaHash(compactFields));
+        methodBuilder.beginControlFlow("if ($N != null)", STATE);
+        for (BundleFieldBinding field : compactFields) {
+            methodBuilder.addStatement("$N.$N = $N.read$L()", TARGET, field.getName(), STATE, field.getBundleType());
+        }
+        for (BundleFieldBinding field : compactFields) {
+            if (field.isRequired()) {
+                methodBuilder.nextControlFlow("else");
+                methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class, String.format(
+                        "Required compact state with key '%s' was not found for '%s'. If this field is not required add '@NotRequired' annotation",
+                        compactStateKey, field.getName()));
+                break;
             }
         }
-        classBuilder.addMethod(methodBuilder.build());
+        methodBuilder.endControlFlow();
+    }
+
+    private void addReadFields(MethodSpec.Builder methodBuilder, BundleFieldBinding.AnnotationType annotationType, String bundle) {
+        List<BundleFieldBinding> readFields = new ArrayList<BundleFieldBinding>();
+        for (BundleFieldBinding field : getFields(annotationType)) {
+            if (!isCompact(field)) {
+                readFields.add(field);
+            }
+        }
+        for (BundleFieldBinding field : readFields) {
+            if (needsValueVariable(field.getType(), field.getConverter())) {
+                addValueVariable(methodBuilder);
+                break;
+            }
+        }
+        List<BundleFieldBinding> retainedFields = new ArrayList<BundleFieldBinding>();
+        for (BundleFieldBinding field : readFields) {
+            if (field.isRetain()) {
+                retainedFields.add(field);
+            }
+        }
+        readFields.removeAll(retainedFields);
+        boolean unchecked = false;
+        if (!retainedFields.isEmpty()) {
+            // Values still in memory are used as they are, the bundle is only read after the process was killed
+            methodBuilder.addStatement("$T[] $N = $T.take($N.getString($S))", Object.class, RETAINED, RetainedState.class, bundle, retainedStateKey);
+            methodBuilder.beginControlFlow("if ($N != null)", RETAINED);
+            for (int i = 0; i < retainedFields.size(); i++) {
+                BundleFieldBinding field = retainedFields.get(i);
+                TypeName type = TypeName.get(typeUtil.box(field.getType()));
+                methodBuilder.addStatement("$N.$N = ($T) $N[$L]", TARGET, field.getName(), type, RETAINED, i);
+                unchecked |= type instanceof ParameterizedTypeName;
+            }
+            methodBuilder.nextControlFlow("else");
+            for (BundleFieldBinding field : retainedFields) {
+                unchecked |= addReadField(methodBuilder, bundle, field);
+            }
+            methodBuilder.endControlFlow();
+        }
+        for (BundleFieldBinding field : readFields) {
+            unchecked |= addReadField(methodBuilder, bundle, field);
+        }
+        if (unchecked) {
+            methodBuilder.addAnnotation(UNCHECKED);
+        }
+    }
+
+    /**
+     * @return true if reading the field is an unchecked cast.
+     */
+    private boolean addReadField(MethodSpec.Builder methodBuilder, String bundle, BundleFieldBinding field) {
+        String key = field.getKey().getValue();
+        String missingMessage = String.format("Required Bundle value with key '%s' was not found for '%s'. "
+                + "If this field is not required add '@NotRequired' annotation", key, field.getName());
+        if (field.isConsume()) {
+            // Injecting again leaves a consumed field as it is
+            methodBuilder.beginControlFlow("if (!$T.isConsumed($N, $S))", Consumed.class, bundle, key);
+        }
+        if (field.isSpill()) {
+            // Spilled values are taken from memory or their file, the bundle only holds the bytes or the file name. A file that is gone
+            // keeps the field's value, only a missing key is checked.
+            addReadStoredField(methodBuilder, TARGET, field.getName(), field.getType(), CodeBlock.builder()
+                    .add("$T.take($N, $S, $N.getClass().getClassLoader())", SpilledState.class, bundle, key, TARGET).build(),
+                    ValueSource.bundle(bundle).contains(CodeBlock.builder().add("$S", key).build()), field.isRequired(), missingMessage);
+        } else {
+            addReadField(methodBuilder, ValueSource.bundle(bundle), key, TARGET, field.getName(), field.getType(), field.getBundleType(),
+                    field.getConverter(), field.canHaveDefault(), field.isRequired(), missingMessage);
+        }
+        if (field.isConsume()) {
+            methodBuilder.addStatement("$T.consume($N, $S)", Consumed.class, bundle, key);
+            methodBuilder.endControlFlow();
+        }
+        return isUncheckedCast(field.getType(), field.getConverter());
     }
 
-    public void setParentAdapter(String packageName, String className) {
-        this.parentAdapter = ClassName.get(packageName, className);
+    public void setParentInjector(ClassName parentInjector) {
+        this.parentInjector = parentInjector;
     }
 }
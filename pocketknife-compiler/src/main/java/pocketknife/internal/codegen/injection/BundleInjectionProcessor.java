@@ -1,9 +1,13 @@
 package pocketknife.internal.codegen.injection;
 
 import android.os.Build;
+import com.google.common.base.Joiner;
+import pocketknife.CompactState;
+import pocketknife.Consume;
 import pocketknife.InjectArgument;
 import pocketknife.NotRequired;
 import pocketknife.SaveState;
+import pocketknife.TrackChanges;
 import pocketknife.internal.codegen.InvalidTypeException;
 import pocketknife.internal.codegen.BundleFieldBinding;
 
@@ -19,19 +23,30 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static pocketknife.internal.GeneratedAdapters.BUNDLE_ADAPTER_SUFFIX;
 import static pocketknife.internal.codegen.BundleFieldBinding.AnnotationType.SAVE_STATE;
+import static pocketknife.internal.codegen.BundleFieldBinding.RETAINED_STATE_KEY_PREFIX;
 import static pocketknife.internal.codegen.BundleFieldBinding.SAVE_STATE_KEY_PREFIX;
 
 public class BundleInjectionProcessor extends InjectionProcessor {
 
+    private boolean nestedState;
+
     public BundleInjectionProcessor(Messager messager, Elements elements, Types types) {
         super(messager, elements, types);
     }
 
+    /**
+     * Save the fields of each class into a bundle of their own, nested in the saved state under a key for the class.
+     */
+    public void setNestedState(boolean nestedState) {
+        this.nestedState = nestedState;
+    }
+
     public Map<TypeElement, BundleInjectionAdapterGenerator> findAndParseTargets(RoundEnvironment env) {
         Map<TypeElement, BundleInjectionAdapterGenerator> targetClassMap = new LinkedHashMap<TypeElement, BundleInjectionAdapterGenerator>();
         Set<String> erasedTargetNames = new LinkedHashSet<String>(); // used for parent lookup.
@@ -60,9 +75,26 @@ public class BundleInjectionProcessor extends InjectionProcessor {
 
         // Try to find a parent adapter for each adapter
         for (Map.Entry<TypeElement, BundleInjectionAdapterGenerator> entry : targetClassMap.entrySet()) {
-            TypeElement parentElement = findParent(entry.getKey(), erasedTargetNames);
+            TypeElement typeElement = entry.getKey();
+            List<TypeElement> flattened = findFlattenedParents(typeElement, erasedTargetNames);
+            for (int i = flattened.size() - 1; i >= 0; i--) {
+                entry.getValue().addInheritedFields(targetClassMap.get(flattened.get(i)));
+            }
+            if (!flattened.isEmpty()) {
+                typeElement = flattened.get(flattened.size() - 1);
+            }
+            TypeElement parentElement = findParent(typeElement, erasedTargetNames);
             if (parentElement != null) {
-                entry.getValue().setParentAdapter(getPackageName(parentElement), parentElement.getSimpleName() + BUNDLE_ADAPTER_SUFFIX);
+                entry.getValue().setParentInjector(getInjectorClassName(parentElement));
+            }
+        }
+
+        // Fields that can't be saved in a column make PocketKnife.saveAll save a bundle per target
+        for (Map.Entry<TypeElement, BundleInjectionAdapterGenerator> entry : targetClassMap.entrySet()) {
+            List<String> itemFields = entry.getValue().getItemFieldNames();
+            if (!itemFields.isEmpty()) {
+                note(entry.getKey(), "PocketKnife.saveAll saves a Bundle per instance of %s for fields that can't be saved in a column: %s",
+                        entry.getKey().getSimpleName(), Joiner.on(", ").join(itemFields));
             }
         }
 
@@ -86,19 +118,32 @@ public class BundleInjectionProcessor extends InjectionProcessor {
 
         // Assemble information on the injection point.
         String name = element.getSimpleName().toString();
-        String bundleType = typeUtil.getBundleType(type);
+        TypeMirror converter = typeUtil.getConverter(element);
+        String bundleType = null;
+        if (converter == null) {
+            bundleType = typeUtil.getBundleType(type);
+        }
         NotRequired notRequired = element.getAnnotation(NotRequired.class);
         boolean required = notRequired == null;
         int minSdk = Build.VERSION_CODES.FROYO;
         if (!required) {
             minSdk = notRequired.value();
         }
-        boolean canHaveDefault = !required && canHaveDefault(type, minSdk);
-        boolean needsToBeCast = typeUtil.needToCastBundleType(type);
+        boolean canHaveDefault = converter == null && !required && canHaveDefault(type, minSdk);
+        boolean needsToBeCast = converter == null && typeUtil.needToCastBundleType(type);
+
+        SaveState saveState = element.getAnnotation(SaveState.class);
+        boolean spill = saveState.spill();
+        if (spill && (converter != null || typeUtil.isLazy(type))) {
+            throw new IllegalStateException("@SaveState(spill = true) can't be used on Lazy fields or with a @BundleConverter");
+        }
+        if (spill && typeUtil.isPrimitive(type)) {
+            throw new IllegalStateException("@SaveState(spill = true) can't be used on primitive fields");
+        }
 
         BundleInjectionAdapterGenerator bundleInjectionAdapterGenerator = getOrCreateTargetClass(targetClassMap, enclosingElement);
         BundleFieldBinding binding = new BundleFieldBinding(SAVE_STATE, name, type, bundleType, generateKey(SAVE_STATE_KEY_PREFIX, name),
-                needsToBeCast, canHaveDefault, required);
+                converter, needsToBeCast, canHaveDefault, required, spill, saveState.retain(), false);
         bundleInjectionAdapterGenerator.addField(binding);
 
         // Add the type-erased version to the valid targets set.
@@ -122,7 +167,11 @@ public class BundleInjectionProcessor extends InjectionProcessor {
 
         // Assemble information on the injection point
         String name = element.getSimpleName().toString();
-        String bundleType = typeUtil.getBundleType(type);
+        TypeMirror converter = typeUtil.getConverter(element);
+        String bundleType = null;
+        if (converter == null) {
+            bundleType = typeUtil.getBundleType(type);
+        }
         String key = getKey(element);
         NotRequired notRequired = element.getAnnotation(NotRequired.class);
         boolean required = notRequired == null;
@@ -130,12 +179,16 @@ public class BundleInjectionProcessor extends InjectionProcessor {
         if (!required) {
             minSdk = notRequired.value();
         }
-        boolean canHaveDefault = !required && canHaveDefault(type, minSdk);
-        boolean needsToBeCast = typeUtil.needToCastBundleType(type);
+        boolean canHaveDefault = converter == null && !required && canHaveDefault(type, minSdk);
+        boolean needsToBeCast = converter == null && typeUtil.needToCastBundleType(type);
+        boolean consume = element.getAnnotation(Consume.class) != null;
+        if (consume && (converter != null || typeUtil.isLazy(type))) {
+            throw new IllegalStateException("@Consume can't be used on Lazy fields or with a @BundleConverter");
+        }
 
         BundleInjectionAdapterGenerator bundleInjectionAdapterGenerator = getOrCreateTargetClass(targetClassMap, enclosingElement);
         BundleFieldBinding binding = new BundleFieldBinding(BundleFieldBinding.AnnotationType.ARGUMENT, name, type, bundleType, key,
-                needsToBeCast, canHaveDefault, required);
+                converter, needsToBeCast, canHaveDefault, required, false, false, consume);
         bundleInjectionAdapterGenerator.orRequired(required);
         bundleInjectionAdapterGenerator.addField(binding);
 
@@ -147,7 +200,7 @@ public class BundleInjectionProcessor extends InjectionProcessor {
         if (isDefaultAnnotationElement(element, InjectArgument.class.getName(), "value")) {
             return generateKey(BundleFieldBinding.ARGUMENT_KEY_PREFIX, element.getSimpleName().toString());
         }
-        return element.getAnnotation(InjectArgument.class).value();
+        return explicitKey(element.getAnnotation(InjectArgument.class).value());
     }
 
     private boolean canHaveDefault(TypeMirror type, int minSdk) {
@@ -162,7 +215,18 @@ public class BundleInjectionProcessor extends InjectionProcessor {
             String classPackage = getPackageName(enclosingElement);
             String className = getClassName(enclosingElement, classPackage) + BUNDLE_ADAPTER_SUFFIX;
 
-            bundleInjectionAdapterGenerator = new BundleInjectionAdapterGenerator(classPackage, className, targetType, typeUtil);
+            bundleInjectionAdapterGenerator = new BundleInjectionAdapterGenerator(classPackage, className, targetType,
+                    getInjectorClassName(enclosingElement), typeUtil);
+            bundleInjectionAdapterGenerator.setTrackChanges(enclosingElement.getAnnotation(TrackChanges.class) != null);
+            bundleInjectionAdapterGenerator.setRetainedStateKey(shortenKey(RETAINED_STATE_KEY_PREFIX + targetType));
+            bundleInjectionAdapterGenerator.setItemsKey(shortenKey(SAVE_STATE_KEY_PREFIX + targetType));
+            if (nestedState) {
+                bundleInjectionAdapterGenerator.setNestedStateKey(shortenKey(SAVE_STATE_KEY_PREFIX + targetType));
+            }
+            if (enclosingElement.getAnnotation(CompactState.class) != null) {
+                // The key holds the name of the class, so the compact state of a class and of its parent don't overwrite each other
+                bundleInjectionAdapterGenerator.setCompactStateKey(shortenKey(SAVE_STATE_KEY_PREFIX + targetType));
+            }
             targetClassMap.put(enclosingElement, bundleInjectionAdapterGenerator);
         }
         return bundleInjectionAdapterGenerator;
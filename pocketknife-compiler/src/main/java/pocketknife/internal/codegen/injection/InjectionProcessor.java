@@ -1,6 +1,7 @@
 package pocketknife.internal.codegen.injection;
 
 import android.os.Build;
+import com.squareup.javapoet.ClassName;
 import pocketknife.NotRequired;
 import pocketknife.internal.codegen.BaseProcessor;
 import pocketknife.internal.codegen.TypeUtil;
@@ -16,13 +17,17 @@ import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import static javax.lang.model.element.ElementKind.CLASS;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.STATIC;
 import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.NOTE;
 import static pocketknife.internal.GeneratedAdapters.ANDROID_PREFIX;
+import static pocketknife.internal.GeneratedAdapters.INJECTOR_PREFIX;
 import static pocketknife.internal.GeneratedAdapters.JAVA_PREFIX;
 
 public abstract class InjectionProcessor extends BaseProcessor {
@@ -31,6 +36,7 @@ public abstract class InjectionProcessor extends BaseProcessor {
     protected Elements elements;
     protected Types types;
     protected TypeUtil typeUtil;
+    protected boolean flatten;
 
     public InjectionProcessor(Messager messager, Elements elements, Types types) {
         this.messager = messager;
@@ -39,6 +45,13 @@ public abstract class InjectionProcessor extends BaseProcessor {
         this.typeUtil = TypeUtil.getInstance(elements, types);
     }
 
+    /**
+     * Inline the fields of annotated ancestors into the code generated for each class instead of calling the ancestor's injector.
+     */
+    public void setFlatten(boolean flatten) {
+        this.flatten = flatten;
+    }
+
     protected String getPackageName(TypeElement type) {
         return elements.getPackageOf(type).getQualifiedName().toString();
     }
@@ -48,6 +61,11 @@ public abstract class InjectionProcessor extends BaseProcessor {
         return typeElement.getQualifiedName().toString().substring(packageLen).replace('.', '$');
     }
 
+    protected ClassName getInjectorClassName(TypeElement typeElement) {
+        String packageName = getPackageName(typeElement);
+        return ClassName.get(packageName, INJECTOR_PREFIX + getClassName(typeElement, packageName));
+    }
+
     protected void error(Element element, String message, Object... args) {
         if (args.length > 0) {
             message = String.format(message, args);
@@ -55,6 +73,13 @@ public abstract class InjectionProcessor extends BaseProcessor {
         messager.printMessage(ERROR, message, element);
     }
 
+    protected void note(Element element, String message, Object... args) {
+        if (args.length > 0) {
+            message = String.format(message, args);
+        }
+        messager.printMessage(NOTE, message, element);
+    }
+
     protected void validateNotRequiredArguments(Element element) {
         NotRequired notRequired = element.getAnnotation(NotRequired.class);
         if (notRequired != null && notRequired.value() < Build.VERSION_CODES.FROYO) {
@@ -165,4 +190,22 @@ public abstract class InjectionProcessor extends BaseProcessor {
         }
     }
 
+    /**
+     * @return the ancestors whose fields are inlined when flattening, nearest first. Flattening stops at the first ancestor in another
+     * package since code generated in this package can't access its fields.
+     */
+    protected List<TypeElement> findFlattenedParents(TypeElement typeElement, Set<String> parents) {
+        List<TypeElement> flattened = new ArrayList<TypeElement>();
+        if (!flatten) {
+            return flattened;
+        }
+        String packageName = getPackageName(typeElement);
+        TypeElement parent = findParent(typeElement, parents);
+        while (parent != null && packageName.equals(getPackageName(parent))) {
+            flattened.add(parent);
+            parent = findParent(parent, parents);
+        }
+        return flattened;
+    }
+
 }
@@ -0,0 +1,52 @@
+package pocketknife.internal.codegen.injection;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import pocketknife.internal.codegen.BaseGenerator;
+import pocketknife.internal.codegen.TypeUtil;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+
+/**
+ * Generates the static injector of a target class. It holds the save, restore and inject methods of both adapters as static methods,
+ * so they can be called directly with the concrete target type.
+ */
+public final class InjectorGenerator extends BaseGenerator {
+
+    private final ClassName injector;
+    private BundleInjectionAdapterGenerator bundleAdapter;
+    private IntentInjectionAdapterGenerator intentAdapter;
+
+    public InjectorGenerator(ClassName injector, TypeUtil typeUtil) {
+        super(typeUtil);
+        this.injector = injector;
+    }
+
+    public void setBundleAdapter(BundleInjectionAdapterGenerator bundleAdapter) {
+        this.bundleAdapter = bundleAdapter;
+    }
+
+    public void setIntentAdapter(IntentInjectionAdapterGenerator intentAdapter) {
+        this.intentAdapter = intentAdapter;
+    }
+
+    public JavaFile generate() {
+        TypeSpec.Builder classBuilder = TypeSpec.classBuilder(injector.simpleName())
+                .addModifiers(PUBLIC, FINAL)
+                .addAnnotation(getGeneratedAnnotationSpec(InjectorGenerator.class))
+                .addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+
+        if (bundleAdapter != null) {
+            bundleAdapter.addInjectorMethods(classBuilder);
+        }
+        if (intentAdapter != null) {
+            intentAdapter.addInjectorMethods(classBuilder);
+        }
+
+        return JavaFile.builder(injector.packageName(), classBuilder.build()).build();
+    }
+}
@@ -1,17 +1,23 @@
 package pocketknife.internal.codegen.injection;
 
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import pocketknife.internal.Consumed;
+import pocketknife.internal.Handoffs;
 import pocketknife.internal.IntentBinding;
 import pocketknife.internal.codegen.BaseGenerator;
 import pocketknife.internal.codegen.IntentFieldBinding;
 import pocketknife.internal.codegen.TypeUtil;
+import pocketknife.internal.codegen.ValueSource;
 
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -19,33 +25,62 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static pocketknife.internal.GeneratedAdapters.INSTANCE_FIELD;
 
 public class IntentInjectionAdapterGenerator extends BaseGenerator {
 
     public static final String INJECT_EXTRAS_METHOD = "injectExtras";
+    public static final String RESET_EXTRAS_METHOD = "resetExtras";
 
     private static final String TARGET = "target";
     private static final String INTENT = "intent";
+    private static final String EXTRAS = "extras";
 
     private final Set<IntentFieldBinding> fields = new LinkedHashSet<IntentFieldBinding>();
+    private final List<IntentFieldBinding> inheritedFields = new ArrayList<IntentFieldBinding>();
     private final String classPackage;
     private final String className;
     private final TypeMirror targetType;
-    private ClassName parentAdapter;
+    private final ClassName injector;
+    private ClassName parentInjector;
 
 
-    public IntentInjectionAdapterGenerator(String classPackage, String className, TypeMirror targetType, TypeUtil typeUtil) {
+    public IntentInjectionAdapterGenerator(String classPackage, String className, TypeMirror targetType, ClassName injector, TypeUtil typeUtil) {
         super(typeUtil);
         this.classPackage = classPackage;
         this.className = className;
         this.targetType = targetType;
+        this.injector = injector;
     }
 
     public void addField(IntentFieldBinding binding) {
         fields.add(binding);
     }
 
+    /**
+     * Inline the fields of an ancestor. Ancestors must be added starting from the top of the hierarchy.
+     */
+    public void addInheritedFields(IntentInjectionAdapterGenerator ancestor) {
+        inheritedFields.addAll(ancestor.fields);
+    }
+
+    private List<IntentFieldBinding> getAllFields() {
+        List<IntentFieldBinding> allFields = new ArrayList<IntentFieldBinding>(inheritedFields);
+        allFields.addAll(fields);
+        return allFields;
+    }
+
+    public ClassName getAdapterClassName() {
+        return ClassName.get(classPackage, className);
+    }
+
+    public ClassName getInjectorClassName() {
+        return injector;
+    }
+
     public JavaFile generate() throws IOException {
         TypeVariableName t = TypeVariableName.get("T");
         TypeSpec.Builder classBuilder = TypeSpec.classBuilder(className)
@@ -53,66 +88,121 @@ public class IntentInjectionAdapterGenerator extends BaseGenerator {
                 .addModifiers(PUBLIC)
                 .addAnnotation(getGeneratedAnnotationSpec(IntentInjectionAdapterGenerator.class));
 
-        // Add Interface or Parent Class
-        if (parentAdapter != null) {
-            classBuilder.superclass(ParameterizedTypeName.get(parentAdapter, t));
-        } else {
-            classBuilder.addSuperinterface(ParameterizedTypeName.get(ClassName.get(IntentBinding.class), t));
-        }
+        // Adapters are stateless, so one instance is shared. Holding it here ties its lifetime to the adapter's class loader.
+        ParameterizedTypeName instanceType = ParameterizedTypeName.get(getAdapterClassName(), ClassName.get(targetType));
+        classBuilder.addField(FieldSpec.builder(instanceType, INSTANCE_FIELD, PUBLIC, STATIC, FINAL)
+                .initializer("new $T()", instanceType)
+                .build());
 
-        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(INJECT_EXTRAS_METHOD)
+        classBuilder.addSuperinterface(ParameterizedTypeName.get(ClassName.get(IntentBinding.class), t));
+
+        // Delegate to the static injector, which also injects the fields of the parent classes.
+        classBuilder.addMethod(MethodSpec.methodBuilder(INJECT_EXTRAS_METHOD)
                 .addModifiers(PUBLIC)
                 .addParameter(ParameterSpec.builder(t, TARGET).build())
+                .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.intentType), INTENT).build())
+                .addStatement("$T.$L($N, $N)", injector, INJECT_EXTRAS_METHOD, TARGET, INTENT)
+                .build());
+        classBuilder.addMethod(MethodSpec.methodBuilder(RESET_EXTRAS_METHOD)
+                .addModifiers(PUBLIC)
+                .addParameter(ParameterSpec.builder(t, TARGET).build())
+                .addStatement("$T.$L($N)", injector, RESET_EXTRAS_METHOD, TARGET)
+                .build());
+
+        return JavaFile.builder(classPackage, classBuilder.build()).build();
+    }
+
+    /**
+     * Add the static inject method for the target to its static injector.
+     */
+    public void addInjectorMethods(TypeSpec.Builder injectorBuilder) {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(INJECT_EXTRAS_METHOD)
+                .addModifiers(PUBLIC, STATIC)
+                .addParameter(ParameterSpec.builder(ClassName.get(targetType), TARGET).build())
                 .addParameter(ParameterSpec.builder(ClassName.get(typeUtil.intentType), INTENT).build());
-        if (parentAdapter != null) {
-            methodBuilder.addStatement("super.$L($N, $N)", INJECT_EXTRAS_METHOD, TARGET, INTENT);
+        if (parentInjector != null) {
+            methodBuilder.addStatement("$T.$L($N, $N)", parentInjector, INJECT_EXTRAS_METHOD, TARGET, INTENT);
         }
         methodBuilder.beginControlFlow("if ($N == null)", INTENT);
         methodBuilder.addStatement("throw new $T($S)", IllegalStateException.class, "intent is null");
         methodBuilder.endControlFlow();
 
-        for (IntentFieldBinding field : fields) {
-            addInjectExtraField(methodBuilder, field);
+        List<IntentFieldBinding> allFields = getAllFields();
+        for (IntentFieldBinding field : allFields) {
+            if (field.getConverter() != null && !typeUtil.isLazy(field.getType())) {
+                // Converters read from a bundle, the only way to get one is a copy of the extras
+                methodBuilder.addStatement("$T $N = $N.getExtras()", ClassName.get(typeUtil.bundleType), EXTRAS, INTENT);
+                methodBuilder.beginControlFlow("if ($N == null)", EXTRAS);
+                methodBuilder.addStatement("$N = $T.EMPTY", EXTRAS, ClassName.get(typeUtil.bundleType));
+                methodBuilder.endControlFlow();
+                break;
+            }
+        }
+        for (IntentFieldBinding field : allFields) {
+            if (field.isHandoff() || needsValueVariable(field.getType(), field.getConverter())) {
+                addValueVariable(methodBuilder);
+                break;
+            }
+        }
+        ValueSource intent = ValueSource.intent(INTENT);
+        boolean unchecked = false;
+        for (IntentFieldBinding field : allFields) {
+            String key = field.getKey().getValue();
+            String missingMessage = String.format("Required Extra with key '%s' was not found for '%s'."
+                    + "If this is not required add '@NotRequired' annotation.", key, field.getName());
+            if (field.isConsume()) {
+                // Injecting again leaves a consumed field as it is
+                methodBuilder.beginControlFlow("if (!$T.isConsumed($N, $S))", Consumed.class, INTENT, key);
+            }
+            if (field.isHandoff()) {
+                addReadStoredField(methodBuilder, TARGET, field.getName(), field.getType(), CodeBlock.builder()
+                        .add("$T.take($N, $S, $N.getClass().getClassLoader())", Handoffs.class, INTENT, key, TARGET).build(), null,
+                        field.isRequired(), missingMessage);
+            } else if (field.getConverter() != null && !typeUtil.isLazy(field.getType())) {
+                addReadField(methodBuilder, ValueSource.bundle(EXTRAS), key, TARGET, field.getName(), field.getType(), null, field.getConverter(),
+                        false, field.isRequired(), missingMessage);
+            } else {
+                addReadField(methodBuilder, intent, key, TARGET, field.getName(), field.getType(), field.getIntentType(), field.getConverter(),
+                        field.hasDefault(), field.isRequired(), missingMessage);
+            }
+            if (field.isConsume()) {
+                methodBuilder.addStatement("$T.consume($N, $S)", Consumed.class, INTENT, key);
+                methodBuilder.endControlFlow();
+            }
+            unchecked |= isUncheckedCast(field.getType(), field.getConverter());
+        }
+        if (unchecked) {
+            methodBuilder.addAnnotation(UNCHECKED);
         }
 
-        classBuilder.addMethod(methodBuilder.build());
-
-        return JavaFile.builder(classPackage, classBuilder.build()).build();
+        injectorBuilder.addMethod(methodBuilder.build());
+        addResetMethod(injectorBuilder);
     }
 
-    private void addInjectExtraField(MethodSpec.Builder methodBuilder, IntentFieldBinding field) {
-        methodBuilder.beginControlFlow("if ($N.hasExtra($S))", INTENT, field.getKey().getValue());
-
-        List<Object> stmtArgs = new ArrayList<Object>();
-        String stmt = "$N.$N = ";
-        stmtArgs.add(TARGET);
-        stmtArgs.add(field.getName());
-
-        if (field.needsToBeCast()) {
-            stmt = stmt.concat("($T)");
-            stmtArgs.add(field.getType());
-        }
-        stmt = stmt.concat("$N.get$LExtra($S");
-        stmtArgs.add(INTENT);
-        stmtArgs.add(field.getIntentType());
-        stmtArgs.add(field.getKey().getValue());
-
-        if (field.hasDefault()) {
-            stmt = stmt.concat(", $N.$N");
-            stmtArgs.add(TARGET);
-            stmtArgs.add(field.getName());
+    /**
+     * Set every injected field back to its default value, so the target can be injected again as if it was new.
+     */
+    private void addResetMethod(TypeSpec.Builder injectorBuilder) {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(RESET_EXTRAS_METHOD)
+                .addModifiers(PUBLIC, STATIC)
+                .addParameter(ParameterSpec.builder(ClassName.get(targetType), TARGET).build());
+        if (parentInjector != null) {
+            methodBuilder.addStatement("$T.$L($N)", parentInjector, RESET_EXTRAS_METHOD, TARGET);
         }
-        stmt = stmt.concat(")");
-        methodBuilder.addStatement(stmt, stmtArgs.toArray(new Object[stmtArgs.size()]));
-        if (field.isRequired()) {
-            methodBuilder.nextControlFlow("else")
-            .addStatement("throw new $T($S)", IllegalStateException.class, String.format("Required Extra with key '%s' was not found for '%s'."
-                    + "If this is not required add '@NotRequired' annotation.", field.getKey().getValue(), field.getName()));
+        for (IntentFieldBinding field : getAllFields()) {
+            TypeKind kind = field.getType().getKind();
+            if (kind == TypeKind.BOOLEAN) {
+                methodBuilder.addStatement("$N.$N = false", TARGET, field.getName());
+            } else if (kind.isPrimitive()) {
+                methodBuilder.addStatement("$N.$N = 0", TARGET, field.getName());
+            } else {
+                methodBuilder.addStatement("$N.$N = null", TARGET, field.getName());
+            }
         }
-        methodBuilder.endControlFlow();
+        injectorBuilder.addMethod(methodBuilder.build());
     }
 
-    public void setParentAdapter(String packageName, String className) {
-        this.parentAdapter = ClassName.get(packageName, className);
+    public void setParentInjector(ClassName parentInjector) {
+        this.parentInjector = parentInjector;
     }
 }
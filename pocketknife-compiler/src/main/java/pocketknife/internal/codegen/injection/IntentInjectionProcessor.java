@@ -1,5 +1,7 @@
 package pocketknife.internal.codegen.injection;
 
+import pocketknife.Consume;
+import pocketknife.Handoff;
 import pocketknife.InjectExtra;
 import pocketknife.NotRequired;
 import pocketknife.internal.codegen.IntentFieldBinding;
@@ -17,6 +19,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,9 +48,17 @@ public class IntentInjectionProcessor extends InjectionProcessor {
 
         // Try to find a parent adapter for each adapter
         for (Map.Entry<TypeElement, IntentInjectionAdapterGenerator> entry : targetClassMap.entrySet()) {
-            TypeElement parent = findParent(entry.getKey(), erasedTargetNames);
+            TypeElement typeElement = entry.getKey();
+            List<TypeElement> flattened = findFlattenedParents(typeElement, erasedTargetNames);
+            for (int i = flattened.size() - 1; i >= 0; i--) {
+                entry.getValue().addInheritedFields(targetClassMap.get(flattened.get(i)));
+            }
+            if (!flattened.isEmpty()) {
+                typeElement = flattened.get(flattened.size() - 1);
+            }
+            TypeElement parent = findParent(typeElement, erasedTargetNames);
             if (parent != null) {
-                entry.getValue().setParentAdapter(getPackageName(parent), parent.getSimpleName() + INTENT_ADAPTER_SUFFIX);
+                entry.getValue().setParentInjector(getInjectorClassName(parent));
             }
         }
 
@@ -71,14 +82,26 @@ public class IntentInjectionProcessor extends InjectionProcessor {
 
         // Assemble information on the injection point
         String name = element.getSimpleName().toString();
-        String intentType = typeUtil.getIntentType(type);
+        TypeMirror converter = typeUtil.getConverter(element);
+        String intentType = null;
+        if (converter == null) {
+            intentType = typeUtil.getIntentType(type);
+        }
         String key = getKey(element);
         boolean required = element.getAnnotation(NotRequired.class) == null;
-        boolean hasDefault = typeUtil.isPrimitive(type);
-        boolean needsToBeCast = typeUtil.needToCastIntentType(type);
+        boolean hasDefault = converter == null && typeUtil.isPrimitive(type);
+        boolean needsToBeCast = converter == null && typeUtil.needToCastIntentType(type);
+        boolean handoff = element.getAnnotation(Handoff.class) != null;
+        if (handoff && (converter != null || typeUtil.isLazy(type))) {
+            throw new IllegalStateException("@Handoff can't be used on Lazy fields or with a @BundleConverter");
+        }
+        boolean consume = element.getAnnotation(Consume.class) != null;
+        if (consume && (converter != null || typeUtil.isLazy(type))) {
+            throw new IllegalStateException("@Consume can't be used on Lazy fields or with a @BundleConverter");
+        }
 
         IntentInjectionAdapterGenerator intentInjectionAdapterGenerator = getOrCreateTargetClass(targetClassMap, enclosingElement);
-        IntentFieldBinding binding = new IntentFieldBinding(name, type, intentType, key, needsToBeCast, hasDefault, required);
+        IntentFieldBinding binding = new IntentFieldBinding(name, type, intentType, key, converter, handoff, needsToBeCast, hasDefault, required, consume);
         intentInjectionAdapterGenerator.addField(binding);
 
         // Add the type-erased version to the valid targets set.
@@ -89,7 +112,7 @@ public class IntentInjectionProcessor extends InjectionProcessor {
         if (isDefaultAnnotationElement(element, InjectExtra.class.getName(), "value")) {
             return generateKey(IntentFieldBinding.KEY_PREFIX, element.getSimpleName().toString());
         }
-        return element.getAnnotation(InjectExtra.class).value();
+        return explicitKey(element.getAnnotation(InjectExtra.class).value());
     }
 
     private IntentInjectionAdapterGenerator getOrCreateTargetClass(Map<TypeElement, IntentInjectionAdapterGenerator> targetClassMap,
@@ -100,7 +123,8 @@ public class IntentInjectionProcessor extends InjectionProcessor {
             String classPackage = getPackageName(enclosingElement);
             String className = getClassName(enclosingElement, classPackage) + INTENT_ADAPTER_SUFFIX;
 
-            intentInjectionAdapterGenerator = new IntentInjectionAdapterGenerator(classPackage, className, targetType, typeUtil);
+            intentInjectionAdapterGenerator = new IntentInjectionAdapterGenerator(classPackage, className, targetType,
+                    getInjectorClassName(enclosingElement), typeUtil);
             targetClassMap.put(enclosingElement, intentInjectionAdapterGenerator);
         }
         return intentInjectionAdapterGenerator;
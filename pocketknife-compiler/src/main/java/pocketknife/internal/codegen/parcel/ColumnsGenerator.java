@@ -0,0 +1,175 @@
+package pocketknife.internal.codegen.parcel;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import pocketknife.internal.PackedCollections;
+import pocketknife.internal.codegen.BaseGenerator;
+import pocketknife.internal.codegen.InvalidTypeException;
+import pocketknife.internal.codegen.TypeUtil;
+
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Generates the columns class of a {@code @Columnar} class. A collection is packed into a bundle holding its size and an array per field
+ * under the name of the field, plus a mask of the null elements if there are any. Elements are always unpacked as the annotated class, so
+ * packing an instance of a subclass, which would lose the fields of the subclass, throws.
+ */
+public class ColumnsGenerator extends BaseGenerator {
+
+    public static final String PACK_METHOD = "pack";
+    public static final String UNPACK_METHOD = "unpack";
+
+    // Not valid field names, so they never clash with a column
+    private static final String SIZE_KEY = ":size";
+    private static final String NULLS_KEY = ":nulls";
+
+    private static final String COLLECTION = "collection";
+    private static final String BUNDLE = "bundle";
+    private static final String KIND = "kind";
+    private static final String SIZE = "size";
+    private static final String NULLS = "nulls";
+    private static final String INDEX = "i";
+    private static final String COLUMN_SUFFIX = "Column";
+
+    private final ClassName columns;
+    private final TypeMirror targetType;
+    private final List<VariableElement> fields = new ArrayList<VariableElement>();
+
+    public ColumnsGenerator(ClassName columns, TypeMirror targetType, TypeUtil typeUtil) {
+        super(typeUtil);
+        this.columns = columns;
+        this.targetType = targetType;
+    }
+
+    public void addField(VariableElement field) {
+        fields.add(field);
+    }
+
+    /**
+     * @throws IllegalStateException if a field type is not supported
+     */
+    public void validate() {
+        for (VariableElement field : fields) {
+            TypeMirror type = field.asType();
+            if (!type.getKind().isPrimitive() && !typeUtil.isSameType(type, typeUtil.stringType)) {
+                throw new IllegalStateException(String.format("@Columnar field type %s is not supported. (%s.%s)", type, targetType,
+                        field.getSimpleName()));
+            }
+        }
+    }
+
+    public JavaFile generate() throws InvalidTypeException {
+        TypeSpec.Builder classBuilder = TypeSpec.classBuilder(columns.simpleName())
+                .addModifiers(PUBLIC, FINAL)
+                .addAnnotation(getGeneratedAnnotationSpec(ColumnsGenerator.class))
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(PRIVATE)
+                        .addStatement("throw new $T($S)", AssertionError.class, "No instances.")
+                        .build())
+                .addMethod(generatePackMethod())
+                .addMethod(generateUnpackMethod());
+        return JavaFile.builder(columns.packageName(), classBuilder.build()).build();
+    }
+
+    private MethodSpec generatePackMethod() throws InvalidTypeException {
+        TypeName target = TypeName.get(targetType);
+        TypeName bundle = ClassName.get(typeUtil.bundleType);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(PACK_METHOD)
+                .addModifiers(PUBLIC, STATIC)
+                .returns(bundle)
+                .addParameter(ParameterizedTypeName.get(ClassName.get(Collection.class), WildcardTypeName.subtypeOf(target)), COLLECTION)
+                .beginControlFlow("if ($N == null)", COLLECTION)
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("int $N = $N.size()", SIZE, COLLECTION);
+        for (VariableElement field : fields) {
+            TypeName type = TypeName.get(field.asType());
+            methodBuilder.addStatement("$T[] $N = new $T[$N]", type, getColumn(field), type, SIZE);
+        }
+        methodBuilder.addStatement("boolean[] $N = null", NULLS)
+                .addStatement("int $N = 0", INDEX)
+                .beginControlFlow("for ($T $N : $N)", target, VALUE, COLLECTION)
+                .beginControlFlow("if ($N == null)", VALUE)
+                .beginControlFlow("if ($N == null)", NULLS)
+                .addStatement("$N = new boolean[$N]", NULLS, SIZE)
+                .endControlFlow()
+                .addStatement("$N[$N] = true", NULLS, INDEX)
+                .nextControlFlow("else")
+                .beginControlFlow("if ($N.getClass() != $T.class)", VALUE, TypeName.get(typeUtil.erasure(targetType)))
+                .addStatement("throw new $T($S + $N.getClass().getName() + $S)", IllegalArgumentException.class, "Unable to pack a ", VALUE,
+                        String.format(" as a %s, its own fields would be lost.", typeUtil.erasure(targetType)))
+                .endControlFlow();
+        for (VariableElement field : fields) {
+            methodBuilder.addStatement("$N[$N] = $N.$N", getColumn(field), INDEX, VALUE, field.getSimpleName().toString());
+        }
+        methodBuilder.endControlFlow()
+                .addStatement("$N++", INDEX)
+                .endControlFlow()
+                .addStatement("$T $N = new $T()", bundle, BUNDLE, bundle)
+                .addStatement("$N.putInt($S, $N)", BUNDLE, SIZE_KEY, SIZE);
+        for (VariableElement field : fields) {
+            methodBuilder.addStatement("$N.put$LArray($S, $N)", BUNDLE, typeUtil.getBundleType(field.asType()), field.getSimpleName().toString(),
+                    getColumn(field));
+        }
+        methodBuilder.beginControlFlow("if ($N != null)", NULLS)
+                .addStatement("$N.putBooleanArray($S, $N)", BUNDLE, NULLS_KEY, NULLS)
+                .endControlFlow()
+                .addStatement("return $N", BUNDLE);
+        return methodBuilder.build();
+    }
+
+    private MethodSpec generateUnpackMethod() throws InvalidTypeException {
+        TypeName target = TypeName.get(targetType);
+        TypeName collection = ParameterizedTypeName.get(ClassName.get(Collection.class), target);
+        TypeVariableName c = TypeVariableName.get("C", collection);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(UNPACK_METHOD)
+                .addAnnotation(UNCHECKED)
+                .addModifiers(PUBLIC, STATIC)
+                .addTypeVariable(c)
+                .returns(c)
+                .addParameter(ClassName.get(typeUtil.bundleType), BUNDLE)
+                .addParameter(int.class, KIND)
+                .beginControlFlow("if ($N == null)", BUNDLE)
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("int $N = $N.getInt($S)", SIZE, BUNDLE, SIZE_KEY);
+        for (VariableElement field : fields) {
+            methodBuilder.addStatement("$T[] $N = $N.get$LArray($S)", TypeName.get(field.asType()), getColumn(field), BUNDLE,
+                    typeUtil.getBundleType(field.asType()), field.getSimpleName().toString());
+        }
+        methodBuilder.addStatement("boolean[] $N = $N.getBooleanArray($S)", NULLS, BUNDLE, NULLS_KEY)
+                .addStatement("$T $N = $T.newCollection($N, $N)", collection, COLLECTION, PackedCollections.class, KIND, SIZE)
+                .beginControlFlow("for (int $N = 0; $N < $N; $N++)", INDEX, INDEX, SIZE, INDEX)
+                .beginControlFlow("if ($N != null && $N[$N])", NULLS, NULLS, INDEX)
+                .addStatement("$N.add(null)", COLLECTION)
+                .nextControlFlow("else")
+                .addStatement("$T $N = new $T()", target, VALUE, target);
+        for (VariableElement field : fields) {
+            methodBuilder.addStatement("$N.$N = $N[$N]", VALUE, field.getSimpleName().toString(), getColumn(field), INDEX);
+        }
+        methodBuilder.addStatement("$N.add($N)", COLLECTION, VALUE)
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return ($T) $N", c, COLLECTION);
+        return methodBuilder.build();
+    }
+
+    private String getColumn(VariableElement field) {
+        return field.getSimpleName() + COLUMN_SUFFIX;
+    }
+}
@@ -0,0 +1,186 @@
+package pocketknife.internal.codegen.parcel;
+
+import pocketknife.Columnar;
+import pocketknife.PocketParcel;
+import pocketknife.internal.codegen.BaseProcessor;
+import pocketknife.internal.codegen.TypeUtil;
+
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static javax.lang.model.element.ElementKind.CLASS;
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.TRANSIENT;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static pocketknife.internal.GeneratedAdapters.ANDROID_PREFIX;
+import static pocketknife.internal.GeneratedAdapters.JAVA_PREFIX;
+
+public class ParcelProcessor extends BaseProcessor {
+
+    protected final Messager messager;
+    protected final Elements elements;
+    protected final Types types;
+    protected final TypeUtil typeUtil;
+
+    public ParcelProcessor(Messager messager, Elements elements, Types types) {
+        this.messager = messager;
+        this.elements = elements;
+        this.types = types;
+        this.typeUtil = TypeUtil.getInstance(elements, types);
+    }
+
+    protected void error(Element element, String message, Object... args) {
+        if (args.length > 0) {
+            message = String.format(message, args);
+        }
+        messager.printMessage(ERROR, message, element);
+    }
+
+    public Map<TypeElement, ParcelableGenerator> findAndParseTargets(RoundEnvironment roundEnv) {
+        Map<TypeElement, ParcelableGenerator> targetMap = new LinkedHashMap<TypeElement, ParcelableGenerator>();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(PocketParcel.class)) {
+            try {
+                TypeElement typeElement = (TypeElement) element;
+                validateTarget(typeElement, PocketParcel.class);
+                ParcelableGenerator generator = new ParcelableGenerator(typeUtil.getParcelableWrapper(typeElement.asType()), typeElement.asType(),
+                        typeUtil);
+                for (VariableElement field : getFields(typeElement, PocketParcel.class)) {
+                    generator.addField(field);
+                }
+                generator.validate();
+                targetMap.put(typeElement, generator);
+            } catch (Exception e) {
+                error(element, "Unable to generate @%s wrapper.\n\n%s", PocketParcel.class.getSimpleName(), e.getMessage());
+            }
+        }
+
+        return targetMap;
+    }
+
+    public Map<TypeElement, ColumnsGenerator> findAndParseColumnarTargets(RoundEnvironment roundEnv) {
+        Map<TypeElement, ColumnsGenerator> targetMap = new LinkedHashMap<TypeElement, ColumnsGenerator>();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Columnar.class)) {
+            try {
+                TypeElement typeElement = (TypeElement) element;
+                validateTarget(typeElement, Columnar.class);
+                ColumnsGenerator generator = new ColumnsGenerator(typeUtil.getColumnsClass(typeElement.asType()), typeElement.asType(), typeUtil);
+                for (VariableElement field : getFields(typeElement, Columnar.class)) {
+                    generator.addField(field);
+                }
+                generator.validate();
+                targetMap.put(typeElement, generator);
+            } catch (Exception e) {
+                error(element, "Unable to generate @%s columns.\n\n%s", Columnar.class.getSimpleName(), e.getMessage());
+            }
+        }
+
+        return targetMap;
+    }
+
+    /**
+     * @return the non-static, non-transient fields of the class and of its superclasses, which are all stored. Fields of the top of the
+     * hierarchy come first. Superclasses in the Java or Android framework are not walked.
+     */
+    private List<VariableElement> getFields(TypeElement typeElement, Class<? extends Annotation> annotation) {
+        List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+        for (TypeElement type = typeElement; type != null; type = getSuperclass(type)) {
+            hierarchy.add(0, type);
+        }
+        // The generated class is in the package of the annotated class
+        String packageName = getPackageName(typeElement);
+        Set<String> names = new HashSet<String>();
+        List<VariableElement> fields = new ArrayList<VariableElement>();
+        for (TypeElement type : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(STATIC) || modifiers.contains(TRANSIENT)) {
+                    continue;
+                }
+                if (modifiers.contains(PRIVATE) || modifiers.contains(FINAL)) {
+                    throw new IllegalStateException(String.format("@%s fields must not be private or final. (%s.%s)",
+                            annotation.getSimpleName(), type.getQualifiedName(), field.getSimpleName()));
+                }
+                if (!modifiers.contains(PUBLIC) && !packageName.equals(getPackageName(type))) {
+                    throw new IllegalStateException(String.format("@%s fields inherited from another package must be public. (%s.%s)",
+                            annotation.getSimpleName(), type.getQualifiedName(), field.getSimpleName()));
+                }
+                if (!names.add(field.getSimpleName().toString())) {
+                    throw new IllegalStateException(String.format("@%s fields must not hide an inherited field. (%s.%s)",
+                            annotation.getSimpleName(), type.getQualifiedName(), field.getSimpleName()));
+                }
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * @return the superclass whose fields are stored as well, or {@code null} at the top of the hierarchy or in a framework class.
+     */
+    private TypeElement getSuperclass(TypeElement typeElement) {
+        TypeMirror superclass = typeElement.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+        String qualifiedName = superElement.getQualifiedName().toString();
+        if (qualifiedName.startsWith(JAVA_PREFIX) || qualifiedName.startsWith(ANDROID_PREFIX)) {
+            return null;
+        }
+        return superElement;
+    }
+
+    private String getPackageName(TypeElement type) {
+        return elements.getPackageOf(type).getQualifiedName().toString();
+    }
+
+    private void validateTarget(TypeElement typeElement, Class<? extends Annotation> annotation) {
+        String name = typeElement.getQualifiedName().toString();
+        if (typeElement.getKind() != CLASS) {
+            throw new IllegalStateException(String.format("@%s may only be used on classes. (%s)", annotation.getSimpleName(), name));
+        }
+        Set<Modifier> modifiers = typeElement.getModifiers();
+        if (modifiers.contains(PRIVATE) || modifiers.contains(ABSTRACT)) {
+            throw new IllegalStateException(String.format("@%s classes must not be private or abstract. (%s)", annotation.getSimpleName(),
+                    name));
+        }
+        if (typeElement.getNestingKind() != NestingKind.TOP_LEVEL && !modifiers.contains(STATIC)) {
+            throw new IllegalStateException(String.format("Nested @%s classes must be static. (%s)", annotation.getSimpleName(), name));
+        }
+        if (!typeElement.getTypeParameters().isEmpty()) {
+            throw new IllegalStateException(String.format("@%s classes must not be generic. (%s)", annotation.getSimpleName(), name));
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(PRIVATE)) {
+                return;
+            }
+        }
+        throw new IllegalStateException(String.format("@%s classes need a non-private no-argument constructor. (%s)",
+                annotation.getSimpleName(), name));
+    }
+}
@@ -0,0 +1,341 @@
+package pocketknife.internal.codegen.parcel;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import pocketknife.internal.codegen.BaseGenerator;
+import pocketknife.internal.codegen.TypeUtil;
+
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.util.ArrayList;
+import java.util.List;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Generates the {@code Parcelable} wrapper of a {@code @PocketParcel} class. Fields are written one by one with the matching
+ * {@code Parcel} method, nested {@code @PocketParcel} values through the static methods of their own wrapper. A value is always read back
+ * as the annotated class, so writing an instance of a subclass, which would lose the fields of the subclass, throws. So does a cyclic
+ * reference between nested values, which would never end.
+ */
+public class ParcelableGenerator extends BaseGenerator {
+
+    public static final String WRAP_METHOD = "wrap";
+    public static final String UNWRAP_METHOD = "unwrap";
+    public static final String WRITE_METHOD = "write";
+    public static final String READ_METHOD = "read";
+
+    private static final String CREATOR = "CREATOR";
+    private static final String PARCELABLE = "parcelable";
+    private static final String DEST = "dest";
+    private static final String FLAGS = "flags";
+    private static final String IN = "in";
+    private static final String SIZE = "size";
+    private static final String PARENTS = "parents";
+    private static final String INDEX = "i";
+
+    private final ClassName wrapper;
+    private final TypeMirror targetType;
+    private final List<VariableElement> fields = new ArrayList<VariableElement>();
+
+    public ParcelableGenerator(ClassName wrapper, TypeMirror targetType, TypeUtil typeUtil) {
+        super(typeUtil);
+        this.wrapper = wrapper;
+        this.targetType = targetType;
+    }
+
+    public void addField(VariableElement field) {
+        fields.add(field);
+    }
+
+    /**
+     * @throws IllegalStateException if a field type is not supported
+     */
+    public void validate() {
+        for (VariableElement field : fields) {
+            if (!isSupported(field.asType())) {
+                throw new IllegalStateException(String.format("@PocketParcel field type %s is not supported. (%s.%s)", field.asType(), targetType,
+                        field.getSimpleName()));
+            }
+        }
+    }
+
+    public JavaFile generate() {
+        TypeName target = TypeName.get(targetType);
+        ClassName parcel = ClassName.get("android.os", "Parcel");
+        TypeName parcelable = TypeName.get(typeUtil.parcelableType);
+        TypeName creator = ParameterizedTypeName.get(ClassName.get("android.os", "Parcelable", "Creator"), wrapper);
+
+        TypeSpec creatorSpec = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(creator)
+                .addMethod(MethodSpec.methodBuilder("createFromParcel")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(wrapper)
+                        .addParameter(parcel, IN)
+                        .addStatement("return new $T($N($N))", wrapper, READ_METHOD, IN)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("newArray")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(ArrayTypeName.of(wrapper))
+                        .addParameter(int.class, SIZE)
+                        .addStatement("return new $T[$N]", wrapper, SIZE)
+                        .build())
+                .build();
+
+        TypeSpec.Builder classBuilder = TypeSpec.classBuilder(wrapper.simpleName())
+                .addModifiers(PUBLIC, FINAL)
+                .addSuperinterface(parcelable)
+                .addAnnotation(getGeneratedAnnotationSpec(ParcelableGenerator.class))
+                .addField(FieldSpec.builder(creator, CREATOR, PUBLIC, STATIC, FINAL).initializer("$L", creatorSpec).build())
+                .addField(target, VALUE, PRIVATE, FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(PRIVATE)
+                        .addParameter(target, VALUE)
+                        .addStatement("this.$N = $N", VALUE, VALUE)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder(WRAP_METHOD)
+                        .addModifiers(PUBLIC, STATIC)
+                        .returns(wrapper)
+                        .addParameter(target, VALUE)
+                        .addStatement("return new $T($N)", wrapper, VALUE)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder(UNWRAP_METHOD)
+                        .addModifiers(PUBLIC, STATIC)
+                        .returns(target)
+                        .addParameter(Object.class, PARCELABLE)
+                        .beginControlFlow("if ($N == null)", PARCELABLE)
+                        .addStatement("return null")
+                        .endControlFlow()
+                        .addStatement("return (($T) $N).$N", wrapper, PARCELABLE, VALUE)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder(WRITE_METHOD)
+                        .addModifiers(PUBLIC, STATIC)
+                        .addParameter(target, VALUE)
+                        .addParameter(parcel, DEST)
+                        .addParameter(int.class, FLAGS)
+                        .addStatement("$N($N, $N, $N, null)", WRITE_METHOD, VALUE, DEST, FLAGS)
+                        .build())
+                .addMethod(generateWriteMethod(target, parcel))
+                .addMethod(generateReadMethod(target, parcel))
+                .addMethod(MethodSpec.methodBuilder("describeContents")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(int.class)
+                        .addStatement("return 0")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("writeToParcel")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .addParameter(parcel, DEST)
+                        .addParameter(int.class, FLAGS)
+                        .addStatement("$N($N, $N, $N)", WRITE_METHOD, VALUE, DEST, FLAGS)
+                        .build());
+
+        return JavaFile.builder(wrapper.packageName(), classBuilder.build()).build();
+    }
+
+    /**
+     * {@code parents} holds the values being written that nest this one, to find a cyclic reference. It is only used if a field is of a
+     * {@code @PocketParcel} type.
+     */
+    private MethodSpec generateWriteMethod(TypeName target, ClassName parcel) {
+        TypeName parents = ParameterizedTypeName.get(List.class, Object.class);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(WRITE_METHOD)
+                .addModifiers(PUBLIC, STATIC)
+                .addParameter(target, VALUE)
+                .addParameter(parcel, DEST)
+                .addParameter(int.class, FLAGS)
+                .addParameter(parents, PARENTS)
+                .beginControlFlow("if ($N == null)", VALUE)
+                .addStatement("$N.writeByte((byte) 0)", DEST)
+                .addStatement("return")
+                .endControlFlow()
+                .beginControlFlow("if ($N.getClass() != $T.class)", VALUE, TypeName.get(typeUtil.erasure(targetType)))
+                .addStatement("throw new $T($S + $N.getClass().getName() + $S)", IllegalArgumentException.class, "Unable to write a ", VALUE,
+                        String.format(" as a %s, its own fields would be lost.", typeUtil.erasure(targetType)))
+                .endControlFlow();
+        boolean nested = false;
+        for (VariableElement field : fields) {
+            nested |= typeUtil.isPocketParcel(field.asType());
+        }
+        if (nested) {
+            methodBuilder.beginControlFlow("if ($N == null)", PARENTS)
+                    .addStatement("$N = new $T()", PARENTS, ParameterizedTypeName.get(ArrayList.class, Object.class))
+                    .endControlFlow()
+                    .beginControlFlow("for (int $N = 0; $N < $N.size(); $N++)", INDEX, INDEX, PARENTS, INDEX)
+                    .beginControlFlow("if ($N.get($N) == $N)", PARENTS, INDEX, VALUE)
+                    .addStatement("throw new $T($S)", IllegalArgumentException.class, String.format(
+                            "Unable to write a cyclic reference to a %s.", typeUtil.erasure(targetType)))
+                    .endControlFlow()
+                    .endControlFlow()
+                    .addStatement("$N.add($N)", PARENTS, VALUE);
+        }
+        methodBuilder.addStatement("$N.writeByte((byte) 1)", DEST);
+        for (VariableElement field : fields) {
+            addWriteField(methodBuilder, field.asType(), VALUE + "." + field.getSimpleName());
+        }
+        if (nested) {
+            methodBuilder.addStatement("$N.remove($N.size() - 1)", PARENTS, PARENTS);
+        }
+        return methodBuilder.build();
+    }
+
+    private MethodSpec generateReadMethod(TypeName target, ClassName parcel) {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(READ_METHOD)
+                .addModifiers(PUBLIC, STATIC)
+                .returns(target)
+                .addParameter(parcel, IN)
+                .beginControlFlow("if ($N.readByte() == 0)", IN)
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("$T $N = new $T()", target, VALUE, target);
+        for (VariableElement field : fields) {
+            addReadField(methodBuilder, field.asType(), VALUE + "." + field.getSimpleName());
+        }
+        methodBuilder.addStatement("return $N", VALUE);
+        return methodBuilder.build();
+    }
+
+    private boolean isSupported(TypeMirror type) {
+        if (type.getKind().isPrimitive() || typeUtil.unbox(type) != null || typeUtil.isPocketParcel(type)) {
+            return true;
+        }
+        if (type.getKind() == TypeKind.ARRAY) {
+            TypeMirror componentType = ((ArrayType) type).getComponentType();
+            return (componentType.getKind().isPrimitive() && componentType.getKind() != TypeKind.SHORT) || isString(componentType);
+        }
+        return isString(type) || typeUtil.isSameType(type, typeUtil.bundleType) || typeUtil.isAssignable(type, typeUtil.parcelableType);
+    }
+
+    private boolean isString(TypeMirror type) {
+        return typeUtil.isSameType(type, typeUtil.stringType);
+    }
+
+    private void addWriteField(MethodSpec.Builder methodBuilder, TypeMirror type, String value) {
+        if (type.getKind().isPrimitive()) {
+            methodBuilder.addStatement(getPrimitiveWrite(type.getKind()), DEST, value);
+            return;
+        }
+        TypeMirror unboxed = typeUtil.unbox(type);
+        if (unboxed != null) {
+            // Boxed values are preceded by a marker so null survives the round trip
+            methodBuilder.beginControlFlow("if ($L == null)", value)
+                    .addStatement("$N.writeByte((byte) 0)", DEST)
+                    .nextControlFlow("else")
+                    .addStatement("$N.writeByte((byte) 1)", DEST)
+                    .addStatement(getPrimitiveWrite(unboxed.getKind()), DEST, value)
+                    .endControlFlow();
+            return;
+        }
+        if (typeUtil.isPocketParcel(type)) {
+            methodBuilder.addStatement("$T.$N($L, $N, $N, $N)", typeUtil.getParcelableWrapper(type), WRITE_METHOD, value, DEST, FLAGS, PARENTS);
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            methodBuilder.addStatement("$N.write$LArray($L)", DEST, getArrayType((ArrayType) type), value);
+        } else if (isString(type)) {
+            methodBuilder.addStatement("$N.writeString($L)", DEST, value);
+        } else if (typeUtil.isSameType(type, typeUtil.bundleType)) {
+            methodBuilder.addStatement("$N.writeBundle($L)", DEST, value);
+        } else {
+            methodBuilder.addStatement("$N.writeParcelable($L, $N)", DEST, value, FLAGS);
+        }
+    }
+
+    private void addReadField(MethodSpec.Builder methodBuilder, TypeMirror type, String value) {
+        if (type.getKind().isPrimitive()) {
+            methodBuilder.addStatement("$L = " + getPrimitiveRead(type.getKind()), value, IN);
+            return;
+        }
+        TypeMirror unboxed = typeUtil.unbox(type);
+        if (unboxed != null) {
+            methodBuilder.beginControlFlow("if ($N.readByte() == 0)", IN)
+                    .addStatement("$L = null", value)
+                    .nextControlFlow("else")
+                    .addStatement("$L = " + getPrimitiveRead(unboxed.getKind()), value, IN)
+                    .endControlFlow();
+            return;
+        }
+        if (typeUtil.isPocketParcel(type)) {
+            methodBuilder.addStatement("$L = $T.$N($N)", value, typeUtil.getParcelableWrapper(type), READ_METHOD, IN);
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            methodBuilder.addStatement("$L = $N.create$LArray()", value, IN, getArrayType((ArrayType) type));
+        } else if (isString(type)) {
+            methodBuilder.addStatement("$L = $N.readString()", value, IN);
+        } else if (typeUtil.isSameType(type, typeUtil.bundleType)) {
+            methodBuilder.addStatement("$L = $N.readBundle($T.class.getClassLoader())", value, IN, TypeName.get(targetType));
+        } else {
+            methodBuilder.addStatement("$L = ($T) $N.readParcelable($T.class.getClassLoader())", value, TypeName.get(type), IN,
+                    TypeName.get(targetType));
+        }
+    }
+
+    private String getArrayType(ArrayType type) {
+        TypeMirror componentType = type.getComponentType();
+        if (componentType.getKind().isPrimitive()) {
+            return getPrimitiveName(componentType.getKind());
+        }
+        return "String";
+    }
+
+    private String getPrimitiveWrite(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "$N.writeByte((byte) ($L ? 1 : 0))";
+            case BYTE:
+                return "$N.writeByte($L)";
+            case SHORT:
+            case CHAR:
+                return "$N.writeInt($L)";
+            default:
+                return "$N.write" + getPrimitiveName(kind) + "($L)";
+        }
+    }
+
+    private String getPrimitiveRead(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "$N.readByte() != 0";
+            case SHORT:
+                return "(short) $N.readInt()";
+            case CHAR:
+                return "(char) $N.readInt()";
+            default:
+                return "$N.read" + getPrimitiveName(kind) + "()";
+        }
+    }
+
+    private String getPrimitiveName(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "Boolean";
+            case BYTE:
+                return "Byte";
+            case CHAR:
+                return "Char";
+            case SHORT:
+                return "Short";
+            case INT:
+                return "Int";
+            case LONG:
+                return "Long";
+            case FLOAT:
+                return "Float";
+            case DOUBLE:
+                return "Double";
+            default:
+                throw new IllegalStateException("Unsupported primitive " + kind);
+        }
+    }
+}
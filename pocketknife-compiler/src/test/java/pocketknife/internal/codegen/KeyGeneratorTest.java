@@ -0,0 +1,87 @@
+package pocketknife.internal.codegen;
+
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.common.truth.Truth.assert_;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KeyGeneratorTest {
+
+    @Test
+    public void testLongKeys() {
+        KeyGenerator keyGenerator = new KeyGenerator(false);
+        assertEquals("ARG_SOME_LONG_FIELD_NAME", keyGenerator.generateKey("ARG_", "someLongFieldName"));
+        assertEquals("BUNDLE_SAVED", keyGenerator.shortenKey("BUNDLE_SAVED"));
+    }
+
+    @Test
+    public void testShortKeysAreDeterministic() {
+        String key = new KeyGenerator(true).generateKey("EXTRA_", "someLongFieldName");
+        assertTrue(key, key.length() <= 7);
+        // A builder and an injector processed separately agree on the key
+        assertEquals(key, new KeyGenerator(true).generateKey("EXTRA_", "someLongFieldName"));
+        assertEquals(key, new KeyGenerator(true).shortenKey("EXTRA_SOME_LONG_FIELD_NAME"));
+        assertNotEquals(key, new KeyGenerator(true).generateKey("ARG_", "someLongFieldName"));
+    }
+
+    @Test
+    public void testSameKeyTwice() {
+        KeyGenerator keyGenerator = new KeyGenerator(true);
+        String key = keyGenerator.generateKey("ARG_", "name");
+        assertEquals(key, keyGenerator.generateKey("ARG_", "name"));
+    }
+
+    @Test
+    public void testCollisionWithExplicitKey() {
+        KeyGenerator keyGenerator = new KeyGenerator(true);
+        String key = keyGenerator.generateKey("ARG_", "name");
+        try {
+            keyGenerator.addExplicitKey(key);
+            fail("Collision was not detected");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains("ARG_NAME"));
+        }
+    }
+
+    @Test
+    public void testCollisionIsCompileError() {
+        String collidingKey = new KeyGenerator(true).shortenKey("ARG_NAME");
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Target", ""
+                + "package test;\n"
+                + "import pocketknife.InjectArgument;\n"
+                + "public class Target {\n"
+                + "    @InjectArgument int name;\n"
+                + "    @InjectArgument(\"" + collidingKey + "\") int other;\n"
+                + "}\n");
+
+        assert_().about(javaSource())
+                .that(source)
+                .withCompilerOptions("-A" + PocketKnifeProcessor.OPTION_SHORT_KEYS + "=true")
+                .processedWith(new PocketKnifeProcessor())
+                .failsToCompile()
+                .withErrorContaining("are both stored as '" + collidingKey + "'");
+    }
+
+    @Test
+    public void testNoCollisionWithLongKeys() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Target", ""
+                + "package test;\n"
+                + "import pocketknife.InjectArgument;\n"
+                + "public class Target {\n"
+                + "    @InjectArgument int name;\n"
+                + "    @InjectArgument(\"" + new KeyGenerator(true).shortenKey("ARG_NAME") + "\") int other;\n"
+                + "}\n");
+
+        assert_().about(javaSource())
+                .that(source)
+                .processedWith(new PocketKnifeProcessor())
+                .compilesWithoutError();
+    }
+}
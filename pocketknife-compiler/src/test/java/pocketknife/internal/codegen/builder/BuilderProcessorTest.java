@@ -0,0 +1,78 @@
+package pocketknife.internal.codegen.builder;
+
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.Test;
+import pocketknife.internal.codegen.PocketKnifeProcessor;
+
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+
+import static com.google.common.truth.Truth.assert_;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+public class BuilderProcessorTest {
+
+    private static final JavaFileObject TARGET = JavaFileObjects.forSourceString("test.Target", ""
+            + "package test;\n"
+            + "import pocketknife.Handoff;\n"
+            + "import pocketknife.InjectExtra;\n"
+            + "public class Target extends android.app.Activity {\n"
+            + "    @InjectExtra @Handoff String handedOff;\n"
+            + "    @InjectExtra String copied;\n"
+            + "}\n");
+
+    @Test
+    public void testPairedHandoff() {
+        assert_().about(javaSources())
+                .that(Arrays.asList(TARGET, intents("@IntentBuilder(cls = Target.class) Intent get(@Handoff String handedOff, String copied);")))
+                .processedWith(new PocketKnifeProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void testHandoffParameterOnly() {
+        assert_().about(javaSources())
+                .that(Arrays.asList(TARGET, intents("@IntentBuilder(cls = Target.class) Intent get(@Handoff String handedOff, @Handoff String copied);")))
+                .processedWith(new PocketKnifeProcessor())
+                .failsToCompile()
+                .withErrorContaining("Parameter 'copied' and field test.Target.copied with key 'EXTRA_COPIED' must both be @Handoff or neither");
+    }
+
+    @Test
+    public void testHandoffFieldOnly() {
+        assert_().about(javaSources())
+                .that(Arrays.asList(TARGET, intents("@IntentBuilder(cls = Target.class) Intent get(String handedOff);")))
+                .processedWith(new PocketKnifeProcessor())
+                .failsToCompile()
+                .withErrorContaining("Parameter 'handedOff' and field test.Target.handedOff with key 'EXTRA_HANDED_OFF' must both be @Handoff");
+    }
+
+    @Test
+    public void testHandoffWithoutField() {
+        assert_().about(javaSources())
+                .that(Arrays.asList(TARGET, intents("@IntentBuilder(cls = Target.class) Intent get(@Handoff String other);")))
+                .processedWith(new PocketKnifeProcessor())
+                .failsToCompile()
+                .withErrorContaining("@Handoff parameter 'other' has no @InjectExtra field with key 'EXTRA_OTHER' in test.Target");
+    }
+
+    @Test
+    public void testHandoffWithoutCls() {
+        assert_().about(javaSources())
+                .that(Arrays.asList(TARGET, intents("@IntentBuilder(action = \"TEST\") Intent get(@Handoff String handedOff);")))
+                .processedWith(new PocketKnifeProcessor())
+                .failsToCompile()
+                .withErrorContaining("@Handoff parameter 'handedOff' needs @IntentBuilder(cls = ...)");
+    }
+
+    private static JavaFileObject intents(String method) {
+        return JavaFileObjects.forSourceString("test.Intents", ""
+                + "package test;\n"
+                + "import android.content.Intent;\n"
+                + "import pocketknife.Handoff;\n"
+                + "import pocketknife.IntentBuilder;\n"
+                + "public interface Intents {\n"
+                + "    " + method + "\n"
+                + "}\n");
+    }
+}
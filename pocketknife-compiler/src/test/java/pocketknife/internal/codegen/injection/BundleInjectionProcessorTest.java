@@ -0,0 +1,97 @@
+package pocketknife.internal.codegen.injection;
+
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.Test;
+import pocketknife.internal.codegen.PocketKnifeProcessor;
+
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+
+import static com.google.common.truth.Truth.assert_;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+public class BundleInjectionProcessorTest {
+
+    @Test
+    public void testSpillOnPrimitive() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Target", ""
+                + "package test;\n"
+                + "import pocketknife.SaveState;\n"
+                + "public class Target {\n"
+                + "    @SaveState(spill = true) int count;\n"
+                + "}\n");
+
+        assert_().about(javaSource())
+                .that(source)
+                .processedWith(new PocketKnifeProcessor())
+                .failsToCompile()
+                .withErrorContaining("@SaveState(spill = true) can't be used on primitive fields");
+    }
+
+    @Test
+    public void testSpillOnObject() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Target", ""
+                + "package test;\n"
+                + "import pocketknife.SaveState;\n"
+                + "public class Target {\n"
+                + "    @SaveState(spill = true) String name;\n"
+                + "}\n");
+
+        assert_().about(javaSource())
+                .that(source)
+                .processedWith(new PocketKnifeProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void testLazyReadsWithoutRedundantCasts() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Target", ""
+                + "package test;\n"
+                + "import android.os.Bundle;\n"
+                + "import java.util.ArrayList;\n"
+                + "import pocketknife.InjectArgument;\n"
+                + "import pocketknife.Lazy;\n"
+                + "import pocketknife.SaveState;\n"
+                + "public class Target {\n"
+                + "    @SaveState Lazy<String> name;\n"
+                + "    @SaveState Lazy<ArrayList<String>> names;\n"
+                + "    @InjectArgument(\"ARGS\") Lazy<Bundle> args;\n"
+                + "    @InjectArgument(\"COUNT\") Lazy<Integer> count;\n"
+                + "}\n");
+
+        assert_().about(javaSource())
+                .that(source)
+                .withCompilerOptions("-Xlint:cast", "-Werror")
+                .processedWith(new PocketKnifeProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void testColumnarReadsWithoutRedundantCasts() {
+        JavaFileObject reading = JavaFileObjects.forSourceString("test.Reading", ""
+                + "package test;\n"
+                + "import pocketknife.Columnar;\n"
+                + "@Columnar\n"
+                + "public class Reading {\n"
+                + "    long time;\n"
+                + "}\n");
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Target", ""
+                + "package test;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "import pocketknife.InjectArgument;\n"
+                + "import pocketknife.Lazy;\n"
+                + "import pocketknife.SaveState;\n"
+                + "public class Target {\n"
+                + "    @SaveState ArrayList<Reading> readings;\n"
+                + "    @InjectArgument(\"HISTORY\") Lazy<List<Reading>> history;\n"
+                + "}\n");
+
+        assert_().about(javaSources())
+                .that(Arrays.asList(reading, source))
+                .withCompilerOptions("-Xlint:cast", "-Werror")
+                .processedWith(new PocketKnifeProcessor())
+                .compilesWithoutError();
+    }
+}
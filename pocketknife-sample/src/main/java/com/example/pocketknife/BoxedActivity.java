@@ -0,0 +1,44 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.InjectExtra;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+public class BoxedActivity extends FragmentActivity {
+
+    public static final String COUNT_EXTRA = "COUNT_EXTRA";
+    public static final String ID_EXTRA = "ID_EXTRA";
+
+    @InjectExtra(COUNT_EXTRA)
+    Integer count;
+
+    @InjectExtra(ID_EXTRA)
+    @NotRequired
+    Long id = -1L;
+
+    @SaveState
+    @NotRequired
+    Boolean flag;
+
+    @SaveState
+    @NotRequired
+    Double ratio = 1.0;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.injectExtras(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
@@ -2,11 +2,17 @@ package com.example.pocketknife;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.LongSparseArray;
+import android.util.SparseIntArray;
 import pocketknife.BundleBuilder;
 import pocketknife.FragmentBuilder;
 import pocketknife.IntentBuilder;
 import pocketknife.Key;
 
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+
 public interface Builder {
 
     @BundleBuilder
@@ -17,4 +23,15 @@ public interface Builder {
 
     @FragmentBuilder
     ParentFragment getFragment(int parentArg);
+
+    @FragmentBuilder
+    ValueTypesFragment getValueTypesFragment(@Key(ValueTypesFragment.COLOR_ARG) ValueTypesFragment.Color color, @Key(ValueTypesFragment.ID_ARG) UUID id,
+                                             @Key(ValueTypesFragment.DATE_ARG) Date date, @Key(ValueTypesFragment.AMOUNT_ARG) BigDecimal amount);
+
+    @IntentBuilder(action = "TEST")
+    Intent getValueTypesIntent(ValueTypesFragment.Color color, UUID id, Date date, BigDecimal amount);
+
+    @FragmentBuilder
+    SparseArraysFragment getSparseArraysFragment(@Key(SparseArraysFragment.COUNTS_ARG) SparseIntArray counts,
+                                                 @Key(SparseArraysFragment.NAMES_ARG) LongSparseArray<String> names);
 }
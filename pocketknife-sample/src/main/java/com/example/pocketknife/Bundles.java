@@ -5,6 +5,8 @@ import pocketknife.BundleBuilder;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public interface Bundles {
 
@@ -27,4 +29,12 @@ public interface Bundles {
                      MyParcelable[] parcelables, ArrayList<MyParcelable> parcelableArrayList, Serializable serializable, short aShort, short[] shorts,
                      String string, String[] strings, ArrayList<String> stringArrayList);
 
+    @BundleBuilder
+    Bundle getBoxedBundle(Integer integer, Long aLong, Character character);
+
+    @BundleBuilder
+    Bundle getCollectionsBundle(List<Long> longs, Map<String, Integer> map);
+
+    @BundleBuilder
+    Bundle getConverterBundle(Money money, int count);
 }
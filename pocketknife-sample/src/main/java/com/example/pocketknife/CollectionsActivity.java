@@ -0,0 +1,66 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.InjectExtra;
+import pocketknife.Lazy;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+public class CollectionsActivity extends FragmentActivity {
+
+    public static final String IDS_EXTRA = "IDS_EXTRA";
+    public static final String NAMES_EXTRA = "NAMES_EXTRA";
+    public static final String FLOATS_EXTRA = "FLOATS_EXTRA";
+
+    @InjectExtra(IDS_EXTRA)
+    ArrayList<Long> ids;
+
+    @InjectExtra(NAMES_EXTRA)
+    @NotRequired
+    List<String> names;
+
+    @InjectExtra(FLOATS_EXTRA)
+    @NotRequired
+    Lazy<LinkedList<Float>> floats;
+
+    @SaveState
+    @NotRequired
+    Set<Integer> ints;
+
+    @SaveState
+    @NotRequired
+    SortedSet<Double> sorted;
+
+    @SaveState
+    @NotRequired
+    HashMap<String, Long> counts;
+
+    @SaveState
+    @NotRequired
+    Map<String, String> labels;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.injectExtras(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.InjectExtra;
+import pocketknife.Lazy;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ColumnarActivity extends FragmentActivity {
+
+    public static final String HISTORY_EXTRA = "HISTORY_EXTRA";
+
+    @InjectExtra(HISTORY_EXTRA)
+    @NotRequired
+    Lazy<List<Reading>> history;
+
+    @SaveState
+    @NotRequired
+    ArrayList<Reading> readings;
+
+    @SaveState
+    @NotRequired
+    ArrayList<LabeledReading> labeledReadings;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.injectExtras(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.CompactState;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+import java.util.ArrayList;
+
+@CompactState
+public class CompactStateActivity extends FragmentActivity {
+
+    @SaveState
+    int page;
+
+    @SaveState
+    boolean expanded;
+
+    @SaveState
+    long id;
+
+    @SaveState
+    double ratio;
+
+    @SaveState
+    char initial;
+
+    @SaveState
+    String query;
+
+    @SaveState
+    @NotRequired
+    String hint = "hint";
+
+    @SaveState
+    @NotRequired
+    ArrayList<String> history;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.Consume;
+import pocketknife.InjectExtra;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+import java.util.ArrayList;
+
+public class ConsumeActivity extends FragmentActivity {
+
+    public static final String ITEMS_EXTRA = "ITEMS_EXTRA";
+    public static final String TITLE_EXTRA = "TITLE_EXTRA";
+
+    @InjectExtra(ITEMS_EXTRA)
+    @Consume
+    @SaveState(retain = true)
+    ArrayList<MyParcelable> items;
+
+    @InjectExtra(TITLE_EXTRA)
+    @NotRequired
+    String title;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.injectExtras(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
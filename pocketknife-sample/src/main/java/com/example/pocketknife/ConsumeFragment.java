@@ -0,0 +1,38 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import pocketknife.Consume;
+import pocketknife.InjectArgument;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+public class ConsumeFragment extends Fragment {
+
+    public static final String DATA_ARG = "DATA_ARG";
+    public static final String COUNT_ARG = "COUNT_ARG";
+
+    @InjectArgument(DATA_ARG)
+    @Consume
+    @SaveState(retain = true)
+    byte[] data;
+
+    @InjectArgument(COUNT_ARG)
+    @Consume
+    @NotRequired
+    int count;
+
+    @Override
+    public void onActivityCreated(Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        PocketKnife.injectArguments(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
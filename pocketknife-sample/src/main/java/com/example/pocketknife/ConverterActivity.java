@@ -0,0 +1,47 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.BundleConverter;
+import pocketknife.InjectExtra;
+import pocketknife.Lazy;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+public class ConverterActivity extends FragmentActivity {
+
+    public static final String PRICE_EXTRA = "PRICE_EXTRA";
+    public static final String CODE_EXTRA = "CODE_EXTRA";
+
+    @InjectExtra(PRICE_EXTRA)
+    Money price;
+
+    @InjectExtra(CODE_EXTRA)
+    @NotRequired
+    @BundleConverter(UpperCaseConverter.class)
+    String code;
+
+    @SaveState
+    @NotRequired
+    Money total;
+
+    @SaveState
+    @NotRequired
+    Lazy<Money> discount;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.injectExtras(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
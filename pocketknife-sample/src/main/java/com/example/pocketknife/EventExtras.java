@@ -0,0 +1,27 @@
+package com.example.pocketknife;
+
+import pocketknife.InjectExtra;
+import pocketknife.NotRequired;
+
+public class EventExtras {
+
+    public static final String ID_EXTRA = "ID_EXTRA";
+    public static final String NAME_EXTRA = "NAME_EXTRA";
+    public static final String URGENT_EXTRA = "URGENT_EXTRA";
+    public static final String LEVEL_EXTRA = "LEVEL_EXTRA";
+
+    @InjectExtra(ID_EXTRA)
+    long id;
+
+    @InjectExtra(NAME_EXTRA)
+    @NotRequired
+    String name;
+
+    @InjectExtra(URGENT_EXTRA)
+    @NotRequired
+    boolean urgent;
+
+    @InjectExtra(LEVEL_EXTRA)
+    @NotRequired
+    char level;
+}
@@ -0,0 +1,38 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.Handoff;
+import pocketknife.InjectExtra;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+
+import java.util.ArrayList;
+
+public class HandoffActivity extends FragmentActivity {
+
+    public static final String ITEMS_EXTRA = "ITEMS_EXTRA";
+    public static final String SELECTED_EXTRA = "SELECTED_EXTRA";
+    public static final String TITLE_EXTRA = "TITLE_EXTRA";
+
+    @InjectExtra(ITEMS_EXTRA)
+    @Handoff
+    ArrayList<MyParcelable> items;
+
+    @InjectExtra(SELECTED_EXTRA)
+    @Handoff
+    @NotRequired
+    MyParcelable selected;
+
+    @InjectExtra(TITLE_EXTRA)
+    @NotRequired
+    String title;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.injectExtras(this);
+    }
+}
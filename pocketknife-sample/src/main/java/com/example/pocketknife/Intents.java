@@ -3,11 +3,15 @@ package com.example.pocketknife;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import pocketknife.BundleConverter;
 import pocketknife.Data;
+import pocketknife.Handoff;
 import pocketknife.IntentBuilder;
+import pocketknife.Key;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 
 public interface Intents {
 
@@ -64,4 +68,21 @@ public interface Intents {
                      float[] floats, int anInt, int[] ints, ArrayList<Integer> integerArrayList, long aLong, long[] longs, MyParcelable parcelable,
                      MyParcelable[] parcelables, ArrayList<MyParcelable> parcelableArrayList, Serializable serializable, short aShort, short[] shorts,
                      String string, String[] strings, ArrayList<String> stringArrayList);
-}
\ No newline at end of file
+
+    @IntentBuilder(cls = PocketParcelActivity.class)
+    Intent getPocketParcelActivity(@Key(PocketParcelActivity.POINT_EXTRA) Point point);
+
+    @IntentBuilder(cls = BoxedActivity.class)
+    Intent getBoxedActivity(@Key(BoxedActivity.COUNT_EXTRA) Integer count, @Key(BoxedActivity.ID_EXTRA) Long id);
+
+    @IntentBuilder(cls = CollectionsActivity.class)
+    Intent getCollectionsActivity(@Key(CollectionsActivity.IDS_EXTRA) ArrayList<Long> ids, @Key(CollectionsActivity.NAMES_EXTRA) List<String> names);
+
+    @IntentBuilder(cls = ConverterActivity.class)
+    Intent getConverterActivity(@Key(ConverterActivity.PRICE_EXTRA) Money price,
+                                @Key(ConverterActivity.CODE_EXTRA) @BundleConverter(UpperCaseConverter.class) String code);
+
+    @IntentBuilder(cls = HandoffActivity.class)
+    Intent getHandoffActivity(@Key(HandoffActivity.ITEMS_EXTRA) @Handoff ArrayList<MyParcelable> items,
+                              @Key(HandoffActivity.SELECTED_EXTRA) @Handoff MyParcelable selected, @Key(HandoffActivity.TITLE_EXTRA) String title);
+}
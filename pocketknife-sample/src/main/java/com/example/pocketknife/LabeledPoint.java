@@ -0,0 +1,16 @@
+package com.example.pocketknife;
+
+import pocketknife.PocketParcel;
+
+@PocketParcel
+public class LabeledPoint extends Point {
+    String caption;
+
+    public LabeledPoint() {
+    }
+
+    public LabeledPoint(int x, int y, String caption) {
+        super(x, y);
+        this.caption = caption;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.pocketknife;
+
+import pocketknife.Columnar;
+
+@Columnar
+public class LabeledReading extends Reading {
+    String label;
+
+    public LabeledReading() {
+    }
+
+    public LabeledReading(long time, int sensor, float value, String unit, String label) {
+        super(time, sensor, value, unit);
+        this.label = label;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.InjectExtra;
+import pocketknife.Lazy;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+import java.util.ArrayList;
+
+public class LazyActivity extends FragmentActivity {
+
+    public static final String PARCELABLE_EXTRA = "PARCELABLE_EXTRA";
+    public static final String STRING_EXTRA = "STRING_EXTRA";
+
+    @InjectExtra(PARCELABLE_EXTRA)
+    Lazy<MyParcelable> parcelable;
+
+    @InjectExtra(STRING_EXTRA)
+    @NotRequired
+    Lazy<String> string;
+
+    @SaveState
+    @NotRequired
+    Lazy<ArrayList<String>> strings;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.injectExtras(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
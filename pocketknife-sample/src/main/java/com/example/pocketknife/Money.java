@@ -0,0 +1,28 @@
+package com.example.pocketknife;
+
+import pocketknife.BundleConverter;
+
+@BundleConverter(MoneyConverter.class)
+public class Money {
+    final long cents;
+    final String currency;
+
+    public Money(long cents, String currency) {
+        this.cents = cents;
+        this.currency = currency;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money money = (Money) o;
+        return cents == money.cents && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (int) (cents ^ (cents >>> 32)) + currency.hashCode();
+    }
+}
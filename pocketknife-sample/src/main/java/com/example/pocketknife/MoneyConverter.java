@@ -0,0 +1,30 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+
+/**
+ * Stores {@link Money} as its amount under the key and its currency under a key derived from it.
+ */
+public final class MoneyConverter {
+    static final String CURRENCY_SUFFIX = ".currency";
+
+    private MoneyConverter() {
+        throw new AssertionError("No instances.");
+    }
+
+    public static void write(Bundle bundle, String key, Money money) {
+        if (money == null) {
+            bundle.putString(key, null);
+            return;
+        }
+        bundle.putLong(key, money.cents);
+        bundle.putString(key + CURRENCY_SUFFIX, money.currency);
+    }
+
+    public static Money read(Bundle bundle, String key) {
+        if (bundle.get(key) == null) {
+            return null;
+        }
+        return new Money(bundle.getLong(key), bundle.getString(key + CURRENCY_SUFFIX));
+    }
+}
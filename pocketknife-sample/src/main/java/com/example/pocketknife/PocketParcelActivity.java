@@ -0,0 +1,41 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.InjectExtra;
+import pocketknife.Lazy;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+public class PocketParcelActivity extends FragmentActivity {
+
+    public static final String POINT_EXTRA = "POINT_EXTRA";
+    public static final String LAZY_POINT_EXTRA = "LAZY_POINT_EXTRA";
+
+    @InjectExtra(POINT_EXTRA)
+    Point point;
+
+    @InjectExtra(LAZY_POINT_EXTRA)
+    @NotRequired
+    Lazy<Point> lazyPoint;
+
+    @SaveState
+    @NotRequired
+    Point saved;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.injectExtras(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
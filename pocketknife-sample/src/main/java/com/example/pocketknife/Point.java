@@ -0,0 +1,50 @@
+package com.example.pocketknife;
+
+import pocketknife.PocketParcel;
+
+import java.util.Arrays;
+
+@PocketParcel
+public class Point {
+    int x;
+    int y;
+    char name;
+    boolean visible;
+    String label;
+    Integer weight;
+    long[] history;
+    MyParcelable parcelable;
+    Point next;
+    transient int hash;
+
+    public Point() {
+    }
+
+    public Point(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Point)) {
+            return false;
+        }
+        Point point = (Point) o;
+        return x == point.x && y == point.y && name == point.name && visible == point.visible && equal(label, point.label)
+                && equal(weight, point.weight) && Arrays.equals(history, point.history) && equal(parcelable, point.parcelable)
+                && equal(next, point.next);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        if (a == null) {
+            return b == null;
+        }
+        return a.equals(b);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.pocketknife;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import pocketknife.Columnar;
+
+@Columnar
+public class Reading implements Parcelable {
+    long time;
+    int sensor;
+    float value;
+    String unit;
+
+    public Reading() {
+    }
+
+    public Reading(long time, int sensor, float value, String unit) {
+        this.time = time;
+        this.sensor = sensor;
+        this.value = value;
+        this.unit = unit;
+    }
+
+    private Reading(Parcel in) {
+        time = in.readLong();
+        sensor = in.readInt();
+        value = in.readFloat();
+        unit = in.readString();
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) time * 31 + sensor;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Reading)) {
+            return false;
+        }
+        Reading other = (Reading) obj;
+        if (time != other.time || sensor != other.sensor || value != other.value) {
+            return false;
+        }
+        if (unit == null) {
+            return other.unit == null;
+        }
+        return unit.equals(other.unit);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel out, int flags) {
+        out.writeLong(time);
+        out.writeInt(sensor);
+        out.writeFloat(value);
+        out.writeString(unit);
+    }
+
+    public static final Creator<Reading> CREATOR = new Creator<Reading>() {
+        @Override
+        public Reading createFromParcel(Parcel in) {
+            return new Reading(in);
+        }
+
+        @Override
+        public Reading[] newArray(int size) {
+            return new Reading[size];
+        }
+    };
+}
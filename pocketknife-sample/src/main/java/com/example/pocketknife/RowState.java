@@ -0,0 +1,44 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import pocketknife.NotRequired;
+import pocketknife.SaveState;
+
+import java.util.ArrayList;
+
+public class RowState {
+
+    @SaveState
+    long id;
+
+    @SaveState
+    boolean expanded;
+
+    @SaveState
+    @NotRequired
+    String title;
+
+    @SaveState
+    @NotRequired
+    MyParcelable selected;
+
+    @SaveState
+    @NotRequired
+    ArrayList<String> tags;
+
+    @SaveState
+    @NotRequired
+    Integer rank;
+
+    @SaveState
+    @NotRequired
+    ValueTypesFragment.Color color;
+
+    @SaveState
+    @NotRequired
+    Point position;
+
+    @SaveState
+    @NotRequired
+    Bundle extras;
+}
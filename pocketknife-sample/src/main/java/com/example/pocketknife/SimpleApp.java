@@ -7,5 +7,6 @@ public class SimpleApp extends Application {
   @Override public void onCreate() {
     super.onCreate();
     PocketKnife.setDebug(BuildConfig.DEBUG);
+    PocketKnifeIndex.install();
   }
 }
@@ -0,0 +1,45 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.util.LongSparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import pocketknife.InjectArgument;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+public class SparseArraysFragment extends Fragment {
+
+    public static final String COUNTS_ARG = "COUNTS_ARG";
+    public static final String NAMES_ARG = "NAMES_ARG";
+
+    @InjectArgument(COUNTS_ARG)
+    SparseIntArray counts;
+
+    @InjectArgument(NAMES_ARG)
+    @NotRequired
+    LongSparseArray<String> names;
+
+    @SaveState
+    @NotRequired
+    SparseBooleanArray selected;
+
+    @SaveState
+    @NotRequired
+    LongSparseArray<Long> timestamps;
+
+    @Override
+    public void onActivityCreated(Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        PocketKnife.injectArguments(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
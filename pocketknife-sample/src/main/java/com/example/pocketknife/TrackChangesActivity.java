@@ -0,0 +1,43 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.FragmentActivity;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+import pocketknife.TrackChanges;
+
+import java.util.ArrayList;
+
+@TrackChanges
+public class TrackChangesActivity extends FragmentActivity {
+
+    @SaveState
+    @NotRequired
+    MyParcelable parcelable;
+
+    @SaveState
+    @NotRequired
+    String text;
+
+    @SaveState
+    @NotRequired
+    ArrayList<String> list;
+
+    @SaveState
+    int count;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.simple_activity);
+
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+
+import java.util.Locale;
+
+public final class UpperCaseConverter {
+
+    private UpperCaseConverter() {
+        throw new AssertionError("No instances.");
+    }
+
+    public static void write(Bundle bundle, String key, String value) {
+        bundle.putString(key, value.toUpperCase(Locale.US));
+    }
+
+    public static String read(Bundle bundle, String key) {
+        return bundle.getString(key);
+    }
+}
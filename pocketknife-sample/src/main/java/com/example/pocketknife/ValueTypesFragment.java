@@ -0,0 +1,59 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import pocketknife.InjectArgument;
+import pocketknife.NotRequired;
+import pocketknife.PocketKnife;
+import pocketknife.SaveState;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+
+public class ValueTypesFragment extends Fragment {
+
+    public static final String COLOR_ARG = "COLOR_ARG";
+    public static final String ID_ARG = "ID_ARG";
+    public static final String DATE_ARG = "DATE_ARG";
+    public static final String AMOUNT_ARG = "AMOUNT_ARG";
+
+    public enum Color {
+        RED, GREEN, BLUE
+    }
+
+    @InjectArgument(COLOR_ARG)
+    Color color;
+
+    @InjectArgument(ID_ARG)
+    UUID id;
+
+    @InjectArgument(DATE_ARG)
+    @NotRequired
+    Date date;
+
+    @InjectArgument(AMOUNT_ARG)
+    @NotRequired
+    BigDecimal amount;
+
+    @SaveState
+    @NotRequired
+    Color savedColor;
+
+    @SaveState
+    @NotRequired
+    Date savedDate;
+
+    @Override
+    public void onActivityCreated(Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        PocketKnife.injectArguments(this);
+        PocketKnife.restoreInstanceState(this, savedInstanceState);
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        PocketKnife.saveInstanceState(this, outState);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.pocketknife;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pocketknife.internal.AdapterIndexes;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AdapterIndexTest {
+
+    @BeforeClass
+    public static void setUpClass() {
+        PocketKnifeIndex.install();
+    }
+
+    @Test
+    public void testIndexedBundleAdapter() {
+        assertTrue(AdapterIndexes.getBundleBinding(SaveStateActivity.class.getName()) instanceof SaveStateActivity$$BundleAdapter);
+        assertNotNull(AdapterIndexes.getBundleBinding(ChildFragment.class.getName()));
+    }
+
+    @Test
+    public void testIndexedIntentAdapter() {
+        assertTrue(AdapterIndexes.getIntentBinding(SimpleActivity.class.getName()) instanceof SimpleActivity$$IntentAdapter);
+        assertNotNull(AdapterIndexes.getIntentBinding(ChildActivity.class.getName()));
+    }
+
+    @Test
+    public void testUnknownClass() {
+        // Subclasses without annotated fields are resolved through their superclass
+        assertNull(AdapterIndexes.getBundleBinding(GrandchildActivity.class.getName()));
+        assertNull(AdapterIndexes.getIntentBinding(NoInjectionActivity.class.getName()));
+        assertNull(AdapterIndexes.getBundleBinding(String.class.getName()));
+    }
+}
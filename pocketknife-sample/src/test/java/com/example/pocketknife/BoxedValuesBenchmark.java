@@ -0,0 +1,70 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.internal.BoxedValues;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares a parcel round trip of boxed values put with the typed methods of {@link BoxedValues} against the same values put as
+ * Serializable. Only correctness is asserted, the timings are printed. Robolectric's parcel is not the one of a device, so the numbers
+ * only show the relative cost on the JVM. Ignored by the build: remove the {@code @Ignore} to run it by hand.
+ */
+@Ignore("Benchmark, run by hand")
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class BoxedValuesBenchmark {
+
+    private static final int KEYS = 32;
+    private static final int ITERATIONS = 2000;
+    private static final int RUNS = 5;
+
+    @Test
+    public void testParcelRoundTrip() {
+        // Warm up both before timing them
+        roundTrip(true);
+        roundTrip(false);
+
+        long typed = Long.MAX_VALUE;
+        long serializable = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            typed = Math.min(typed, roundTrip(true));
+            serializable = Math.min(serializable, roundTrip(false));
+        }
+        System.out.println(String.format("Boxed values: %d bundles of %d values, best of %d. typed %d ms, serializable %d ms",
+                ITERATIONS, KEYS, RUNS, typed / 1000000, serializable / 1000000));
+    }
+
+    private static long roundTrip(boolean typed) {
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Bundle bundle = new Bundle();
+            for (int k = 0; k < KEYS; k++) {
+                Long value = (long) i * k;
+                if (typed) {
+                    BoxedValues.putLong(bundle, String.valueOf(k), value);
+                } else {
+                    bundle.putSerializable(String.valueOf(k), value);
+                }
+            }
+            Parcel parcel = Parcel.obtain();
+            try {
+                bundle.writeToParcel(parcel, 0);
+                parcel.setDataPosition(0);
+                Bundle copy = parcel.readBundle();
+                for (int k = 0; k < KEYS; k++) {
+                    assertEquals((long) i * k, copy.get(String.valueOf(k)));
+                }
+            } finally {
+                parcel.recycle();
+            }
+        }
+        return System.nanoTime() - begin;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ActivityController;
+import pocketknife.internal.BoxedValues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class BoxedValuesTest {
+
+    private static final int KEYS = 32;
+
+    @Test
+    public void testBundleBuilder() {
+        Bundle bundle = new PocketKnifeBundles().getBoxedBundle(1, null, 'c');
+        assertEquals(1, bundle.getInt("ARG_INTEGER"));
+        assertTrue(bundle.containsKey("ARG_A_LONG"));
+        assertNull(bundle.get("ARG_A_LONG"));
+        assertEquals('c', bundle.getChar("ARG_CHARACTER"));
+    }
+
+    @Test
+    public void testInjectExtras() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getBoxedActivity(3, null);
+        assertEquals(3, intent.getIntExtra(BoxedActivity.COUNT_EXTRA, 0));
+        assertTrue(intent.hasExtra(BoxedActivity.ID_EXTRA));
+
+        BoxedActivity activity = Robolectric.buildActivity(BoxedActivity.class).withIntent(intent).create().get();
+
+        assertEquals(Integer.valueOf(3), activity.count);
+        assertNull(activity.id);
+    }
+
+    @Test
+    public void testInjectMissingExtra() {
+        Intent intent = new Intent(RuntimeEnvironment.application, BoxedActivity.class);
+        intent.putExtra(BoxedActivity.COUNT_EXTRA, 3);
+
+        BoxedActivity activity = Robolectric.buildActivity(BoxedActivity.class).withIntent(intent).create().get();
+
+        assertEquals(Integer.valueOf(3), activity.count);
+        assertEquals(Long.valueOf(-1L), activity.id);
+    }
+
+    @Test
+    public void testMistypedValues() {
+        Intent intent = new Intent(RuntimeEnvironment.application, BoxedActivity.class);
+        intent.putExtra(BoxedActivity.COUNT_EXTRA, "three");
+        Bundle saveState = new Bundle();
+        saveState.putString("BUNDLE_RATIO", "half");
+
+        BoxedActivity activity = Robolectric.buildActivity(BoxedActivity.class).withIntent(intent).create(saveState).get();
+
+        // Logged and read as null, as the typed getters do
+        assertNull(activity.count);
+        assertNull(activity.ratio);
+    }
+
+    @Test
+    public void testSaveState() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getBoxedActivity(3, 4L);
+
+        ActivityController<BoxedActivity> initialController = Robolectric.buildActivity(BoxedActivity.class).withIntent(intent).create();
+        BoxedActivity originalActivity = initialController.get();
+        originalActivity.flag = true;
+        originalActivity.ratio = null;
+
+        Bundle saveState = new Bundle();
+        initialController.saveInstanceState(saveState);
+        assertEquals(true, saveState.getBoolean("BUNDLE_FLAG"));
+
+        BoxedActivity copyActivity = Robolectric.buildActivity(BoxedActivity.class).withIntent(intent).create(saveState).get();
+        assertEquals(Long.valueOf(4L), copyActivity.id);
+        assertEquals(Boolean.TRUE, copyActivity.flag);
+        assertNull(copyActivity.ratio);
+    }
+
+    /**
+     * Boxed values put with the typed methods read back the same after a parcel round trip as values put as Serializable.
+     */
+    @Test
+    public void testParcelRoundTrip() {
+        roundTrip(true);
+        roundTrip(false);
+    }
+
+    private void roundTrip(boolean typed) {
+        Bundle bundle = new Bundle();
+        for (int k = 0; k < KEYS; k++) {
+            Long value = (long) k * k;
+            if (typed) {
+                BoxedValues.putLong(bundle, String.valueOf(k), value);
+            } else {
+                bundle.putSerializable(String.valueOf(k), value);
+            }
+        }
+        BoxedValues.putLong(bundle, "null", null);
+        Parcel parcel = Parcel.obtain();
+        try {
+            bundle.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            Bundle copy = parcel.readBundle();
+            for (int k = 0; k < KEYS; k++) {
+                assertEquals((long) k * k, copy.get(String.valueOf(k)));
+            }
+            assertTrue(copy.containsKey("null"));
+            assertNull(BoxedValues.get(copy, "null", Long.class));
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
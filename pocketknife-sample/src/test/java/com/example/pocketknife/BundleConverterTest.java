@@ -0,0 +1,77 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import pocketknife.Lazy;
+import pocketknife.PocketKnife;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class BundleConverterTest {
+
+    @Test
+    public void testIntentBuilder() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getConverterActivity(new Money(1250, "EUR"), "abc");
+        assertEquals(1250, intent.getLongExtra(ConverterActivity.PRICE_EXTRA, 0));
+        assertEquals("EUR", intent.getStringExtra(ConverterActivity.PRICE_EXTRA + MoneyConverter.CURRENCY_SUFFIX));
+        assertEquals("ABC", intent.getStringExtra(ConverterActivity.CODE_EXTRA));
+
+        ConverterActivity activity = Robolectric.buildActivity(ConverterActivity.class).withIntent(intent).create().get();
+        assertEquals(new Money(1250, "EUR"), activity.price);
+        assertEquals("ABC", activity.code);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequiredExtraMissing() {
+        Robolectric.buildActivity(ConverterActivity.class).withIntent(new Intent(RuntimeEnvironment.application, ConverterActivity.class)).create();
+    }
+
+    @Test
+    public void testBundleBuilder() {
+        Bundle bundle = new PocketKnifeBundles().getConverterBundle(new Money(99, "USD"), 3);
+        assertEquals(99, bundle.getLong(PocketKnifeBundles.ARG_MONEY));
+        assertEquals("USD", bundle.getString(PocketKnifeBundles.ARG_MONEY + MoneyConverter.CURRENCY_SUFFIX));
+        assertEquals(3, bundle.getInt(PocketKnifeBundles.ARG_COUNT));
+    }
+
+    @Test
+    public void testSaveState() {
+        ConverterActivity activity = new ConverterActivity();
+        activity.total = new Money(500, "GBP");
+        activity.discount = new Lazy<Money>() {
+            @Override
+            public Money get() {
+                return new Money(50, "GBP");
+            }
+        };
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+
+        ConverterActivity copy = new ConverterActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(new Money(500, "GBP"), copy.total);
+        assertEquals(new Money(50, "GBP"), copy.discount.get());
+    }
+
+    @Test
+    public void testSaveNullState() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(new ConverterActivity(), bundle);
+
+        ConverterActivity copy = new ConverterActivity();
+        copy.total = new Money(1, "EUR");
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertNull(copy.total);
+        assertNull(copy.discount.get());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class ColumnarTest {
+
+    @Test
+    public void testSavesColumns() {
+        ColumnarActivity activity = new ColumnarActivity();
+        activity.readings = newReadings(3);
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+
+        Bundle columns = bundle.getBundle("BUNDLE_READINGS");
+        assertArrayEquals(new long[]{0, 1000, 2000}, columns.getLongArray("time"));
+        assertArrayEquals(new int[]{0, 1, 2}, columns.getIntArray("sensor"));
+        assertArrayEquals(new String[]{"C", "C", "C"}, columns.getStringArray("unit"));
+    }
+
+    @Test
+    public void testSaveAndRestore() {
+        ColumnarActivity activity = new ColumnarActivity();
+        activity.readings = newReadings(3);
+        activity.readings.add(1, null);
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+
+        ColumnarActivity copy = new ColumnarActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(activity.readings, copy.readings);
+        assertNull(copy.readings.get(1));
+    }
+
+    @Test
+    public void testEmptyAndNull() {
+        ColumnarActivity activity = new ColumnarActivity();
+        activity.readings = new ArrayList<Reading>();
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        ColumnarActivity copy = new ColumnarActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertTrue(copy.readings.isEmpty());
+
+        activity.readings = null;
+        PocketKnife.saveInstanceState(activity, bundle);
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertNull(copy.readings);
+    }
+
+    @Test
+    public void testStoresInheritedFields() {
+        ColumnarActivity activity = new ColumnarActivity();
+        activity.labeledReadings = new ArrayList<LabeledReading>();
+        activity.labeledReadings.add(new LabeledReading(1000L, 2, 0.5f, "C", "kitchen"));
+        activity.labeledReadings.add(new LabeledReading(2000L, 3, 1.5f, "F", "garage"));
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+
+        Bundle columns = bundle.getBundle("BUNDLE_LABELED_READINGS");
+        assertArrayEquals(new long[]{1000, 2000}, columns.getLongArray("time"));
+        assertArrayEquals(new String[]{"C", "F"}, columns.getStringArray("unit"));
+        assertArrayEquals(new String[]{"kitchen", "garage"}, columns.getStringArray("label"));
+
+        ColumnarActivity copy = new ColumnarActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(activity.labeledReadings, copy.labeledReadings);
+        assertEquals("kitchen", copy.labeledReadings.get(0).label);
+        assertEquals("garage", copy.labeledReadings.get(1).label);
+    }
+
+    @Test
+    public void testSubclassIsNotSliced() {
+        ArrayList<Reading> readings = newReadings(2);
+        readings.add(new LabeledReading(3000L, 3, 0.75f, "C", "attic"));
+        try {
+            Reading$$Columns.pack(readings);
+            fail("LabeledReading was packed as a Reading");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("LabeledReading"));
+        }
+    }
+
+    @Test
+    public void testInjectsExtra() {
+        Intent intent = new Intent();
+        intent.putExtra(ColumnarActivity.HISTORY_EXTRA, Reading$$Columns.pack(newReadings(2)));
+        ColumnarActivity activity = new ColumnarActivity();
+        PocketKnife.injectExtras(activity, intent);
+        assertEquals(newReadings(2), activity.history.get());
+    }
+
+    @Test
+    public void testSmallerThanParcelableArrayList() {
+        ArrayList<Reading> readings = newReadings(1000);
+        Bundle columnar = new Bundle();
+        columnar.putBundle("readings", Reading$$Columns.pack(readings));
+        Bundle parcelables = new Bundle();
+        parcelables.putParcelableArrayList("readings", readings);
+        assertTrue(dataSize(columnar) < dataSize(parcelables));
+    }
+
+    private static int dataSize(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        bundle.writeToParcel(parcel, 0);
+        int size = parcel.dataSize();
+        parcel.recycle();
+        return size;
+    }
+
+    private static ArrayList<Reading> newReadings(int count) {
+        Reading[] readings = new Reading[count];
+        for (int i = 0; i < count; i++) {
+            readings[i] = new Reading(i * 1000L, i, i / 4f, "C");
+        }
+        return new ArrayList<Reading>(Arrays.asList(readings));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class CompactStateTest {
+
+    private static final String KEY = "BUNDLE_" + CompactStateActivity.class.getName();
+
+    @Test
+    public void testSaveAndRestore() {
+        CompactStateActivity activity = new CompactStateActivity();
+        activity.page = -7;
+        activity.expanded = true;
+        activity.id = Long.MIN_VALUE + 1;
+        activity.ratio = Math.PI;
+        activity.initial = '\u00e9';
+        activity.query = "caf\u00e9 \ud83d\ude00";
+        activity.hint = null;
+        activity.history = new ArrayList<String>(Arrays.asList("a", "b"));
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        assertNotNull(bundle.getByteArray(KEY));
+        assertFalse(bundle.containsKey("BUNDLE_PAGE"));
+        assertFalse(bundle.containsKey("BUNDLE_QUERY"));
+        assertTrue(bundle.containsKey("BUNDLE_HISTORY"));
+        assertEquals(2, bundle.size());
+
+        CompactStateActivity copy = new CompactStateActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(-7, copy.page);
+        assertTrue(copy.expanded);
+        assertEquals(Long.MIN_VALUE + 1, copy.id);
+        assertEquals(Math.PI, copy.ratio, 0);
+        assertEquals('\u00e9', copy.initial);
+        assertEquals("caf\u00e9 \ud83d\ude00", copy.query);
+        assertNull(copy.hint);
+        assertEquals(Arrays.asList("a", "b"), copy.history);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequiredStateMissing() {
+        PocketKnife.restoreInstanceState(new CompactStateActivity(), new Bundle());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSchemaMismatch() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(new CompactStateActivity(), bundle);
+        bundle.getByteArray(KEY)[0]++;
+        PocketKnife.restoreInstanceState(new CompactStateActivity(), bundle);
+    }
+}
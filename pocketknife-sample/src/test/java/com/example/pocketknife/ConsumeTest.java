@@ -0,0 +1,90 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class ConsumeTest {
+
+    @Test
+    public void testRemovesConsumedExtras() {
+        ArrayList<MyParcelable> items = new ArrayList<MyParcelable>(Arrays.asList(new MyParcelable(1)));
+        Intent intent = new Intent();
+        intent.putParcelableArrayListExtra(ConsumeActivity.ITEMS_EXTRA, items);
+        intent.putExtra(ConsumeActivity.TITLE_EXTRA, "title");
+
+        ConsumeActivity activity = new ConsumeActivity();
+        PocketKnife.injectExtras(activity, intent);
+        assertSame(items, activity.items);
+        assertEquals("title", activity.title);
+        assertFalse(intent.hasExtra(ConsumeActivity.ITEMS_EXTRA));
+        assertEquals("title", intent.getStringExtra(ConsumeActivity.TITLE_EXTRA));
+    }
+
+    @Test
+    public void testRecreatedFromSavedState() {
+        ArrayList<MyParcelable> items = new ArrayList<MyParcelable>(Arrays.asList(new MyParcelable(1)));
+        Intent intent = new Intent();
+        intent.putParcelableArrayListExtra(ConsumeActivity.ITEMS_EXTRA, items);
+        ConsumeActivity activity = new ConsumeActivity();
+        PocketKnife.injectExtras(activity, intent);
+        Bundle state = new Bundle();
+        PocketKnife.saveInstanceState(activity, state);
+
+        // The required extra is gone, but it was consumed rather than missing
+        ConsumeActivity recreated = new ConsumeActivity();
+        PocketKnife.injectExtras(recreated, intent);
+        assertNull(recreated.items);
+        PocketKnife.restoreInstanceState(recreated, state);
+        assertSame(items, recreated.items);
+    }
+
+    @Test
+    public void testConsumedOnce() {
+        Intent intent = new Intent();
+        intent.putParcelableArrayListExtra(ConsumeActivity.ITEMS_EXTRA, new ArrayList<MyParcelable>());
+        PocketKnife.injectExtras(new ConsumeActivity(), intent);
+        PocketKnife.injectExtras(new ConsumeActivity(), intent);
+
+        assertEquals(Arrays.asList(ConsumeActivity.ITEMS_EXTRA), intent.getStringArrayListExtra("pocketknife.CONSUMED_KEYS"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingIsStillRequired() {
+        PocketKnife.injectExtras(new ConsumeActivity(), new Intent());
+    }
+
+    @Test
+    public void testRemovesConsumedArguments() {
+        byte[] data = new byte[]{1, 2, 3};
+        Bundle arguments = new Bundle();
+        arguments.putByteArray(ConsumeFragment.DATA_ARG, data);
+        arguments.putInt(ConsumeFragment.COUNT_ARG, 4);
+
+        ConsumeFragment fragment = new ConsumeFragment();
+        PocketKnife.injectArguments(fragment, arguments);
+        assertSame(data, fragment.data);
+        assertEquals(4, fragment.count);
+        assertFalse(arguments.containsKey(ConsumeFragment.DATA_ARG));
+        assertFalse(arguments.containsKey(ConsumeFragment.COUNT_ARG));
+
+        ConsumeFragment recreated = new ConsumeFragment();
+        PocketKnife.injectArguments(recreated, arguments);
+        assertNull(recreated.data);
+        assertEquals(0, recreated.count);
+    }
+}
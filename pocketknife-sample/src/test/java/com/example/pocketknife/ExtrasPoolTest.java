@@ -0,0 +1,89 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.ExtrasPool;
+import pocketknife.PocketKnife;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class ExtrasPoolTest {
+
+    private final AtomicInteger creates = new AtomicInteger();
+    private final ExtrasPool<EventExtras> pool = new ExtrasPool<EventExtras>(EventExtras.class, 2) {
+        @Override
+        protected EventExtras create() {
+            creates.incrementAndGet();
+            return new EventExtras();
+        }
+    };
+
+    @Test
+    public void testReusesReleasedHolders() {
+        EventExtras first = pool.acquire(newIntent(1, "first"));
+        assertEquals(1, first.id);
+        assertEquals("first", first.name);
+        assertTrue(first.urgent);
+        assertEquals('A', first.level);
+        pool.release(first);
+
+        // The missing extras don't keep the values of the previous intent
+        Intent intent = new Intent();
+        intent.putExtra(EventExtras.ID_EXTRA, 2L);
+        EventExtras second = pool.acquire(intent);
+        assertSame(first, second);
+        assertEquals(2, second.id);
+        assertNull(second.name);
+        assertFalse(second.urgent);
+        assertEquals(0, second.level);
+        assertEquals(1, creates.get());
+    }
+
+    @Test
+    public void testKeepsMaximumSize() {
+        EventExtras first = pool.acquire(newIntent(1, "first"));
+        EventExtras second = pool.acquire(newIntent(2, "second"));
+        EventExtras third = pool.acquire(newIntent(3, "third"));
+        assertNotSame(first, second);
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+        assertEquals(3, creates.get());
+
+        pool.acquire(newIntent(4, "fourth"));
+        pool.acquire(newIntent(5, "fifth"));
+        pool.acquire(newIntent(6, "sixth"));
+        assertEquals(4, creates.get());
+    }
+
+    @Test
+    public void testResetExtras() {
+        EventExtras extras = new EventExtras();
+        PocketKnife.injectExtras(extras, newIntent(1, "name"));
+        PocketKnife.resetExtras(extras);
+        assertEquals(0, extras.id);
+        assertNull(extras.name);
+        assertFalse(extras.urgent);
+    }
+
+    private static Intent newIntent(long id, String name) {
+        Intent intent = new Intent();
+        intent.putExtra(EventExtras.ID_EXTRA, id);
+        intent.putExtra(EventExtras.NAME_EXTRA, name);
+        intent.putExtra(EventExtras.URGENT_EXTRA, true);
+        intent.putExtra(EventExtras.LEVEL_EXTRA, 'A');
+        return intent;
+    }
+}
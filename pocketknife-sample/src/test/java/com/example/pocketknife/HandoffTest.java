@@ -0,0 +1,108 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Parcel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+import pocketknife.internal.Handoffs;
+import pocketknife.internal.RetainedState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class HandoffTest {
+
+    private final ArrayList<MyParcelable> items = new ArrayList<MyParcelable>(Arrays.asList(new MyParcelable(1), new MyParcelable(2)));
+    private final MyParcelable selected = new MyParcelable(3);
+
+    @Test
+    public void testHandsOverSameObjects() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getHandoffActivity(items, selected, "title");
+        // Only bytes are parcelled
+        assertNotNull(intent.getByteArrayExtra(HandoffActivity.ITEMS_EXTRA));
+
+        HandoffActivity activity = new HandoffActivity();
+        PocketKnife.injectExtras(activity, parcel(intent));
+        assertSame(items, activity.items);
+        assertSame(selected, activity.selected);
+        assertEquals("title", activity.title);
+    }
+
+    @Test
+    public void testReadsBytesOnceTaken() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getHandoffActivity(items, null, "title");
+        PocketKnife.injectExtras(new HandoffActivity(), intent);
+
+        HandoffActivity activity = new HandoffActivity();
+        PocketKnife.injectExtras(activity, intent);
+        assertNotSame(items, activity.items);
+        assertEquals(items, activity.items);
+        assertEquals(null, activity.selected);
+    }
+
+    @Test
+    public void testIgnoresForeignToken() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getHandoffActivity(items, null, "title");
+        String token = RetainedState.put(this, "not a list");
+        intent.putExtra(HandoffActivity.ITEMS_EXTRA + ".handoff", token);
+
+        HandoffActivity activity = new HandoffActivity();
+        PocketKnife.injectExtras(activity, intent);
+        assertNotSame(items, activity.items);
+        assertEquals(items, activity.items);
+        // The foreign state is left for its owner
+        assertArrayEquals(new Object[]{"not a list"}, RetainedState.take(token));
+    }
+
+    @Test
+    public void testIgnoresTokenOfOtherKey() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getHandoffActivity(items, selected, "title");
+        // The token of the selected item copied under the key of the items
+        intent.putExtra(HandoffActivity.ITEMS_EXTRA + ".handoff", intent.getStringExtra(HandoffActivity.SELECTED_EXTRA + ".handoff"));
+
+        HandoffActivity activity = new HandoffActivity();
+        PocketKnife.injectExtras(activity, intent);
+        assertEquals(items, activity.items);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequired() {
+        PocketKnife.injectExtras(new HandoffActivity(), new Intent());
+    }
+
+    @Test
+    public void testDropsUndeliveredIntents() {
+        Intent first = new PocketKnifeIntents(RuntimeEnvironment.application).getHandoffActivity(items, null, "title");
+        for (int i = 0; i < Handoffs.MAX_PENDING; i++) {
+            new PocketKnifeIntents(RuntimeEnvironment.application).getHandoffActivity(items, null, "title");
+        }
+
+        HandoffActivity activity = new HandoffActivity();
+        PocketKnife.injectExtras(activity, first);
+        assertNotSame(items, activity.items);
+        assertEquals(items, activity.items);
+    }
+
+    private static Intent parcel(Intent intent) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            intent.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return Intent.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -87,6 +87,22 @@ public class IntentBuilderTest extends BaseTest{
         assertEquals("All Uri", uri, intent.getData());
     }
 
+    @Test
+    public void testIntentsAreIndependent() throws Exception {
+        Intent first = intents.getAllDataUriPlusExtra(uri, 1);
+        first.addCategory("FIVE");
+        first.setAction("OTHER");
+        first.putExtra(PocketKnifeIntents.EXTRA_I, 3);
+
+        Intent second = intents.getAllDataUriPlusExtra(Uri.fromParts("other", "other", "other"), 2);
+        assertEquals("TEST", second.getAction());
+        assertEquals(4, second.getCategories().size());
+        assertEquals(SimpleActivity.class.getName(), second.getComponent().getClassName());
+        assertEquals("other", second.getData().getScheme());
+        assertEquals("application/html", second.getType());
+        assertEquals(2, second.getIntExtra(PocketKnifeIntents.EXTRA_I, 0));
+    }
+
     @Test
     public void testCategories() throws Exception {
         Intent intent = intents.getActionIntent();
@@ -0,0 +1,112 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ActivityController;
+import pocketknife.Lazy;
+import pocketknife.PocketKnife;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class LazyActivityTest {
+
+    @Test
+    public void testInjectExtras() {
+        Random random = new Random(42);
+        MyParcelable parcelable = new MyParcelable(random.nextInt());
+        Intent intent = new Intent(RuntimeEnvironment.application, LazyActivity.class);
+        intent.putExtra(LazyActivity.PARCELABLE_EXTRA, parcelable);
+
+        LazyActivity activity = Robolectric.buildActivity(LazyActivity.class).withIntent(intent).create().get();
+
+        assertEquals(parcelable, activity.parcelable.get());
+        assertSame(activity.parcelable.get(), activity.parcelable.get());
+        assertNull(activity.string.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequiredExtraMissing() {
+        LazyActivity activity = Robolectric.buildActivity(LazyActivity.class)
+                .withIntent(new Intent(RuntimeEnvironment.application, LazyActivity.class))
+                .create()
+                .get();
+        // Only checked once the value is needed
+        activity.parcelable.get();
+    }
+
+    @Test
+    public void testRestoreKeepsBundleParcelled() {
+        LazyActivity original = new LazyActivity();
+        final ArrayList<String> strings = new ArrayList<String>();
+        strings.add("a");
+        original.strings = new Lazy<ArrayList<String>>() {
+            @Override
+            public ArrayList<String> get() {
+                return strings;
+            }
+        };
+        Bundle saveState = new Bundle();
+        PocketKnife.saveInstanceState(original, saveState);
+
+        // As after the process was killed
+        Parcel parcel = Parcel.obtain();
+        saveState.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        Bundle read = parcel.readBundle(getClass().getClassLoader());
+        parcel.recycle();
+
+        LazyActivity restored = new LazyActivity();
+        PocketKnife.restoreInstanceState(restored, read);
+        assertTrue(isParcelled(read));
+
+        assertEquals(strings, restored.strings.get());
+        assertFalse(isParcelled(read));
+    }
+
+    private static boolean isParcelled(Bundle bundle) {
+        // Bundle.toString() only shows the size of the data while it is parcelled
+        return bundle.toString().contains("mParcelledData");
+    }
+
+    @Test
+    public void testSaveState() {
+        Intent intent = new Intent(RuntimeEnvironment.application, LazyActivity.class);
+        intent.putExtra(LazyActivity.PARCELABLE_EXTRA, new MyParcelable(1));
+        intent.putExtra(LazyActivity.STRING_EXTRA, "string");
+
+        ActivityController<LazyActivity> initialController = Robolectric.buildActivity(LazyActivity.class).withIntent(intent).create();
+        LazyActivity originalActivity = initialController.get();
+        assertEquals("string", originalActivity.string.get());
+        final ArrayList<String> strings = new ArrayList<String>();
+        strings.add("a");
+        strings.add("b");
+        originalActivity.strings = new Lazy<ArrayList<String>>() {
+            @Override
+            public ArrayList<String> get() {
+                return strings;
+            }
+        };
+
+        Bundle saveState = new Bundle();
+        initialController.saveInstanceState(saveState);
+
+        LazyActivity copyActivity = Robolectric.buildActivity(LazyActivity.class).withIntent(intent).create(saveState).get();
+        assertEquals(strings, copyActivity.strings.get());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ActivityController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class PackedCollectionsTest {
+
+    @Test
+    public void testBundleBuilder() {
+        Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+        map.put("a", 1);
+        map.put("b", 2);
+        Bundle bundle = new PocketKnifeBundles().getCollectionsBundle(Arrays.asList(1L, 2L, 3L), map);
+        assertArrayEquals(new long[]{1L, 2L, 3L}, bundle.getLongArray("ARG_LONGS"));
+        Object[] packed = (Object[]) bundle.getSerializable("ARG_MAP");
+        assertArrayEquals(new String[]{"a", "b"}, (String[]) packed[0]);
+        assertArrayEquals(new int[]{1, 2}, (int[]) packed[1]);
+    }
+
+    @Test
+    public void testNullElements() {
+        Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+        map.put("a", null);
+        Bundle bundle = new PocketKnifeBundles().getCollectionsBundle(Arrays.asList(1L, null), map);
+        assertEquals(Arrays.asList(1L, null), bundle.getSerializable("ARG_LONGS"));
+        assertEquals(map, bundle.getSerializable("ARG_MAP"));
+    }
+
+    @Test
+    public void testLegacyExtras() {
+        Intent intent = new Intent(RuntimeEnvironment.application, CollectionsActivity.class);
+        intent.putExtra(CollectionsActivity.IDS_EXTRA, new ArrayList<Long>(Arrays.asList(4L, 5L)));
+        intent.putExtra(CollectionsActivity.FLOATS_EXTRA, new ArrayList<Float>(Arrays.asList(1.5f, 2.5f)));
+
+        CollectionsActivity activity = Robolectric.buildActivity(CollectionsActivity.class).withIntent(intent).create().get();
+
+        assertEquals(Arrays.asList(4L, 5L), activity.ids);
+        assertEquals(Arrays.asList(1.5f, 2.5f), activity.floats.get());
+        assertEquals(LinkedList.class, activity.floats.get().getClass());
+    }
+
+    @Test
+    public void testInjectExtras() {
+        ArrayList<Long> ids = new ArrayList<Long>(Arrays.asList(4L, 5L));
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getCollectionsActivity(ids, Arrays.asList("x", null, "z"));
+        assertArrayEquals(new long[]{4L, 5L}, intent.getLongArrayExtra(CollectionsActivity.IDS_EXTRA));
+        intent.putExtra(CollectionsActivity.FLOATS_EXTRA, new float[]{1.5f, 2.5f});
+
+        CollectionsActivity activity = Robolectric.buildActivity(CollectionsActivity.class).withIntent(intent).create().get();
+
+        assertEquals(ids, activity.ids);
+        assertEquals(Arrays.asList("x", null, "z"), activity.names);
+        assertEquals(ArrayList.class, activity.names.getClass());
+        assertEquals(Arrays.asList(1.5f, 2.5f), activity.floats.get());
+        assertEquals(LinkedList.class, activity.floats.get().getClass());
+        assertNull(activity.ints);
+    }
+
+    @Test
+    public void testSaveState() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getCollectionsActivity(new ArrayList<Long>(), null);
+
+        ActivityController<CollectionsActivity> initialController = Robolectric.buildActivity(CollectionsActivity.class).withIntent(intent).create();
+        CollectionsActivity originalActivity = initialController.get();
+        assertTrue(originalActivity.ids.isEmpty());
+        assertNull(originalActivity.names);
+        originalActivity.ints = new HashSet<Integer>(Arrays.asList(1, 2, 3));
+        originalActivity.sorted = new TreeSet<Double>(Arrays.asList(3.0, 1.0, 2.0));
+        originalActivity.counts = new HashMap<String, Long>();
+        originalActivity.counts.put("one", 1L);
+        originalActivity.counts.put("two", 2L);
+        originalActivity.labels = new HashMap<String, String>();
+        originalActivity.labels.put("key", "value");
+        originalActivity.labels.put("null", null);
+
+        Bundle saveState = new Bundle();
+        initialController.saveInstanceState(saveState);
+        assertArrayEquals(new double[]{1.0, 2.0, 3.0}, saveState.getDoubleArray("BUNDLE_SORTED"), 0);
+
+        CollectionsActivity copyActivity = Robolectric.buildActivity(CollectionsActivity.class).withIntent(intent).create(parcel(saveState)).get();
+        assertEquals(originalActivity.ints, copyActivity.ints);
+        assertEquals(HashSet.class, copyActivity.ints.getClass());
+        assertEquals(originalActivity.sorted, copyActivity.sorted);
+        assertEquals(TreeSet.class, copyActivity.sorted.getClass());
+        assertEquals(originalActivity.counts, copyActivity.counts);
+        assertEquals(originalActivity.labels, copyActivity.labels);
+    }
+
+    @Test
+    public void testSaveStateWithNulls() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getCollectionsActivity(new ArrayList<Long>(), null);
+
+        ActivityController<CollectionsActivity> initialController = Robolectric.buildActivity(CollectionsActivity.class).withIntent(intent).create();
+        CollectionsActivity originalActivity = initialController.get();
+        originalActivity.ints = new HashSet<Integer>(Arrays.asList(1, null));
+        originalActivity.counts = new HashMap<String, Long>();
+        originalActivity.counts.put("none", null);
+        originalActivity.counts.put(null, 1L);
+
+        Bundle saveState = new Bundle();
+        initialController.saveInstanceState(saveState);
+
+        CollectionsActivity copyActivity = Robolectric.buildActivity(CollectionsActivity.class).withIntent(intent).create(parcel(saveState)).get();
+        assertEquals(originalActivity.ints, copyActivity.ints);
+        assertEquals(HashSet.class, copyActivity.ints.getClass());
+        assertEquals(originalActivity.counts, copyActivity.counts);
+        assertEquals(HashMap.class, copyActivity.counts.getClass());
+    }
+
+    @Test
+    public void testMissingKeysOrValues() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getCollectionsActivity(new ArrayList<Long>(), null);
+        Bundle saveState = new Bundle();
+        saveState.putSerializable("BUNDLE_COUNTS", new Object[]{new String[]{"one"}, null});
+        saveState.putSerializable("BUNDLE_LABELS", new Object[]{null, new String[]{"value"}});
+
+        CollectionsActivity activity = Robolectric.buildActivity(CollectionsActivity.class).withIntent(intent).create(saveState).get();
+
+        assertNull(activity.counts);
+        assertNull(activity.labels);
+    }
+
+    private static Bundle parcel(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        bundle.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        Bundle read = parcel.readBundle(PackedCollectionsTest.class.getClassLoader());
+        parcel.recycle();
+        return read;
+    }
+}
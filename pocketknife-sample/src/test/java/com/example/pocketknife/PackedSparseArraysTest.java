@@ -0,0 +1,77 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.util.LongSparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class PackedSparseArraysTest {
+
+    @Test
+    public void testFragmentBuilder() {
+        SparseIntArray counts = new SparseIntArray();
+        counts.put(30, 3);
+        counts.put(10, 1);
+        counts.put(20, 2);
+        LongSparseArray<String> names = new LongSparseArray<String>();
+        names.put(Long.MAX_VALUE, "max");
+        names.put(-1L, null);
+        SparseArraysFragment fragment = new PocketKnifeBuilder(RuntimeEnvironment.application).getSparseArraysFragment(counts, names);
+
+        Bundle packed = fragment.getArguments().getBundle(SparseArraysFragment.COUNTS_ARG);
+        assertArrayEquals(new int[]{10, 20, 30}, packed.getIntArray("keys"));
+        assertArrayEquals(new int[]{1, 2, 3}, packed.getIntArray("values"));
+
+        PocketKnife.injectArguments(fragment);
+        assertEquals(3, fragment.counts.size());
+        for (int i = 0; i < counts.size(); i++) {
+            assertEquals(counts.keyAt(i), fragment.counts.keyAt(i));
+            assertEquals(counts.valueAt(i), fragment.counts.valueAt(i));
+        }
+        assertEquals(2, fragment.names.size());
+        assertEquals("max", fragment.names.get(Long.MAX_VALUE));
+        assertNull(fragment.names.get(-1L));
+    }
+
+    @Test
+    public void testNullArguments() {
+        SparseArraysFragment fragment = new PocketKnifeBuilder(RuntimeEnvironment.application).getSparseArraysFragment(null, null);
+        PocketKnife.injectArguments(fragment);
+        assertNull(fragment.counts);
+        assertNull(fragment.names);
+    }
+
+    @Test
+    public void testSaveState() {
+        SparseArraysFragment fragment = new SparseArraysFragment();
+        fragment.selected = new SparseBooleanArray();
+        fragment.selected.put(5, true);
+        fragment.selected.put(-2, false);
+        fragment.timestamps = new LongSparseArray<Long>();
+        fragment.timestamps.put(1L << 40, 42L);
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(fragment, bundle);
+        assertArrayEquals(new long[]{42L}, bundle.getBundle("BUNDLE_TIMESTAMPS").getLongArray("values"));
+
+        SparseArraysFragment copy = new SparseArraysFragment();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(2, copy.selected.size());
+        assertEquals(true, copy.selected.get(5));
+        assertEquals(-2, copy.selected.keyAt(0));
+        assertEquals(false, copy.selected.valueAt(0));
+        assertEquals(Long.valueOf(42L), copy.timestamps.get(1L << 40));
+    }
+}
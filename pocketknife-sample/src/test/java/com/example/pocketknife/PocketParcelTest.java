@@ -0,0 +1,129 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ActivityController;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class PocketParcelTest {
+
+    private static Point newPoint() {
+        Point point = new Point(1, 2);
+        point.name = 'p';
+        point.visible = true;
+        point.label = "label";
+        point.weight = 3;
+        point.history = new long[]{4L, 5L};
+        point.parcelable = new MyParcelable(6);
+        point.next = new Point(7, 8);
+        return point;
+    }
+
+    @Test
+    public void testParcelRoundTrip() {
+        Point point = newPoint();
+        point.hash = 9;
+        Parcel parcel = Parcel.obtain();
+        try {
+            Point$$Parcelable.wrap(point).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            Point copy = Point$$Parcelable.unwrap(Point$$Parcelable.CREATOR.createFromParcel(parcel));
+            assertNotSame(point, copy);
+            assertEquals(point, copy);
+            assertEquals(0, copy.hash);
+            assertNull(copy.next.weight);
+            assertNull(copy.next.next);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void testInheritedFields() {
+        LabeledPoint point = new LabeledPoint(1, 2, "caption");
+        point.label = "label";
+        point.next = new Point(3, 4);
+        Parcel parcel = Parcel.obtain();
+        try {
+            LabeledPoint$$Parcelable.wrap(point).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            LabeledPoint copy = LabeledPoint$$Parcelable.unwrap(LabeledPoint$$Parcelable.CREATOR.createFromParcel(parcel));
+            assertEquals(point, copy);
+            assertEquals("caption", copy.caption);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void testSubclassIsNotSliced() {
+        Point point = new Point(1, 2);
+        point.next = new LabeledPoint(3, 4, "caption");
+        assertWriteFails(point, "LabeledPoint");
+        assertWriteFails(new LabeledPoint(1, 2, "caption"), "LabeledPoint");
+    }
+
+    @Test
+    public void testCyclicReference() {
+        Point point = new Point(1, 2);
+        point.next = new Point(3, 4);
+        point.next.next = point;
+        assertWriteFails(point, "cyclic");
+    }
+
+    private static void assertWriteFails(Point point, String message) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            Point$$Parcelable.wrap(point).writeToParcel(parcel, 0);
+            fail("Point was written");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains(message));
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void testInjectExtras() {
+        Point point = newPoint();
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getPocketParcelActivity(point);
+        assertTrue(intent.getParcelableExtra(PocketParcelActivity.POINT_EXTRA) instanceof Point$$Parcelable);
+        intent.putExtra(PocketParcelActivity.LAZY_POINT_EXTRA, Point$$Parcelable.wrap(new Point(10, 11)));
+
+        PocketParcelActivity activity = Robolectric.buildActivity(PocketParcelActivity.class).withIntent(intent).create().get();
+
+        assertEquals(point, activity.point);
+        assertEquals(new Point(10, 11), activity.lazyPoint.get());
+        assertNull(activity.saved);
+    }
+
+    @Test
+    public void testSaveState() {
+        Intent intent = new PocketKnifeIntents(RuntimeEnvironment.application).getPocketParcelActivity(new Point(1, 1));
+
+        ActivityController<PocketParcelActivity> initialController = Robolectric.buildActivity(PocketParcelActivity.class).withIntent(intent).create();
+        PocketParcelActivity originalActivity = initialController.get();
+        assertNull(originalActivity.lazyPoint.get());
+        originalActivity.saved = newPoint();
+
+        Bundle saveState = new Bundle();
+        initialController.saveInstanceState(saveState);
+
+        PocketParcelActivity copyActivity = Robolectric.buildActivity(PocketParcelActivity.class).withIntent(intent).create(saveState).get();
+        assertEquals(originalActivity.saved, copyActivity.saved);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+import pocketknife.internal.RetainedState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class RetainTest {
+
+    private static final String RETAINED_KEY = "RETAINED_" + RetainActivity.class.getName();
+
+    @After
+    public void tearDown() {
+        PocketKnife.setRetainedStateSize(RetainedState.DEFAULT_MAX_SIZE);
+    }
+
+    @Test
+    public void testRestoresSameObjects() {
+        RetainActivity activity = newActivity();
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        assertNotNull(bundle.getString(RETAINED_KEY));
+
+        RetainActivity copy = new RetainActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertSame(activity.items, copy.items);
+        assertSame(activity.selected, copy.selected);
+        assertEquals(2, copy.page);
+    }
+
+    @Test
+    public void testFallsBackToBundle() {
+        RetainActivity activity = newActivity();
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        // As after the process was killed
+        RetainedState.take(bundle.getString(RETAINED_KEY));
+
+        RetainActivity copy = new RetainActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(activity.items, copy.items);
+        assertEquals(activity.selected, copy.selected);
+        assertEquals(2, copy.page);
+    }
+
+    @Test
+    public void testTakenOnce() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(newActivity(), bundle);
+        PocketKnife.restoreInstanceState(new RetainActivity(), bundle);
+        assertNull(RetainedState.take(bundle.getString(RETAINED_KEY)));
+    }
+
+    @Test
+    public void testDropsLeastRecentlySaved() {
+        // Room for the values of one activity
+        PocketKnife.setRetainedStateSize(100);
+        Bundle first = new Bundle();
+        PocketKnife.saveInstanceState(newActivity(), first);
+        Bundle second = new Bundle();
+        PocketKnife.saveInstanceState(newActivity(), second);
+
+        assertNull(RetainedState.take(first.getString(RETAINED_KEY)));
+        assertNotNull(RetainedState.take(second.getString(RETAINED_KEY)));
+    }
+
+    @Test
+    public void testSavingAgainReplacesValues() {
+        RetainActivity activity = newActivity();
+        Bundle first = new Bundle();
+        PocketKnife.saveInstanceState(activity, first);
+        Bundle second = new Bundle();
+        PocketKnife.saveInstanceState(activity, second);
+
+        assertNull(RetainedState.take(first.getString(RETAINED_KEY)));
+        assertNotNull(RetainedState.take(second.getString(RETAINED_KEY)));
+
+        // The bundle still restores the values of a replaced token
+        RetainActivity copy = new RetainActivity();
+        PocketKnife.restoreInstanceState(copy, first);
+        assertEquals(activity.items, copy.items);
+    }
+
+    @Test
+    public void testDropsEntriesOverCount() {
+        Bundle first = new Bundle();
+        PocketKnife.saveInstanceState(newActivity(), first);
+        Bundle last = null;
+        for (int i = 0; i < RetainedState.MAX_ENTRIES; i++) {
+            last = new Bundle();
+            PocketKnife.saveInstanceState(newActivity(), last);
+        }
+
+        assertNull(RetainedState.take(first.getString(RETAINED_KEY)));
+        assertNotNull(RetainedState.take(last.getString(RETAINED_KEY)));
+    }
+
+    private static RetainActivity newActivity() {
+        RetainActivity activity = new RetainActivity();
+        activity.items = new ArrayList<MyParcelable>(Arrays.asList(new MyParcelable(1), new MyParcelable(2)));
+        activity.selected = new MyParcelable(3);
+        activity.page = 2;
+        return activity;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class SaveAllTest {
+
+    private static final String ITEMS_KEY = "BUNDLE_" + RowState.class.getName();
+
+    @Test
+    public void testSavesColumns() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveAll(newRows(), bundle);
+        assertArrayEquals(new long[]{0, 1, 2}, bundle.getLongArray("BUNDLE_ID"));
+        assertArrayEquals(new boolean[]{true, false, true}, bundle.getBooleanArray("BUNDLE_EXPANDED"));
+        assertArrayEquals(new String[]{"row 0", "row 1", "row 2"}, bundle.getStringArray("BUNDLE_TITLE"));
+        assertEquals(3, bundle.getParcelableArray("BUNDLE_SELECTED").length);
+        assertArrayEquals(new int[]{0, 0, 2}, bundle.getIntArray("BUNDLE_RANK"));
+        assertArrayEquals(new boolean[]{false, true, false}, bundle.getBooleanArray("BUNDLE_RANK:nulls"));
+        assertArrayEquals(new String[]{"RED", "GREEN", "BLUE"}, bundle.getStringArray("BUNDLE_COLOR"));
+        assertEquals(3, bundle.getParcelableArray("BUNDLE_POSITION").length);
+        assertEquals(3, bundle.getParcelableArray("BUNDLE_EXTRAS").length);
+        // Only the list of tags needs a bundle per row
+        assertEquals(3, bundle.getParcelableArray(ITEMS_KEY).length);
+        assertEquals(10, bundle.size());
+    }
+
+    @Test
+    public void testNoNullMaskWithoutNulls() {
+        List<RowState> rows = newRows();
+        rows.get(1).rank = 1;
+        Bundle bundle = new Bundle();
+        PocketKnife.saveAll(rows, bundle);
+        assertFalse(bundle.containsKey("BUNDLE_RANK:nulls"));
+        PocketKnife.restoreAll(rows, bundle);
+        assertEquals(Integer.valueOf(1), rows.get(1).rank);
+    }
+
+    @Test
+    public void testSaveAndRestore() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveAll(newRows(), bundle);
+        assertRestored(bundle);
+    }
+
+    @Test
+    public void testRestoreAfterParcel() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveAll(newRows(), bundle);
+        // As after the process was killed
+        Parcel parcel = Parcel.obtain();
+        bundle.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        Bundle read = parcel.readBundle(getClass().getClassLoader());
+        parcel.recycle();
+        assertRestored(read);
+    }
+
+    @Test
+    public void testNullBundle() {
+        List<RowState> rows = newRows();
+        PocketKnife.restoreAll(rows, null);
+        assertEquals("row 1", rows.get(1).title);
+    }
+
+    @Test
+    public void testEmptyList() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveAll(new ArrayList<RowState>(), bundle);
+        assertTrue(bundle.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequiredStateMissing() {
+        PocketKnife.restoreAll(newRows(), new Bundle());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSizeMismatch() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveAll(newRows(), bundle);
+        PocketKnife.restoreAll(newRows().subList(0, 2), bundle);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMixedClasses() {
+        List<Object> targets = new ArrayList<Object>();
+        targets.add(new RowState());
+        targets.add(new EventExtras());
+        PocketKnife.saveAll(targets, new Bundle());
+    }
+
+    private static void assertRestored(Bundle bundle) {
+        List<RowState> rows = new ArrayList<RowState>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(new RowState());
+        }
+        PocketKnife.restoreAll(rows, bundle);
+        for (int i = 0; i < 3; i++) {
+            RowState row = rows.get(i);
+            assertEquals(i, row.id);
+            assertEquals(i != 1, row.expanded);
+            assertEquals("row " + i, row.title);
+            assertEquals(new MyParcelable(i), row.selected);
+            assertEquals(ValueTypesFragment.Color.values()[i], row.color);
+            assertEquals(new Point(i, -i), row.position);
+            assertEquals(i, row.extras.getInt("index"));
+        }
+        assertEquals(Integer.valueOf(0), rows.get(0).rank);
+        assertNull(rows.get(1).rank);
+        assertEquals(Integer.valueOf(2), rows.get(2).rank);
+        assertEquals(Arrays.asList("a", "b"), rows.get(0).tags);
+        assertNull(rows.get(1).tags);
+        assertFalse(rows.get(2).tags.isEmpty());
+    }
+
+    private static List<RowState> newRows() {
+        List<RowState> rows = new ArrayList<RowState>();
+        for (int i = 0; i < 3; i++) {
+            RowState row = new RowState();
+            row.id = i;
+            row.expanded = i != 1;
+            row.title = "row " + i;
+            row.selected = new MyParcelable(i);
+            row.color = ValueTypesFragment.Color.values()[i];
+            row.position = new Point(i, -i);
+            row.extras = new Bundle();
+            row.extras.putInt("index", i);
+            if (i != 1) {
+                row.rank = i;
+            }
+            rows.add(row);
+        }
+        rows.get(0).tags = new ArrayList<String>(Arrays.asList("a", "b"));
+        rows.get(2).tags = new ArrayList<String>(Arrays.asList("c"));
+        return rows;
+    }
+}
@@ -8,6 +8,7 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import org.robolectric.util.ActivityController;
+import pocketknife.PocketKnife;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -220,4 +221,15 @@ public class SimpleFragmentActivityTest extends BaseTest {
         assertEquals("NOT_REQUIRED", fragment.s);
     }
 
+    @Test
+    public void verifyMistypedArgumentKeepsDefault() {
+        Bundle args = new Bundle();
+        args.putString("KEY", "not an int");
+        NotRequiredArgFragment fragment = new NotRequiredArgFragment();
+        fragment.setArguments(args);
+
+        PocketKnife.injectArguments(fragment);
+
+        assertEquals(1, fragment.i);
+    }
 }
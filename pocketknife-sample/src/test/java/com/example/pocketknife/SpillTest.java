@@ -0,0 +1,189 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+import pocketknife.internal.SpilledState;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class SpillTest {
+
+    private static final String ITEMS_KEY = "BUNDLE_ITEMS";
+    private static final String THUMBNAIL_KEY = "BUNDLE_THUMBNAIL";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        PocketKnife.setSpillDirectory(null);
+        PocketKnife.setSpillThreshold(SpilledState.DEFAULT_THRESHOLD);
+    }
+
+    @Test
+    public void testSmallValuesStayInBundle() {
+        SpillActivity activity = newActivity(16);
+        PocketKnife.setSpillDirectory(folder.getRoot());
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        assertNotNull(bundle.getByteArray(ITEMS_KEY));
+        assertNotNull(bundle.getByteArray(THUMBNAIL_KEY));
+
+        SpillActivity copy = new SpillActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(activity.items, copy.items);
+        assertArrayEquals(activity.thumbnail, copy.thumbnail);
+        assertEquals(activity.title, copy.title);
+    }
+
+    @Test
+    public void testWithoutDirectory() {
+        SpillActivity activity = newActivity(4096);
+        PocketKnife.setSpillThreshold(0);
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        assertNotNull(bundle.getByteArray(THUMBNAIL_KEY));
+
+        SpillActivity copy = new SpillActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertArrayEquals(activity.thumbnail, copy.thumbnail);
+    }
+
+    @Test
+    public void testLargeValuesAreSpilled() throws InterruptedException {
+        SpillActivity activity = newActivity(4096);
+        PocketKnife.setSpillDirectory(folder.getRoot());
+        PocketKnife.setSpillThreshold(1024);
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        // Only the file name of the thumbnail is kept
+        assertNotNull(bundle.getByteArray(ITEMS_KEY));
+        String name = bundle.getString(THUMBNAIL_KEY);
+        assertNotNull(name);
+        File file = new File(folder.getRoot(), name);
+        awaitExists(file, true);
+
+        SpillActivity copy = new SpillActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(activity.items, copy.items);
+        assertArrayEquals(activity.thumbnail, copy.thumbnail);
+        assertEquals(activity.title, copy.title);
+        awaitExists(file, false);
+
+        // The value is taken once
+        SpillActivity again = new SpillActivity();
+        PocketKnife.restoreInstanceState(again, bundle);
+        assertNull(again.thumbnail);
+    }
+
+    @Test
+    public void testRestoreBeforeWrite() throws InterruptedException {
+        SpillActivity activity = newActivity(4096);
+        PocketKnife.setSpillDirectory(folder.getRoot());
+        PocketKnife.setSpillThreshold(1024);
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        SpillActivity copy = new SpillActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertArrayEquals(activity.thumbnail, copy.thumbnail);
+
+        // A file written after the value was taken is deleted
+        awaitExists(new File(folder.getRoot(), bundle.getString(THUMBNAIL_KEY)), false);
+    }
+
+    @Test
+    public void testDeletesOldFiles() throws Exception {
+        File old = folder.newFile("old");
+        assertTrue(old.setLastModified(System.currentTimeMillis() - SpilledState.MAX_AGE_MILLIS - 1000));
+        File recent = folder.newFile("recent");
+
+        PocketKnife.setSpillDirectory(folder.getRoot());
+        awaitExists(old, false);
+        assertTrue(recent.exists());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequired() {
+        PocketKnife.restoreInstanceState(new SpillActivity(), new Bundle());
+    }
+
+    @Test
+    public void testRequiredValueGone() throws InterruptedException {
+        SpillActivity activity = newActivity(16);
+        PocketKnife.setSpillDirectory(folder.getRoot());
+        PocketKnife.setSpillThreshold(0);
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        File file = new File(folder.getRoot(), bundle.getString(ITEMS_KEY));
+        awaitExists(file, true);
+        assertTrue(file.delete());
+
+        // The file can be gone legitimately, the field keeps its value
+        SpillActivity copy = new SpillActivity();
+        ArrayList<MyParcelable> items = new ArrayList<MyParcelable>();
+        copy.items = items;
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertSame(items, copy.items);
+        assertArrayEquals(activity.thumbnail, copy.thumbnail);
+    }
+
+    @Test
+    public void testDropsValueThatCannotBeWritten() throws Exception {
+        SpillActivity activity = newActivity(16);
+        // Not a directory, so no file can be written in it
+        PocketKnife.setSpillDirectory(folder.newFile("spill"));
+        PocketKnife.setSpillThreshold(0);
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        for (int i = 0; i < 500 && SpilledState.pendingCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, SpilledState.pendingCount());
+
+        SpillActivity copy = new SpillActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertNull(copy.items);
+        assertNull(copy.thumbnail);
+        assertEquals(activity.title, copy.title);
+    }
+
+    private static SpillActivity newActivity(int thumbnailSize) {
+        SpillActivity activity = new SpillActivity();
+        activity.items = new ArrayList<MyParcelable>(Arrays.asList(new MyParcelable(1), new MyParcelable(2)));
+        activity.thumbnail = new byte[thumbnailSize];
+        Arrays.fill(activity.thumbnail, (byte) 7);
+        activity.title = "title";
+        return activity;
+    }
+
+    private static void awaitExists(File file, boolean exists) throws InterruptedException {
+        for (int i = 0; i < 500 && file.exists() != exists; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(exists, file.exists());
+    }
+}
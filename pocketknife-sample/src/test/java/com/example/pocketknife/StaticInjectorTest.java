@@ -0,0 +1,106 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.Serializable;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class StaticInjectorTest {
+
+    @Test
+    public void testInjectExtras() {
+        Random random = new Random(42);
+        Bundle args = new Bundle();
+        Intent intent = new Intent();
+        int parentExtra = random.nextInt();
+        int childExtra = random.nextInt();
+        intent.putExtra(ParentActivity.PARENT_EXTRA, parentExtra);
+        intent.putExtra(ChildActivity.CHILD_EXTRA, childExtra);
+        intent.putExtra(ChildActivity.FRAGMENT_ARGS, args);
+
+        ChildActivity activity = new ChildActivity();
+        PocketKnifeChildActivity.injectExtras(activity, intent);
+
+        assertEquals(parentExtra, activity.parentExtra);
+        assertEquals(childExtra, activity.childExtra);
+        assertEquals(args.size(), activity.args.size());
+    }
+
+    @Test
+    public void testSaveAndRestoreInstanceState() {
+        Random random = new Random(42);
+        ChildActivity original = new ChildActivity();
+        original.paInt = random.nextInt();
+        original.caInt = random.nextInt();
+
+        Bundle bundle = new Bundle();
+        PocketKnifeChildActivity.saveInstanceState(original, bundle);
+
+        ChildActivity copy = new ChildActivity();
+        PocketKnifeChildActivity.restoreInstanceState(copy, bundle);
+
+        assertEquals(original.paInt, copy.paInt);
+        assertEquals(original.caInt, copy.caInt);
+    }
+
+    @Test
+    public void testInjectArguments() {
+        Random random = new Random(42);
+        Bundle args = new Bundle();
+        int parentArg = random.nextInt();
+        int childArg = random.nextInt();
+        args.putInt(ParentFragment.PARENT_ARG, parentArg);
+        args.putInt(ChildFragment.CHILD_ARG, childArg);
+
+        ChildFragment fragment = new ChildFragment();
+        PocketKnifeChildFragment.injectArguments(fragment, args);
+
+        assertEquals(parentArg, fragment.parentArg);
+        assertEquals(childArg, fragment.childArg);
+    }
+
+    @Test
+    public void testReadsPrimitiveExtrasWithOneLookup() {
+        CountingIntent intent = new CountingIntent();
+        intent.putExtra(EventExtras.ID_EXTRA, 7L);
+        intent.putExtra(EventExtras.URGENT_EXTRA, true);
+        intent.putExtra(EventExtras.LEVEL_EXTRA, 'b');
+
+        EventExtras extras = new EventExtras();
+        PocketKnifeEventExtras.injectExtras(extras, intent);
+
+        assertEquals(7L, extras.id);
+        assertTrue(extras.urgent);
+        assertEquals('b', extras.level);
+        // One lookup per primitive, the key is only probed again for the missing name
+        assertEquals(3, intent.gets);
+        assertEquals(1, intent.probes);
+    }
+
+    private static class CountingIntent extends Intent {
+        int gets;
+        int probes;
+
+        @Override
+        public Serializable getSerializableExtra(String name) {
+            gets++;
+            return super.getSerializableExtra(name);
+        }
+
+        @Override
+        public boolean hasExtra(String name) {
+            probes++;
+            return super.hasExtra(name);
+        }
+    }
+}
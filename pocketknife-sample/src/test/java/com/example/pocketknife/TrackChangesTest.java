@@ -0,0 +1,67 @@
+package com.example.pocketknife;
+
+import android.os.Bundle;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class TrackChangesTest {
+
+    @Before
+    public void setUp() {
+        PocketKnife.takeSavedFieldCount();
+    }
+
+    @Test
+    public void testCountsWrittenFields() {
+        TrackChangesActivity activity = new TrackChangesActivity();
+        activity.parcelable = new MyParcelable(1);
+        activity.text = "text";
+        activity.list = new ArrayList<String>();
+        activity.count = 3;
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(activity, bundle);
+        assertEquals(4, PocketKnife.takeSavedFieldCount());
+        assertEquals(0, PocketKnife.takeSavedFieldCount());
+
+        // Saving into the same bundle again writes every field
+        activity.list.add("a");
+        activity.parcelable = new MyParcelable(2);
+        activity.text = null;
+        PocketKnife.saveInstanceState(activity, bundle);
+        assertEquals(4, PocketKnife.takeSavedFieldCount());
+
+        TrackChangesActivity copy = new TrackChangesActivity();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(new MyParcelable(2), copy.parcelable);
+        assertEquals(null, copy.text);
+        assertSame(activity.list, copy.list);
+        assertEquals(3, copy.count);
+    }
+
+    @Test
+    public void testNewBundle() {
+        TrackChangesActivity activity = new TrackChangesActivity();
+        PocketKnife.saveInstanceState(activity, new Bundle());
+        assertEquals(4, PocketKnife.takeSavedFieldCount());
+        PocketKnife.saveInstanceState(activity, new Bundle());
+        assertEquals(4, PocketKnife.takeSavedFieldCount());
+    }
+
+    @Test
+    public void testUntrackedClassIsNotCounted() {
+        PocketKnife.saveInstanceState(new SaveStateActivity(), new Bundle());
+        assertEquals(0, PocketKnife.takeSavedFieldCount());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.pocketknife;
+
+import android.content.Intent;
+import android.os.Bundle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class ValueEncodingsTest {
+
+    @Test
+    public void testFragmentBuilder() {
+        UUID id = UUID.randomUUID();
+        Date date = new Date(1234567890L);
+        BigDecimal amount = new BigDecimal("-12345678901234567890.0042");
+        ValueTypesFragment fragment = new PocketKnifeBuilder(RuntimeEnvironment.application)
+                .getValueTypesFragment(ValueTypesFragment.Color.GREEN, id, date, amount);
+
+        Bundle args = fragment.getArguments();
+        assertEquals("GREEN", args.getString(ValueTypesFragment.COLOR_ARG));
+        assertEquals(2, args.getLongArray(ValueTypesFragment.ID_ARG).length);
+        assertEquals(1234567890L, args.getLong(ValueTypesFragment.DATE_ARG));
+
+        PocketKnife.injectArguments(fragment);
+        assertEquals(ValueTypesFragment.Color.GREEN, fragment.color);
+        assertEquals(id, fragment.id);
+        assertEquals(date, fragment.date);
+        assertEquals(amount, fragment.amount);
+        assertEquals(amount.scale(), fragment.amount.scale());
+    }
+
+    @Test
+    public void testNullValues() {
+        ValueTypesFragment fragment = new PocketKnifeBuilder(RuntimeEnvironment.application)
+                .getValueTypesFragment(ValueTypesFragment.Color.RED, UUID.randomUUID(), null, null);
+
+        Bundle args = fragment.getArguments();
+        assertTrue(args.containsKey(ValueTypesFragment.DATE_ARG));
+        fragment.date = new Date();
+        fragment.amount = BigDecimal.ONE;
+
+        PocketKnife.injectArguments(fragment);
+        assertNull(fragment.date);
+        assertNull(fragment.amount);
+    }
+
+    @Test
+    public void testBigDecimalScales() {
+        for (BigDecimal amount : new BigDecimal[]{BigDecimal.ZERO, new BigDecimal("1E+300"), new BigDecimal("0.000000001"), BigDecimal.valueOf(-1)}) {
+            ValueTypesFragment fragment = new PocketKnifeBuilder(RuntimeEnvironment.application)
+                    .getValueTypesFragment(ValueTypesFragment.Color.RED, UUID.randomUUID(), null, amount);
+            PocketKnife.injectArguments(fragment);
+            assertEquals(amount, fragment.amount);
+        }
+    }
+
+    @Test
+    public void testSaveState() {
+        ValueTypesFragment fragment = new ValueTypesFragment();
+        fragment.savedColor = ValueTypesFragment.Color.BLUE;
+        fragment.savedDate = new Date(42L);
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(fragment, bundle);
+        assertEquals("BLUE", bundle.getString("BUNDLE_SAVED_COLOR"));
+
+        ValueTypesFragment copy = new ValueTypesFragment();
+        PocketKnife.restoreInstanceState(copy, bundle);
+        assertEquals(ValueTypesFragment.Color.BLUE, copy.savedColor);
+        assertEquals(new Date(42L), copy.savedDate);
+    }
+
+    @Test
+    public void testIntentBuilder() {
+        UUID id = UUID.randomUUID();
+        Intent intent = new PocketKnifeBuilder(RuntimeEnvironment.application).getValueTypesIntent(ValueTypesFragment.Color.RED, id, null,
+                BigDecimal.TEN);
+        assertEquals("RED", intent.getStringExtra(PocketKnifeBuilder.EXTRA_COLOR));
+        assertEquals(id.getLeastSignificantBits(), intent.getLongArrayExtra(PocketKnifeBuilder.EXTRA_ID)[1]);
+        assertTrue(intent.hasExtra(PocketKnifeBuilder.EXTRA_DATE));
+        assertNull(intent.getExtras().get(PocketKnifeBuilder.EXTRA_DATE));
+    }
+}
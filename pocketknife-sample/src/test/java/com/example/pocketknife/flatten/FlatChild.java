@@ -0,0 +1,23 @@
+package com.example.pocketknife.flatten;
+
+import pocketknife.InjectArgument;
+import pocketknife.InjectExtra;
+import pocketknife.NotRequired;
+import pocketknife.SaveState;
+
+public class FlatChild extends FlatParent {
+
+    public static final String CHILD_ARG = "CHILD_ARG";
+    public static final String CHILD_EXTRA = "CHILD_EXTRA";
+
+    @InjectArgument(CHILD_ARG)
+    @NotRequired
+    String childArg;
+
+    @InjectExtra(CHILD_EXTRA)
+    long childExtra;
+
+    @SaveState
+    @NotRequired
+    String childState;
+}
@@ -0,0 +1,9 @@
+package com.example.pocketknife.flatten;
+
+import pocketknife.SaveState;
+
+public class FlatGrandchild extends FlatChild {
+
+    @SaveState
+    boolean grandchildState;
+}
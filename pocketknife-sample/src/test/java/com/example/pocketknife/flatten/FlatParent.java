@@ -0,0 +1,20 @@
+package com.example.pocketknife.flatten;
+
+import pocketknife.InjectArgument;
+import pocketknife.InjectExtra;
+import pocketknife.SaveState;
+
+public class FlatParent {
+
+    public static final String PARENT_ARG = "PARENT_ARG";
+    public static final String PARENT_EXTRA = "PARENT_EXTRA";
+
+    @InjectArgument(PARENT_ARG)
+    int parentArg;
+
+    @InjectExtra(PARENT_EXTRA)
+    String parentExtra;
+
+    @SaveState
+    int parentState;
+}
@@ -0,0 +1,75 @@
+package com.example.pocketknife.flatten;
+
+import android.content.Intent;
+import android.os.Bundle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compiled with {@code -Apocketknife.flatten=true}, so the injectors of the subclasses inline the fields of their ancestors.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class FlattenTest {
+
+    @Test
+    public void testSaveAndRestore() {
+        FlatGrandchild original = new FlatGrandchild();
+        original.parentState = 42;
+        original.childState = "child";
+        original.grandchildState = true;
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(original, bundle);
+        assertEquals(3, bundle.size());
+
+        FlatGrandchild restored = new FlatGrandchild();
+        PocketKnife.restoreInstanceState(restored, bundle);
+        assertEquals(42, restored.parentState);
+        assertEquals("child", restored.childState);
+        assertTrue(restored.grandchildState);
+    }
+
+    @Test
+    public void testInjectArguments() {
+        Bundle args = new Bundle();
+        args.putInt(FlatParent.PARENT_ARG, 7);
+
+        FlatChild target = new FlatChild();
+        PocketKnife.injectArguments(target, args);
+        assertEquals(7, target.parentArg);
+        assertNull(target.childArg);
+    }
+
+    @Test
+    public void testMissingInlinedArgument() {
+        Bundle args = new Bundle();
+        args.putString(FlatChild.CHILD_ARG, "child");
+        try {
+            PocketKnife.injectArguments(new FlatGrandchild(), args);
+            fail("Required argument of the parent was not checked");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains(FlatParent.PARENT_ARG));
+        }
+    }
+
+    @Test
+    public void testInjectExtras() {
+        Intent intent = new Intent();
+        intent.putExtra(FlatParent.PARENT_EXTRA, "parent");
+        intent.putExtra(FlatChild.CHILD_EXTRA, 9L);
+
+        FlatGrandchild target = new FlatGrandchild();
+        PocketKnife.injectExtras(target, intent);
+        assertEquals("parent", target.parentExtra);
+        assertEquals(9L, target.childExtra);
+    }
+}
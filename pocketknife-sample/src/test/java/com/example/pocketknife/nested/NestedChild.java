@@ -0,0 +1,13 @@
+package com.example.pocketknife.nested;
+
+import pocketknife.SaveState;
+
+public class NestedChild extends NestedParent {
+
+    // Hides the field of the parent, which has the same generated key
+    @SaveState
+    int count;
+
+    @SaveState
+    boolean flag;
+}
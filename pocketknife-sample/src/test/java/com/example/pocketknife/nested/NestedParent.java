@@ -0,0 +1,14 @@
+package com.example.pocketknife.nested;
+
+import pocketknife.NotRequired;
+import pocketknife.SaveState;
+
+public class NestedParent {
+
+    @SaveState
+    int count;
+
+    @SaveState
+    @NotRequired
+    String name;
+}
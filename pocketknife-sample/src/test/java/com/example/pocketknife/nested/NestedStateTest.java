@@ -0,0 +1,98 @@
+package com.example.pocketknife.nested;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiled with {@code -Apocketknife.nestedState=true}, so each class of the hierarchy saves its fields into a bundle of its own.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class NestedStateTest {
+
+    private static final String PARENT_KEY = "BUNDLE_" + NestedParent.class.getName();
+    private static final String CHILD_KEY = "BUNDLE_" + NestedChild.class.getName();
+
+    @Test
+    public void testNestedLayout() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(newChild(), bundle);
+
+        assertEquals(2, bundle.size());
+        Bundle parentState = bundle.getBundle(PARENT_KEY);
+        assertEquals(2, parentState.size());
+        assertEquals(1, parentState.getInt("BUNDLE_COUNT"));
+        assertEquals("parent", parentState.getString("BUNDLE_NAME"));
+        Bundle childState = bundle.getBundle(CHILD_KEY);
+        assertEquals(2, childState.size());
+        assertEquals(2, childState.getInt("BUNDLE_COUNT"));
+        assertTrue(childState.getBoolean("BUNDLE_FLAG"));
+    }
+
+    @Test
+    public void testSaveAndRestore() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(newChild(), bundle);
+
+        NestedChild restored = new NestedChild();
+        PocketKnife.restoreInstanceState(restored, parcel(bundle));
+        assertEquals(1, ((NestedParent) restored).count);
+        assertEquals("parent", restored.name);
+        assertEquals(2, restored.count);
+        assertTrue(restored.flag);
+    }
+
+    @Test
+    public void testRestoreParentOnly() {
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(newChild(), bundle);
+        bundle.remove(CHILD_KEY);
+
+        NestedChild restored = new NestedChild();
+        PocketKnife.restoreInstanceState(restored, bundle);
+        assertEquals(1, ((NestedParent) restored).count);
+        assertEquals(0, restored.count);
+    }
+
+    @Test
+    public void testNullName() {
+        NestedParent original = new NestedParent();
+        original.count = 3;
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(original, bundle);
+        assertEquals(1, bundle.size());
+
+        NestedParent restored = new NestedParent();
+        PocketKnife.restoreInstanceState(restored, bundle);
+        assertEquals(3, restored.count);
+        assertNull(restored.name);
+    }
+
+    private static NestedChild newChild() {
+        NestedChild child = new NestedChild();
+        ((NestedParent) child).count = 1;
+        child.name = "parent";
+        child.count = 2;
+        child.flag = true;
+        return child;
+    }
+
+    private static Bundle parcel(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        bundle.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        Bundle read = parcel.readBundle(NestedStateTest.class.getClassLoader());
+        parcel.recycle();
+        return read;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.pocketknife.shortkeys;
+
+import android.os.Bundle;
+import pocketknife.BundleBuilder;
+
+public interface ShortKeysBundles {
+
+    @BundleBuilder
+    Bundle getArguments(String argName);
+}
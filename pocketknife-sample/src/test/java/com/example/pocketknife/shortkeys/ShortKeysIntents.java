@@ -0,0 +1,10 @@
+package com.example.pocketknife.shortkeys;
+
+import android.content.Intent;
+import pocketknife.IntentBuilder;
+
+public interface ShortKeysIntents {
+
+    @IntentBuilder(action = "TEST")
+    Intent getIntent(long extraId);
+}
@@ -0,0 +1,17 @@
+package com.example.pocketknife.shortkeys;
+
+import pocketknife.InjectArgument;
+import pocketknife.InjectExtra;
+import pocketknife.SaveState;
+
+public class ShortKeysTarget {
+
+    @SaveState
+    int savedCount;
+
+    @InjectArgument
+    String argName;
+
+    @InjectExtra
+    long extraId;
+}
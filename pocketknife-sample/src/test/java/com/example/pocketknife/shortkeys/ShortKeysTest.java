@@ -0,0 +1,67 @@
+package com.example.pocketknife.shortkeys;
+
+import android.content.Intent;
+import android.os.Bundle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import pocketknife.PocketKnife;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiled with {@code -Apocketknife.shortKeys=true}, so fields and builder parameters without an explicit key are stored under a hash of
+ * the generated key.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml")
+public class ShortKeysTest {
+
+    @Test
+    public void testSaveAndRestore() {
+        ShortKeysTarget original = new ShortKeysTarget();
+        original.savedCount = 42;
+
+        Bundle bundle = new Bundle();
+        PocketKnife.saveInstanceState(original, bundle);
+        assertEquals(1, bundle.size());
+        assertShortKey(bundle, "BUNDLE_SAVED_COUNT");
+
+        ShortKeysTarget restored = new ShortKeysTarget();
+        PocketKnife.restoreInstanceState(restored, bundle);
+        assertEquals(42, restored.savedCount);
+    }
+
+    @Test
+    public void testBuilderAndArguments() {
+        Bundle args = new PocketKnifeShortKeysBundles().getArguments("name");
+        assertEquals(1, args.size());
+        assertShortKey(args, "ARG_ARG_NAME");
+
+        ShortKeysTarget target = new ShortKeysTarget();
+        PocketKnife.injectArguments(target, args);
+        assertEquals("name", target.argName);
+    }
+
+    @Test
+    public void testBuilderAndExtras() {
+        Intent intent = new PocketKnifeShortKeysIntents(RuntimeEnvironment.application).getIntent(7L);
+        assertEquals(1, intent.getExtras().size());
+        assertShortKey(intent.getExtras(), "EXTRA_EXTRA_ID");
+
+        ShortKeysTarget target = new ShortKeysTarget();
+        PocketKnife.injectExtras(target, intent);
+        assertEquals(7L, target.extraId);
+    }
+
+    private static void assertShortKey(Bundle bundle, String longKey) {
+        assertFalse(bundle.containsKey(longKey));
+        for (String key : bundle.keySet()) {
+            assertTrue(key, key.length() < longKey.length());
+        }
+    }
+}
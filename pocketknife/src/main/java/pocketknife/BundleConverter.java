@@ -0,0 +1,39 @@
+package pocketknife;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Store a value with a converter class instead of the built-in handling of its type. On a class it applies to every field and builder
+ * parameter of that type, on a field or parameter only to that one.
+ * <pre>
+ *     <code>
+ *         public final class ColorConverter {
+ *             public static void write(Bundle bundle, String key, Color color) {
+ *                 bundle.putInt(key, color.argb);
+ *             }
+ *
+ *             public static Color read(Bundle bundle, String key) {
+ *                 return new Color(bundle.getInt(key));
+ *             }
+ *         }
+ *
+ *         {@literal @}SaveState
+ *         {@literal @}BundleConverter(ColorConverter.class)
+ *         Color color;
+ *     </code>
+ * </pre>
+ * The converter needs static {@code write(Bundle, String, T)} and {@code read(Bundle, String)} methods, which the generated code calls
+ * directly. {@code write} must put a value under the key it is given, that key tells whether the value is there when reading. It may also
+ * use keys derived from it.
+ */
+@Retention(CLASS)
+@Target({ FIELD, PARAMETER, TYPE })
+public @interface BundleConverter {
+    Class<?> value();
+}
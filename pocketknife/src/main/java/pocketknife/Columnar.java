@@ -0,0 +1,38 @@
+package pocketknife;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Store collections of a small value class column by column. Instead of writing every element with its class name and header, as
+ * {@code putParcelableArrayList} does, a collection of an annotated type is packed into a {@link android.os.Bundle} holding one array
+ * per field, and rebuilt from those arrays when it is read.
+ * <pre>
+ *     <code>
+ *         {@literal @}Columnar
+ *         public class Reading {
+ *             long time;
+ *             int sensor;
+ *             float value;
+ *         }
+ *
+ *         {@literal @}SaveState
+ *         ArrayList&lt;Reading&gt; readings;
+ *     </code>
+ * </pre>
+ * Applies to fields, extras and arguments whose type is a {@link java.util.Collection}, {@link java.util.List}, {@link java.util.Set}
+ * or one of their common implementations of an annotated type. The class needs a non-private no-argument constructor. Every
+ * non-static, non-transient field of the class and of its superclasses is stored, so they must not be private or final, and must be
+ * primitives or {@link String}. Inherited fields declared in another package must be public, and a field must not hide an inherited
+ * one. Superclasses in the Java or Android framework are not walked. A subclass is only stored column by column if it is annotated too.
+ * <p>
+ * Elements are always read back as the annotated class, so storing an instance of a subclass in a collection of the annotated class
+ * throws instead of losing the fields of the subclass. Store it in a collection of its own type.
+ */
+@Retention(CLASS)
+@Target(TYPE)
+public @interface Columnar {
+}
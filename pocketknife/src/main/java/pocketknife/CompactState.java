@@ -0,0 +1,28 @@
+package pocketknife;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Save the primitive and {@link String} {@link SaveState} fields of a class into a single {@code byte[]} instead of one bundle entry each.
+ * Other fields are saved as usual.
+ * <pre>
+ *     <code>
+ *         {@literal @}CompactState
+ *         public class MyActivity extends Activity {
+ *             {@literal @}SaveState int page;
+ *             {@literal @}SaveState boolean expanded;
+ *             {@literal @}SaveState String query;
+ *         }
+ *     </code>
+ * </pre>
+ * The bytes start with a hash of the names, types and order of the packed fields. State saved by a different version of the class is
+ * ignored, as if nothing was saved.
+ */
+@Retention(CLASS)
+@Target(TYPE)
+public @interface CompactState {
+}
@@ -0,0 +1,23 @@
+package pocketknife;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Remove the value of an {@link InjectExtra} or {@link InjectArgument} field from the intent or the argument bundle once it is injected,
+ * so it is not held twice and not parcelled again when the activity or fragment is recreated. Injecting again skips a consumed value and
+ * leaves the field as it is, so a consumed field that must survive recreation should also be saved, for example with
+ * {@code @SaveState(retain = true)}.
+ * <pre>
+ *     <code>
+ *         {@literal @}InjectExtra {@literal @}Consume {@literal @}SaveState(retain = true) ArrayList&lt;Photo&gt; photos;
+ *     </code>
+ * </pre>
+ */
+@Retention(CLASS)
+@Target(FIELD)
+public @interface Consume {
+}
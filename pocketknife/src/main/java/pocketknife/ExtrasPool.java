@@ -0,0 +1,97 @@
+package pocketknife;
+
+import android.content.Intent;
+import pocketknife.internal.IntentBinding;
+
+/**
+ * A pool of reusable holders for {@link InjectExtra} fields, for intents received at a high rate such as in
+ * {@link android.content.BroadcastReceiver#onReceive} or {@link android.app.Service#onStartCommand}. Each thread has its own holders,
+ * so a holder must be released on the thread that acquired it. Once the pool is warm, injecting allocates nothing beyond what reading
+ * the intent does.
+ * <pre>
+ *     <code>
+ *         private static final ExtrasPool&lt;Event&gt; EVENTS = new ExtrasPool&lt;Event&gt;(Event.class, 4) {
+ *             {@literal @}Override
+ *             protected Event create() {
+ *                 return new Event();
+ *             }
+ *         };
+ *
+ *         Event event = EVENTS.acquire(intent);
+ *         try {
+ *             handle(event);
+ *         } finally {
+ *             EVENTS.release(event);
+ *         }
+ *     </code>
+ * </pre>
+ */
+public abstract class ExtrasPool<T> {
+    private final IntentBinding<T> binding;
+    private final int maximumSize;
+    private final ThreadLocal<Holders> holders = new ThreadLocal<Holders>() {
+        @Override
+        protected Holders initialValue() {
+            return new Holders(maximumSize);
+        }
+    };
+
+    /**
+     * @param cls         Class of the holders, the class returned by {@link #create()}.
+     * @param maximumSize Number of released holders kept per thread.
+     */
+    public ExtrasPool(Class<T> cls, int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize < 0");
+        }
+        this.binding = PocketKnife.getIntentBinding(cls);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return a new holder of the class given to the constructor.
+     */
+    protected abstract T create();
+
+    /**
+     * @return a holder with the extras of {@code intent} injected.
+     */
+    public T acquire(Intent intent) {
+        Holders threadHolders = holders.get();
+        T holder;
+        if (threadHolders.size > 0) {
+            holder = threadHolders.pop();
+        } else {
+            holder = create();
+        }
+        binding.injectExtras(holder, intent);
+        return holder;
+    }
+
+    /**
+     * Reset {@code holder} and keep it for the next {@link #acquire} on this thread.
+     */
+    public void release(T holder) {
+        binding.resetExtras(holder);
+        Holders threadHolders = holders.get();
+        if (threadHolders.size < threadHolders.items.length) {
+            threadHolders.items[threadHolders.size++] = holder;
+        }
+    }
+
+    private static final class Holders {
+        final Object[] items;
+        int size;
+
+        Holders(int maximumSize) {
+            items = new Object[maximumSize];
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T pop() {
+            T item = (T) items[--size];
+            items[size] = null;
+            return item;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package pocketknife;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Hand an extra over to an {@link InjectExtra} field in the same process without copying it. The {@link IntentBuilder} parameter and the
+ * injected field must both be annotated, so the builder needs a {@code cls} to be checked against. The value is still written to the
+ * intent, as bytes, for an activity started in another process or after the process was killed. Only the values of the last 16 intents
+ * built are kept in memory, an intent that is started later reads the bytes.
+ * <pre>
+ *     <code>
+ *         {@literal @}IntentBuilder(cls = PhotoActivity.class)
+ *         Intent getPhotoActivity({@literal @}Handoff ArrayList&lt;Photo&gt; photos);
+ *
+ *         {@literal @}InjectExtra {@literal @}Handoff ArrayList&lt;Photo&gt; photos;
+ *     </code>
+ * </pre>
+ */
+@Retention(CLASS)
+@Target({ FIELD, PARAMETER })
+public @interface Handoff {
+}
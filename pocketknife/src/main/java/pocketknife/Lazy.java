@@ -0,0 +1,20 @@
+package pocketknife;
+
+/**
+ * A value that is read when it is first needed. Fields annotated with {@link InjectExtra}, {@link InjectArgument} or {@link SaveState}
+ * may be declared as {@code Lazy<T>} for any supported {@code T}, so an expensive value is only deserialized if it is used. Injecting
+ * does not touch the bundle, whether the value is there is only checked by the first call to {@link #get()}.
+ * <pre>
+ *     <code>
+ *         {@literal @}InjectExtra("extra_key") Lazy&lt;MyParcelable&gt; parcelable;
+ *     </code>
+ * </pre>
+ */
+public interface Lazy<T> {
+
+    /**
+     * @return the value, read on the first call and cached after that, or {@code null} if a {@link NotRequired} value is missing.
+     * @throws IllegalStateException if a required value is missing.
+     */
+    T get();
+}
@@ -4,15 +4,20 @@ import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
+import pocketknife.internal.AdapterIndexes;
 import pocketknife.internal.BundleBinding;
 import pocketknife.internal.IntentBinding;
 import pocketknife.internal.Memoizer;
+import pocketknife.internal.RetainedState;
+import pocketknife.internal.SavedFields;
+import pocketknife.internal.SpilledState;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.io.File;
+import java.util.List;
 
 import static pocketknife.internal.GeneratedAdapters.ANDROID_PREFIX;
 import static pocketknife.internal.GeneratedAdapters.BUNDLE_ADAPTER_SUFFIX;
+import static pocketknife.internal.GeneratedAdapters.INSTANCE_FIELD;
 import static pocketknife.internal.GeneratedAdapters.INTENT_ADAPTER_SUFFIX;
 import static pocketknife.internal.GeneratedAdapters.JAVA_PREFIX;
 
@@ -32,6 +37,33 @@ public final class PocketKnife {
         PocketKnife.debug = debug;
     }
 
+    /**
+     * Write the values of {@code @SaveState(spill = true)} fields larger than the spill threshold to files in {@code directory}, and keep
+     * only the file name in the saved state. Use a directory of its own in the cache directory, and set it before any state is
+     * restored, typically in {@link android.app.Application#onCreate()}. Without a directory the values stay in the saved state.
+     *
+     * @param directory Directory for spilled values, or {@code null} to stop spilling.
+     */
+    public static void setSpillDirectory(File directory) {
+        SpilledState.setDirectory(directory);
+    }
+
+    /**
+     * Set the size in bytes from which a {@code @SaveState(spill = true)} value is written to a file, 64 KiB by default.
+     */
+    public static void setSpillThreshold(int bytes) {
+        SpilledState.setThreshold(bytes);
+    }
+
+    /**
+     * Set the estimated size in bytes of the {@code @SaveState(retain = true)} and {@link Handoff} values kept in memory, 1/16 of the heap
+     * by default. The least recently saved values are dropped first, and read from the bundle or intent instead. Only arrays, strings,
+     * collections, maps and bitmaps are measured, any other object counts as a few bytes whatever it references.
+     */
+    public static void setRetainedStateSize(long bytes) {
+        RetainedState.setMaxSize(bytes);
+    }
+
     /**
      * Save annotated fields in the specified {@code target} to the {@link Bundle}.
      *
@@ -39,11 +71,15 @@ public final class PocketKnife {
      * @param bundle Bundle to save the field values.
      */
     public static <T> void saveInstanceState(T target, Bundle bundle) {
-        @SuppressWarnings("unchecked")
-        BundleBinding<T> binding = (BundleBinding<T>) getBundleBinding(target.getClass().getClassLoader(), target.getClass());
-        if (binding != null) {
-            binding.saveInstanceState(target, bundle);
-        }
+        getBundleBinding(target).saveInstanceState(target, bundle);
+    }
+
+    /**
+     * Return the number of fields written by {@link #saveInstanceState} since the last call, and start counting again. Only the fields
+     * of classes annotated with {@link TrackChanges} are counted.
+     */
+    public static int takeSavedFieldCount() {
+        return SavedFields.takeCount();
     }
 
     /**
@@ -53,10 +89,35 @@ public final class PocketKnife {
      * @param bundle Bundle to restore field values.
      */
     public static <T> void restoreInstanceState(T target, Bundle bundle) {
-        @SuppressWarnings("unchecked")
-        BundleBinding<T> binding = (BundleBinding<T>) getBundleBinding(target.getClass().getClassLoader(), target.getClass());
+        getBundleBinding(target).restoreInstanceState(target, bundle);
+    }
+
+    /**
+     * Save annotated fields of all the {@code targets} to the {@link Bundle}. The values of a primitive, boxed, String, enum, Parcelable,
+     * Bundle or {@code @PocketParcel} field are saved together in a single array, so a list of small objects costs a few arrays rather
+     * than a bundle each. The other fields are saved in a bundle per target, which the compiler notes for each class. The targets must all
+     * be of the same class, its binding is only looked up once. Restore them with {@link #restoreAll} into a list of the same size.
+     *
+     * @param targets Targets for field saving, all of the same class.
+     * @param bundle  Bundle to save the field values, used for nothing else.
+     */
+    public static <T> void saveAll(List<? extends T> targets, Bundle bundle) {
+        BundleBinding<T> binding = getBundleBinding(targets);
+        if (binding != null) {
+            binding.saveAll(targets, bundle);
+        }
+    }
+
+    /**
+     * Restore annotated fields of all the {@code targets} from the {@link Bundle} saved by {@link #saveAll}.
+     *
+     * @param targets Targets to restore fields, as many as were saved and all of the same class.
+     * @param bundle  Bundle to restore field values.
+     */
+    public static <T> void restoreAll(List<? extends T> targets, Bundle bundle) {
+        BundleBinding<T> binding = getBundleBinding(targets);
         if (binding != null) {
-            binding.restoreInstanceState(target, bundle);
+            binding.restoreAll(targets, bundle);
         }
     }
 
@@ -85,11 +146,7 @@ public final class PocketKnife {
      * @param bundle Bundle containing arguments;
      */
     public static <T> void injectArguments(T target, Bundle bundle) {
-        @SuppressWarnings("unchecked")
-        BundleBinding<T> binding = (BundleBinding<T>) getBundleBinding(target.getClass().getClassLoader(), target.getClass());
-        if (binding != null) {
-            binding.injectArguments(target, bundle);
-        }
+        getBundleBinding(target).injectArguments(target, bundle);
     }
 
     /**
@@ -108,89 +165,123 @@ public final class PocketKnife {
      * @param intent Intent containing the extras.
      */
     public static <T> void injectExtras(T target, Intent intent) {
-        @SuppressWarnings("unchecked")
-        IntentBinding<T> binding = (IntentBinding<T>) getIntentBinding(target.getClass().getClassLoader(), target.getClass());
-        if (binding != null) {
-            binding.injectExtras(target, intent);
+        getIntentBinding(target).injectExtras(target, intent);
+    }
+
+    /**
+     * Set the injected extras of the specified {@code target} back to their default values, so it can be reused for another intent.
+     *
+     * @param target Target object to reset the extras of.
+     * @see ExtrasPool
+     */
+    public static <T> void resetExtras(T target) {
+        getIntentBinding(target).resetExtras(target);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> IntentBinding<T> getIntentBinding(Class<T> cls) {
+        return (IntentBinding<T>) INTENT_BINDINGS.get(cls);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> BundleBinding<T> getBundleBinding(T target) {
+        return (BundleBinding<T>) BUNDLE_BINDINGS.get(target.getClass());
+    }
+
+    /**
+     * @return the binding of the class of the targets, or {@code null} if there are none.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> BundleBinding<T> getBundleBinding(List<? extends T> targets) {
+        if (targets.isEmpty()) {
+            return null;
+        }
+        Class<?> cls = targets.get(0).getClass();
+        for (int i = 1, size = targets.size(); i < size; i++) {
+            if (targets.get(i).getClass() != cls) {
+                throw new IllegalArgumentException("Targets of " + cls.getName() + " and " + targets.get(i).getClass().getName() + " in one batch");
+            }
         }
+        return (BundleBinding<T>) BUNDLE_BINDINGS.get(cls);
     }
 
-    private static BundleBinding<?> getBundleBinding(ClassLoader classLoader, Class<?> cls) {
+    @SuppressWarnings("unchecked")
+    private static <T> IntentBinding<T> getIntentBinding(T target) {
+        return (IntentBinding<T>) INTENT_BINDINGS.get(target.getClass());
+    }
+
+    private static BundleBinding<?> findBundleBinding(Class<?> cls) {
         String clsName = cls.getName();
         if (clsName.startsWith(ANDROID_PREFIX) || clsName.startsWith(JAVA_PREFIX)) {
             if (debug) {
                 Log.d(TAG, "MISS: Reached framework class. Abandoning search.");
             }
-            return null;
+            return NO_BUNDLE_BINDING;
         }
-        Class<?> adapterClass = loadClass(classLoader, clsName.concat(BUNDLE_ADAPTER_SUFFIX));
-        if (!adapterClass.equals(Void.class)) {
+        BundleBinding<?> indexedBinding = AdapterIndexes.getBundleBinding(clsName);
+        if (indexedBinding != null) {
+            if (debug) {
+                Log.d(TAG, "Found indexed bundle adapter for " + clsName);
+            }
+            return indexedBinding;
+        }
+        Class<?> adapterClass = loadClass(cls.getClassLoader(), clsName.concat(BUNDLE_ADAPTER_SUFFIX));
+        if (adapterClass != null) {
             if (debug) {
                 Log.d(TAG, "Found loadable bundle adapter for " + clsName);
             }
             try {
-                @SuppressWarnings("unchecked")
-                Constructor<BundleBinding<?>> constructor = (Constructor<BundleBinding<?>>) adapterClass.getConstructor();
-                return constructor.newInstance();
-            } catch (NoSuchMethodException e) {
-                throw new IllegalStateException(
-                        "Couldn't find default constructor in the generated bundle adapter for class "
-                                + clsName);
-            } catch (InvocationTargetException e) {
+                return (BundleBinding<?>) adapterClass.getField(INSTANCE_FIELD).get(null);
+            } catch (NoSuchFieldException e) {
                 throw new IllegalStateException(
-                        "Could not create an instance of the bundle adapter for class " + clsName, e);
-            } catch (InstantiationException e) {
-                throw new IllegalStateException(
-                        "Could not create an instance of the bundle adapter for class " + clsName, e);
+                        "Couldn't find the instance field in the generated bundle adapter for class " + clsName);
             } catch (IllegalAccessException e) {
                 throw new IllegalStateException(
-                        "Could not create an instance of the bundle adapter for class " + clsName, e);
+                        "Could not access the instance of the bundle adapter for class " + clsName, e);
             }
         }
-        // Search for Parent Class adapter
+        // Search for Parent Class adapter. Going through the cache shares the parent's adapter with all of its subclasses.
         if (debug) {
             Log.d(TAG, String.format("%s not found. Trying superclass %s", clsName, cls.getSuperclass().getName()));
         }
-        return getBundleBinding(classLoader, cls.getSuperclass());
+        return BUNDLE_BINDINGS.get(cls.getSuperclass());
     }
 
-    private static IntentBinding<?> getIntentBinding(ClassLoader classLoader, Class cls) {
+    private static IntentBinding<?> findIntentBinding(Class<?> cls) {
         String clsName = cls.getName();
         if (clsName.startsWith(ANDROID_PREFIX) || clsName.startsWith(JAVA_PREFIX)) {
             if (debug) {
                 Log.d(TAG, "MISS: Reached framework class. Abandoning search.");
             }
-            return null;
+            return NO_INTENT_BINDING;
+        }
+        IntentBinding<?> indexedBinding = AdapterIndexes.getIntentBinding(clsName);
+        if (indexedBinding != null) {
+            if (debug) {
+                Log.d(TAG, "Found indexed intent adapter for " + clsName);
+            }
+            return indexedBinding;
         }
-        Class<?> adapterClass = loadClass(classLoader, clsName.concat(INTENT_ADAPTER_SUFFIX));
-        if (!adapterClass.equals(Void.class)) {
+        Class<?> adapterClass = loadClass(cls.getClassLoader(), clsName.concat(INTENT_ADAPTER_SUFFIX));
+        if (adapterClass != null) {
             if (debug) {
                 Log.d(TAG, "Found loadable intent adapter for " + clsName);
             }
             try {
-                @SuppressWarnings("unchecked")
-                Constructor<IntentBinding<?>> constructor = (Constructor<IntentBinding<?>>) adapterClass.getConstructor();
-                return constructor.newInstance();
-            } catch (NoSuchMethodException e) {
-                throw new IllegalStateException(
-                        "Couldn't find default constructor in the generated intent adapter for class "
-                                + clsName);
-            } catch (InvocationTargetException e) {
+                return (IntentBinding<?>) adapterClass.getField(INSTANCE_FIELD).get(null);
+            } catch (NoSuchFieldException e) {
                 throw new IllegalStateException(
-                        "Could not create an instance of the intent adapter for class " + clsName, e);
-            } catch (InstantiationException e) {
-                throw new IllegalStateException(
-                        "Could not create an instance of the intent adapter for class " + clsName, e);
+                        "Couldn't find the instance field in the generated intent adapter for class " + clsName);
             } catch (IllegalAccessException e) {
                 throw new IllegalStateException(
-                        "Could not create an instance of the intent adapter for class " + clsName, e);
+                        "Could not access the instance of the intent adapter for class " + clsName, e);
             }
         }
-        // Search for Parent Class adapter
+        // Search for Parent Class adapter. Going through the cache shares the parent's adapter with all of its subclasses.
         if (debug) {
             Log.d(TAG, String.format("%s not found. Trying superclass %s", clsName, cls.getSuperclass().getName()));
         }
-        return getIntentBinding(classLoader, cls.getSuperclass());
+        return INTENT_BINDINGS.get(cls.getSuperclass());
     }
 
     private static Class<?> loadClass(ClassLoader classLoader, String name) {
@@ -201,29 +292,69 @@ public final class PocketKnife {
             }
             classLoader = ClassLoader.getSystemClassLoader();
         }
-        return CACHES.get(classLoader).get(name);
+        try {
+            Class<?> cls = classLoader.loadClass(name);
+            if (debug) {
+                Log.d(TAG, "Successfully loaded class " + name);
+            }
+            return cls;
+        } catch (ClassNotFoundException e) {
+            if (debug) {
+                Log.d(TAG, "Failed to load class " + name);
+            }
+            return null;
+        }
     }
 
-    private static final Memoizer<ClassLoader, Memoizer<String, Class<?>>> CACHES = new Memoizer<ClassLoader, Memoizer<String, Class<?>>>() {
+    /**
+     * Generated adapters hold no state, so the binding resolved for a class (including the lack of one) is shared by every
+     * instance of it. After the first call for a class, save, restore and inject are a single cache hit without allocation.
+     * Classes and adapters are held weakly so caching them does not keep a plugin class loader alive; each adapter stays
+     * reachable through its own static instance for as long as its class loader is.
+     */
+    private static final Memoizer<Class<?>, BundleBinding<?>> BUNDLE_BINDINGS = new Memoizer<Class<?>, BundleBinding<?>>(true, 0) {
+        @Override
+        protected BundleBinding<?> create(Class<?> cls) {
+            return findBundleBinding(cls);
+        }
+    };
+
+    private static final Memoizer<Class<?>, IntentBinding<?>> INTENT_BINDINGS = new Memoizer<Class<?>, IntentBinding<?>>(true, 0) {
+        @Override
+        protected IntentBinding<?> create(Class<?> cls) {
+            return findIntentBinding(cls);
+        }
+    };
+
+    private static final BundleBinding<Object> NO_BUNDLE_BINDING = new BundleBinding<Object>() {
+        @Override
+        public void saveInstanceState(Object target, Bundle bundle) {
+        }
+
+        @Override
+        public void restoreInstanceState(Object target, Bundle bundle) {
+        }
+
+        @Override
+        public void injectArguments(Object target, Bundle bundle) {
+        }
+
+        @Override
+        public void saveAll(List<?> targets, Bundle bundle) {
+        }
+
+        @Override
+        public void restoreAll(List<?> targets, Bundle bundle) {
+        }
+    };
+
+    private static final IntentBinding<Object> NO_INTENT_BINDING = new IntentBinding<Object>() {
+        @Override
+        public void injectExtras(Object target, Intent intent) {
+        }
+
         @Override
-        protected Memoizer<String, Class<?>> create(final ClassLoader classLoader) {
-            return new Memoizer<String, Class<?>>() {
-                @Override
-                protected Class<?> create(String className) {
-                    try {
-                        Class<?> cls = classLoader.loadClass(className);
-                        if (debug) {
-                            Log.d(TAG, "Successfully loaded class " + className);
-                        }
-                        return cls;
-                    } catch (ClassNotFoundException e) {
-                        if (debug) {
-                            Log.d(TAG, "Failed to load class " + className);
-                        }
-                        return Void.class; // Cache the failure (negative case).
-                    }
-                }
-            };
+        public void resetExtras(Object target) {
         }
     };
 }
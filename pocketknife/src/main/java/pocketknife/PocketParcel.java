@@ -0,0 +1,33 @@
+package pocketknife;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Generate a {@link android.os.Parcelable} wrapper for a value class. Fields of annotated types are then saved, injected and built
+ * through the wrapper instead of being serialized.
+ * <pre>
+ *     <code>
+ *         {@literal @}PocketParcel
+ *         public class Point {
+ *             int x;
+ *             int y;
+ *         }
+ *     </code>
+ * </pre>
+ * The class needs a non-private no-argument constructor. Every non-static, non-transient field of the class and of its superclasses is
+ * written, so they must not be private or final, and inherited fields from another package must be public. Supported field types are
+ * primitives, boxed primitives, {@link String}, {@link String} arrays, primitive arrays other than {@code short[]},
+ * {@link android.os.Bundle}, {@link android.os.Parcelable} and other {@code @PocketParcel} types.
+ * <p>
+ * A value is always read back as the annotated class, so writing an instance of a subclass throws instead of losing the fields of the
+ * subclass, even if the subclass is annotated too. Store it in a field of its own type. Nested values must not reference each other in
+ * a cycle, which throws as well.
+ */
+@Retention(CLASS)
+@Target(TYPE)
+public @interface PocketParcel {
+}
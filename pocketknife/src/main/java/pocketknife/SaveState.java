@@ -13,9 +13,28 @@ import static java.lang.annotation.RetentionPolicy.CLASS;
  *         {@literal @}SaveState int i;
  *     </code>
  * </pre>
+ * Large values can be kept out of the saved state by spilling them to a file, see {@link PocketKnife#setSpillDirectory(java.io.File)}.
+ * <pre>
+ *     <code>
+ *         {@literal @}SaveState(spill = true) ArrayList&lt;Photo&gt; photos;
+ *     </code>
+ * </pre>
  */
 @Retention(CLASS)
 @Target(FIELD)
 public @interface SaveState {
+    /**
+     * Marshal the value with a {@link android.os.Parcel} and write it to a file if it is larger than the spill threshold. Not allowed on
+     * primitive fields. The file is written in the background and can be gone when the value is restored, if the process was killed
+     * first or the file was deleted. The field then keeps its value, a required field only throws if the key is missing.
+     */
+    boolean spill() default false;
+
+    /**
+     * Also keep the value in memory, so it is restored as the same object when the process lives on, as after a configuration change.
+     * The value is still put in the bundle in full, in case the process is killed, so only restoring is cheaper. Saving the same object
+     * again replaces the values kept for it. See {@link PocketKnife#setRetainedStateSize(long)}.
+     */
+    boolean retain() default false;
 }
 
@@ -0,0 +1,25 @@
+package pocketknife;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Count the {@link SaveState} fields that are written when saving a class, see {@link PocketKnife#takeSavedFieldCount()}.
+ * <pre>
+ *     <code>
+ *         {@literal @}TrackChanges
+ *         public class MyActivity extends Activity {
+ *             {@literal @}SaveState LargeParcelable data;
+ *         }
+ *     </code>
+ * </pre>
+ * Every field is written on each save. Checking a bundle for a value that is already there reads a parcelled bundle back, which costs
+ * more than writing the value again.
+ */
+@Retention(CLASS)
+@Target(TYPE)
+public @interface TrackChanges {
+}
@@ -0,0 +1,20 @@
+package pocketknife.internal;
+
+/**
+ * Compile-time index of the generated adapters.
+ *
+ * <p>Implementations are generated by the annotation processor when the {@code pocketknife.index} option is set and map the binary name
+ * of each target class directly to its adapter, so it can be created without loading classes by name or reflective construction.
+ */
+public interface AdapterIndex {
+
+    /**
+     * @return the bundle adapter for the class with the specified binary name or {@code null} if this index does not know the class.
+     */
+    BundleBinding<?> getBundleBinding(String className);
+
+    /**
+     * @return the intent adapter for the class with the specified binary name or {@code null} if this index does not know the class.
+     */
+    IntentBinding<?> getIntentBinding(String className);
+}
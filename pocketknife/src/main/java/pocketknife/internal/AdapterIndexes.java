@@ -0,0 +1,57 @@
+package pocketknife.internal;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The adapter indexes installed by the generated {@code install()} method of each index. Adapters for classes known to an index are
+ * created directly instead of being looked up by name.
+ */
+public final class AdapterIndexes {
+    private static final List<AdapterIndex> INDEXES = new CopyOnWriteArrayList<AdapterIndex>();
+
+    private AdapterIndexes() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Installing the same index class again has no effect.
+     */
+    public static synchronized void add(AdapterIndex index) {
+        if (index == null) {
+            throw new NullPointerException("index == null");
+        }
+        for (AdapterIndex installed : INDEXES) {
+            if (installed.getClass() == index.getClass()) {
+                return;
+            }
+        }
+        INDEXES.add(index);
+    }
+
+    /**
+     * @return the bundle adapter of the class with the specified binary name or {@code null} if no index knows the class.
+     */
+    public static BundleBinding<?> getBundleBinding(String className) {
+        for (AdapterIndex index : INDEXES) {
+            BundleBinding<?> binding = index.getBundleBinding(className);
+            if (binding != null) {
+                return binding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the intent adapter of the class with the specified binary name or {@code null} if no index knows the class.
+     */
+    public static IntentBinding<?> getIntentBinding(String className) {
+        for (AdapterIndex index : INDEXES) {
+            IntentBinding<?> binding = index.getIntentBinding(className);
+            if (binding != null) {
+                return binding;
+            }
+        }
+        return null;
+    }
+}
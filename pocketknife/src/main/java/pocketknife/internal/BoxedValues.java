@@ -0,0 +1,181 @@
+package pocketknife.internal;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+
+/**
+ * Puts boxed primitives with the typed {@link Bundle} and {@link Intent} methods instead of as {@link java.io.Serializable}. A null
+ * value is stored as a null entry so the key is still there and the field reads back as null.
+ *
+ * <p>This is about types and null: values read back with the typed getters and a null keeps its key. It is not meant to be faster than
+ * the Serializable path, which parcels a boxed primitive as a value of the same type anyway. {@code BoxedValuesBenchmark} in the sample
+ * compares the two.
+ */
+public final class BoxedValues {
+    private static final String TAG = "PocketKnife";
+
+    private BoxedValues() {
+        throw new AssertionError("No instances.");
+    }
+
+    public static void putBoolean(Bundle bundle, String key, Boolean value) {
+        if (value == null) {
+            bundle.putString(key, null);
+        } else {
+            bundle.putBoolean(key, value);
+        }
+    }
+
+    public static void putByte(Bundle bundle, String key, Byte value) {
+        if (value == null) {
+            bundle.putString(key, null);
+        } else {
+            bundle.putByte(key, value);
+        }
+    }
+
+    public static void putChar(Bundle bundle, String key, Character value) {
+        if (value == null) {
+            bundle.putString(key, null);
+        } else {
+            bundle.putChar(key, value);
+        }
+    }
+
+    public static void putShort(Bundle bundle, String key, Short value) {
+        if (value == null) {
+            bundle.putString(key, null);
+        } else {
+            bundle.putShort(key, value);
+        }
+    }
+
+    public static void putInt(Bundle bundle, String key, Integer value) {
+        if (value == null) {
+            bundle.putString(key, null);
+        } else {
+            bundle.putInt(key, value);
+        }
+    }
+
+    public static void putLong(Bundle bundle, String key, Long value) {
+        if (value == null) {
+            bundle.putString(key, null);
+        } else {
+            bundle.putLong(key, value);
+        }
+    }
+
+    public static void putFloat(Bundle bundle, String key, Float value) {
+        if (value == null) {
+            bundle.putString(key, null);
+        } else {
+            bundle.putFloat(key, value);
+        }
+    }
+
+    public static void putDouble(Bundle bundle, String key, Double value) {
+        if (value == null) {
+            bundle.putString(key, null);
+        } else {
+            bundle.putDouble(key, value);
+        }
+    }
+
+    public static void putBooleanExtra(Intent intent, String key, Boolean value) {
+        if (value == null) {
+            intent.putExtra(key, (String) null);
+        } else {
+            intent.putExtra(key, value.booleanValue());
+        }
+    }
+
+    public static void putByteExtra(Intent intent, String key, Byte value) {
+        if (value == null) {
+            intent.putExtra(key, (String) null);
+        } else {
+            intent.putExtra(key, value.byteValue());
+        }
+    }
+
+    public static void putCharExtra(Intent intent, String key, Character value) {
+        if (value == null) {
+            intent.putExtra(key, (String) null);
+        } else {
+            intent.putExtra(key, value.charValue());
+        }
+    }
+
+    public static void putShortExtra(Intent intent, String key, Short value) {
+        if (value == null) {
+            intent.putExtra(key, (String) null);
+        } else {
+            intent.putExtra(key, value.shortValue());
+        }
+    }
+
+    public static void putIntExtra(Intent intent, String key, Integer value) {
+        if (value == null) {
+            intent.putExtra(key, (String) null);
+        } else {
+            intent.putExtra(key, value.intValue());
+        }
+    }
+
+    public static void putLongExtra(Intent intent, String key, Long value) {
+        if (value == null) {
+            intent.putExtra(key, (String) null);
+        } else {
+            intent.putExtra(key, value.longValue());
+        }
+    }
+
+    public static void putFloatExtra(Intent intent, String key, Float value) {
+        if (value == null) {
+            intent.putExtra(key, (String) null);
+        } else {
+            intent.putExtra(key, value.floatValue());
+        }
+    }
+
+    public static void putDoubleExtra(Intent intent, String key, Double value) {
+        if (value == null) {
+            intent.putExtra(key, (String) null);
+        } else {
+            intent.putExtra(key, value.doubleValue());
+        }
+    }
+
+    /**
+     * @return the boxed primitive under {@code key}, or {@code null} if the value is null or missing. A value of another type is logged
+     * and read as {@code null}, as the typed {@link Bundle} getters do.
+     */
+    public static <T> T get(Bundle bundle, String key, Class<T> type) {
+        return cast(bundle.get(key), key, type);
+    }
+
+    /**
+     * @return the boxed primitive extra under {@code key}, read through the intent without copying its extras. See
+     * {@link #get(Bundle, String, Class)}.
+     */
+    public static <T> T getExtra(Intent intent, String key, Class<T> type) {
+        return cast(intent.getSerializableExtra(key), key, type);
+    }
+
+    /**
+     * Log a value of another type than the field it is read into, which keeps {@code defaultValue}.
+     */
+    public static void warnMismatch(String key, Class<?> type, Object value, Object defaultValue) {
+        Log.w(TAG, "Key " + key + " expected " + type.getName() + " but value was a " + value.getClass().getName()
+                + ". The default value " + defaultValue + " was returned.");
+    }
+
+    private static <T> T cast(Object value, String key, Class<T> type) {
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+        warnMismatch(key, type, value, null);
+        return null;
+    }
+}
@@ -2,6 +2,8 @@ package pocketknife.internal;
 
 import android.os.Bundle;
 
+import java.util.List;
+
 
 
 public interface BundleBinding<T> {
@@ -10,4 +12,8 @@ public interface BundleBinding<T> {
     void restoreInstanceState(T target, Bundle bundle);
 
     void injectArguments(T target, Bundle bundle);
+
+    void saveAll(List<? extends T> targets, Bundle bundle);
+
+    void restoreAll(List<? extends T> targets, Bundle bundle);
 }
@@ -0,0 +1,71 @@
+package pocketknife.internal;
+
+/**
+ * Reads the fields written by a {@link CompactStateWriter} in the order they were written.
+ */
+public final class CompactStateReader {
+    private final byte[] bytes;
+    private int position;
+
+    private CompactStateReader(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return a reader positioned after the schema hash, or {@code null} if there are no bytes or they were written with another schema.
+     */
+    public static CompactStateReader open(byte[] bytes, int schemaHash) {
+        if (bytes == null || bytes.length < 4) {
+            return null;
+        }
+        CompactStateReader reader = new CompactStateReader(bytes);
+        if (reader.readInt() != schemaHash) {
+            return null;
+        }
+        return reader;
+    }
+
+    public boolean readBoolean() {
+        return bytes[position++] != 0;
+    }
+
+    public byte readByte() {
+        return bytes[position++];
+    }
+
+    public char readChar() {
+        return (char) ((bytes[position++] & 0xff) << 8 | bytes[position++] & 0xff);
+    }
+
+    public short readShort() {
+        return (short) ((bytes[position++] & 0xff) << 8 | bytes[position++] & 0xff);
+    }
+
+    public int readInt() {
+        return (bytes[position++] & 0xff) << 24 | (bytes[position++] & 0xff) << 16 | (bytes[position++] & 0xff) << 8 | bytes[position++] & 0xff;
+    }
+
+    public long readLong() {
+        return (long) readInt() << 32 | readInt() & 0xffffffffL;
+    }
+
+    public float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public String readString() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = readChar();
+        }
+        return new String(chars);
+    }
+}
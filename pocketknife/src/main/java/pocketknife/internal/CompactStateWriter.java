@@ -0,0 +1,99 @@
+package pocketknife.internal;
+
+import java.util.Arrays;
+
+/**
+ * Writes the fields of a {@link pocketknife.CompactState} class one after the other into a {@code byte[]}, after the hash of their schema.
+ * Values are big-endian and strings are written as their length followed by their UTF-16 chars, the same as a {@link android.os.Parcel}
+ * does, so nothing has to be encoded. A null string has a length of -1.
+ */
+public final class CompactStateWriter {
+    private byte[] bytes;
+    private int position;
+
+    /**
+     * @param capacity expected size in bytes of the fields, the buffer grows if they don't fit.
+     */
+    public CompactStateWriter(int schemaHash, int capacity) {
+        bytes = new byte[4 + capacity];
+        writeInt(schemaHash);
+    }
+
+    public void writeBoolean(boolean value) {
+        ensureCapacity(1);
+        if (value) {
+            bytes[position++] = 1;
+        } else {
+            bytes[position++] = 0;
+        }
+    }
+
+    public void writeByte(byte value) {
+        ensureCapacity(1);
+        bytes[position++] = value;
+    }
+
+    public void writeChar(char value) {
+        ensureCapacity(2);
+        bytes[position++] = (byte) (value >>> 8);
+        bytes[position++] = (byte) value;
+    }
+
+    public void writeShort(short value) {
+        ensureCapacity(2);
+        bytes[position++] = (byte) (value >>> 8);
+        bytes[position++] = (byte) value;
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(4);
+        bytes[position++] = (byte) (value >>> 24);
+        bytes[position++] = (byte) (value >>> 16);
+        bytes[position++] = (byte) (value >>> 8);
+        bytes[position++] = (byte) value;
+    }
+
+    public void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    public void writeFloat(float value) {
+        writeInt(Float.floatToRawIntBits(value));
+    }
+
+    public void writeDouble(double value) {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        int length = value.length();
+        writeInt(length);
+        ensureCapacity(2 * length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            bytes[position++] = (byte) (c >>> 8);
+            bytes[position++] = (byte) c;
+        }
+    }
+
+    /**
+     * @return the written bytes.
+     */
+    public byte[] toByteArray() {
+        if (position == bytes.length) {
+            return bytes;
+        }
+        return Arrays.copyOf(bytes, position);
+    }
+
+    private void ensureCapacity(int count) {
+        if (position + count > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, position + count));
+        }
+    }
+}
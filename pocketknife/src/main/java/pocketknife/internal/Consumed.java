@@ -0,0 +1,67 @@
+package pocketknife.internal;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+
+/**
+ * Removes the values of {@link pocketknife.Consume} fields once they are injected. The keys of removed values are kept, so injecting the
+ * same intent or bundle again can tell a consumed value from a missing one. A key is consumed without checking that it is there, which
+ * would read the extras again: a required value was found or the injector threw, and an optional one that is missing is left as it is
+ * either way.
+ */
+public final class Consumed {
+    private static final String CONSUMED_KEYS = "pocketknife.CONSUMED_KEYS";
+
+    private Consumed() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * @return true if the value under {@code key} was removed by {@link #consume}.
+     */
+    public static boolean isConsumed(Bundle bundle, String key) {
+        ArrayList<String> keys = bundle.getStringArrayList(CONSUMED_KEYS);
+        return keys != null && keys.contains(key);
+    }
+
+    /**
+     * @return true if the extra under {@code key} was removed by {@link #consume}.
+     */
+    public static boolean isConsumed(Intent intent, String key) {
+        ArrayList<String> keys = intent.getStringArrayListExtra(CONSUMED_KEYS);
+        return keys != null && keys.contains(key);
+    }
+
+    /**
+     * Remove the extra under {@code key} from {@code intent}.
+     */
+    public static void consume(Intent intent, String key) {
+        intent.removeExtra(key);
+        intent.removeExtra(key + Handoffs.TOKEN_SUFFIX);
+        ArrayList<String> keys = intent.getStringArrayListExtra(CONSUMED_KEYS);
+        if (keys == null) {
+            keys = new ArrayList<String>();
+        }
+        if (!keys.contains(key)) {
+            keys.add(key);
+            intent.putStringArrayListExtra(CONSUMED_KEYS, keys);
+        }
+    }
+
+    /**
+     * Remove the value under {@code key} from {@code bundle}.
+     */
+    public static void consume(Bundle bundle, String key) {
+        bundle.remove(key);
+        ArrayList<String> keys = bundle.getStringArrayList(CONSUMED_KEYS);
+        if (keys == null) {
+            keys = new ArrayList<String>();
+        }
+        if (!keys.contains(key)) {
+            keys.add(key);
+            bundle.putStringArrayList(CONSUMED_KEYS, keys);
+        }
+    }
+}
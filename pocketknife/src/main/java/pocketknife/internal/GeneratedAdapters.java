@@ -7,6 +7,10 @@ public class GeneratedAdapters {
     private static final String SEPARATOR = "$$";
     public static final String BUNDLE_ADAPTER_SUFFIX = SEPARATOR + "BundleAdapter";
     public static final String INTENT_ADAPTER_SUFFIX = SEPARATOR + "IntentAdapter";
+    public static final String PARCELABLE_SUFFIX = SEPARATOR + "Parcelable";
+    public static final String COLUMNS_SUFFIX = SEPARATOR + "Columns";
+    public static final String INSTANCE_FIELD = "INSTANCE";
+    public static final String INJECTOR_PREFIX = "PocketKnife";
 
     private GeneratedAdapters() {
     }
@@ -0,0 +1,73 @@
+package pocketknife.internal;
+
+import android.content.Intent;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Passes the values of {@link pocketknife.Handoff} extras. The value itself is kept by {@link RetainedState} and the intent holds its token
+ * next to the value written to bytes. An injector in the same process takes the value back as it is, anywhere else the bytes are read.
+ * <p>
+ * An intent that is never started would keep its values in memory, so only the values of the last {@link #MAX_PENDING} intents are kept.
+ * Older ones are dropped and read from the bytes.
+ * <p>
+ * Only a token this class put and that is still pending is taken, and its value is kept with its key, so a token of other retained state
+ * found under the key is left alone and the bytes are read.
+ */
+public final class Handoffs {
+    public static final int MAX_PENDING = 16;
+
+    static final String TOKEN_SUFFIX = ".handoff";
+
+    // Tokens not taken yet, oldest first. Guarded by itself
+    private static final Set<String> PENDING = new LinkedHashSet<String>();
+
+    private Handoffs() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Put {@code value} in the extras of {@code intent} under {@code key}.
+     */
+    public static void put(Intent intent, String key, Object value) {
+        intent.putExtra(key, ParcelBytes.marshall(value));
+        String token = RetainedState.put(null, key, value);
+        intent.putExtra(key + TOKEN_SUFFIX, token);
+        String dropped = null;
+        synchronized (PENDING) {
+            PENDING.add(token);
+            if (PENDING.size() > MAX_PENDING) {
+                Iterator<String> iterator = PENDING.iterator();
+                dropped = iterator.next();
+                iterator.remove();
+            }
+        }
+        RetainedState.take(dropped);
+    }
+
+    /**
+     * @return the value put under {@code key}, the same object if it was put by this process and was not taken or dropped yet.
+     */
+    public static Object take(Intent intent, String key, ClassLoader classLoader) {
+        String token = intent.getStringExtra(key + TOKEN_SUFFIX);
+        boolean pending = false;
+        if (token != null) {
+            synchronized (PENDING) {
+                pending = PENDING.remove(token);
+            }
+        }
+        if (pending) {
+            Object[] values = RetainedState.take(token);
+            if (values != null && values.length == 2 && key.equals(values[0])) {
+                return values[1];
+            }
+        }
+        byte[] bytes = intent.getByteArrayExtra(key);
+        if (bytes == null) {
+            return null;
+        }
+        return ParcelBytes.unmarshall(bytes, classLoader);
+    }
+}
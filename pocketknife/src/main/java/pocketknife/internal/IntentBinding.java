@@ -4,4 +4,9 @@ import android.content.Intent;
 
 public interface IntentBinding<T> {
     void injectExtras(T target, Intent intent);
+
+    /**
+     * Set the injected fields of {@code target} back to their default values.
+     */
+    void resetExtras(T target);
 }
@@ -0,0 +1,54 @@
+package pocketknife.internal;
+
+import android.os.Bundle;
+import pocketknife.Lazy;
+
+/**
+ * A {@link Lazy} value that is read from a {@link Bundle} on the first call to {@link #get()}. The bundle is not touched before then, so a
+ * bundle read from a parcel stays parcelled until a value is needed, and the value is the one in the bundle at that time. The generated
+ * subclass reads the value with the typed getter of its stored type.
+ */
+public abstract class LazyBundleValue<T> implements Lazy<T> {
+    private final String key;
+    private final String missingMessage;
+    private Bundle bundle;
+    private T value;
+
+    /**
+     * @param missingMessage message of the exception thrown by {@link #get()} if the key is missing, or {@code null} if the value is not
+     *                       required and reads as {@code null}.
+     */
+    public LazyBundleValue(Bundle bundle, String key, String missingMessage) {
+        this.bundle = bundle;
+        this.key = key;
+        this.missingMessage = missingMessage;
+    }
+
+    @Override
+    public synchronized T get() {
+        if (bundle != null) {
+            if (bundle.containsKey(key)) {
+                value = read(bundle, key);
+            } else if (missingMessage != null) {
+                throw new IllegalStateException(missingMessage);
+            }
+            bundle = null;
+        }
+        return value;
+    }
+
+    /**
+     * @return the value stored in the bundle under {@code key}.
+     */
+    protected abstract T read(Bundle bundle, String key);
+
+    /**
+     * @return the value of {@code lazy} or {@code null} if {@code lazy} is {@code null}.
+     */
+    public static <T> T valueOf(Lazy<T> lazy) {
+        if (lazy == null) {
+            return null;
+        }
+        return lazy.get();
+    }
+}
@@ -0,0 +1,43 @@
+package pocketknife.internal;
+
+import android.content.Intent;
+import pocketknife.Lazy;
+
+/**
+ * A {@link Lazy} extra that is read from an {@link Intent} on the first call to {@link #get()}. The extras are not touched before then. The
+ * generated subclass reads the value through the intent with the typed getter of its stored type.
+ */
+public abstract class LazyExtraValue<T> implements Lazy<T> {
+    private final String key;
+    private final String missingMessage;
+    private Intent intent;
+    private T value;
+
+    /**
+     * @param missingMessage message of the exception thrown by {@link #get()} if the extra is missing, or {@code null} if the extra is not
+     *                       required and reads as {@code null}.
+     */
+    public LazyExtraValue(Intent intent, String key, String missingMessage) {
+        this.intent = intent;
+        this.key = key;
+        this.missingMessage = missingMessage;
+    }
+
+    @Override
+    public synchronized T get() {
+        if (intent != null) {
+            if (intent.hasExtra(key)) {
+                value = read(intent, key);
+            } else if (missingMessage != null) {
+                throw new IllegalStateException(missingMessage);
+            }
+            intent = null;
+        }
+        return value;
+    }
+
+    /**
+     * @return the extra stored in the intent under {@code key}.
+     */
+    protected abstract T read(Intent intent, String key);
+}
@@ -15,11 +15,7 @@
  */
 package pocketknife.internal;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.lang.ref.WeakReference;
 
 /**
  * An abstract supertype that provides
@@ -28,26 +24,43 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * implement the {@link #create} method with the operation to be memoized, while callers invoke the
  * {@link #get} method to utilize the memoization.
  *
- * <p>Synchronization on this class is implemented using a {@link java.util.concurrent.locks.ReadWriteLock}. Multiple threads
- * may accessed previously memoized results without contention.
+ * <p>Reads are lock-free and do not allocate. Memoized results are kept in an immutable table that is
+ * copied and republished on every write, which suits lookups that vastly outnumber distinct keys.
  *
  * <p>This class is implemented such that concurrent requests for the same key may result in
- * simultaneous computation in multiple threads - the instance of the result that is persisted for
- * subsequent invocations in not guaranteed.
+ * simultaneous computation in multiple threads. Only the first result to be stored is returned to
+ * every caller.
  *
- * <p><b>Warning:</b> there is no eviction. Large input sets will result in growth without bound.
+ * <p>When created with {@code weakReferences} keys are compared by identity and both keys and values
+ * are only weakly held, so caching a {@link Class} or {@link ClassLoader} does not keep it from being
+ * unloaded. Values must be strongly reachable from elsewhere, otherwise they are created again once
+ * collected.
+ *
+ * <p>When created with a {@code maximumSize} the oldest entries are evicted once the size is exceeded.
+ * Otherwise there is no eviction and large input sets will result in growth without bound.
  */
 public abstract class Memoizer<K, V> {
-    private final Map<K, V> map;
-    private final Lock readLock;
-    private final Lock writeLock;
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private final boolean weakReferences;
+    private final int maximumSize;
+    private volatile Entry[] table = new Entry[MINIMUM_CAPACITY];
+    private long sequence;
 
     protected Memoizer() {
-        // Don't use LinkedHashMap. This is a performance-oriented class and we don't want overhead
-        this.map = new HashMap<K, V>();
-        ReadWriteLock lock = new ReentrantReadWriteLock();
-        this.readLock = lock.readLock();
-        this.writeLock = lock.writeLock();
+        this(false, 0);
+    }
+
+    /**
+     * @param weakReferences hold keys and values weakly and compare keys by identity.
+     * @param maximumSize    maximum number of entries, or {@code 0} for no bound.
+     */
+    protected Memoizer(boolean weakReferences, int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize < 0");
+        }
+        this.weakReferences = weakReferences;
+        this.maximumSize = maximumSize;
     }
 
     public final V get(K key) {
@@ -56,14 +69,10 @@ public abstract class Memoizer<K, V> {
         }
 
         // check to see if we already have a value
-        readLock.lock();
-        try {
-            V value = map.get(key);
-            if (value != null) {
-                return value;
-            }
-        } finally {
-            readLock.unlock();
+        int hash = hash(key);
+        V value = find(table, key, hash);
+        if (value != null) {
+            return value;
         }
 
         // create a new value.  this may race and we might create more than one instance, but that's ok
@@ -73,23 +82,162 @@ public abstract class Memoizer<K, V> {
         }
 
         // write the new value and return it
-        writeLock.lock();
-        try {
-            map.put(key, newValue);
-            return newValue;
-        } finally {
-            writeLock.unlock();
-        }
+        return put(key, hash, newValue);
     }
 
     protected abstract V create(K key);
 
+    private int hash(K key) {
+        int h;
+        if (weakReferences) {
+            h = System.identityHashCode(key);
+        } else {
+            h = key.hashCode();
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private V find(Entry[] tab, K key, int hash) {
+        for (Entry e = tab[hash & (tab.length - 1)]; e != null; e = e.next) {
+            if (e.hash == hash && e.matches(key, weakReferences)) {
+                @SuppressWarnings("unchecked")
+                V value = (V) e.value();
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private synchronized V put(K key, int hash, V newValue) {
+        Entry[] current = table;
+        V value = find(current, key, hash);
+        if (value != null) {
+            return value;
+        }
+
+        // Copy the live entries, dropping anything that was collected or is being replaced
+        Entry[] live = new Entry[count(current) + 1];
+        int size = 0;
+        for (Entry head : current) {
+            for (Entry e = head; e != null; e = e.next) {
+                if (!e.isCleared() && !(e.hash == hash && e.matches(key, weakReferences))) {
+                    live[size++] = e;
+                }
+            }
+        }
+        live[size++] = new Entry(hash, reference(key), reference(newValue), ++sequence, null);
+
+        if (maximumSize > 0) {
+            while (size > maximumSize) {
+                int oldest = 0;
+                for (int i = 1; i < size; i++) {
+                    if (live[i].sequence < live[oldest].sequence) {
+                        oldest = i;
+                    }
+                }
+                live[oldest] = live[--size];
+            }
+        }
+
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        Entry[] tab = new Entry[capacity];
+        for (int i = 0; i < size; i++) {
+            Entry e = live[i];
+            int index = e.hash & (capacity - 1);
+            tab[index] = new Entry(e.hash, e.key, e.value, e.sequence, tab[index]);
+        }
+        table = tab;
+        return newValue;
+    }
+
+    private Object reference(Object referent) {
+        if (weakReferences) {
+            return new Weak(referent);
+        }
+        return referent;
+    }
+
+    private static int count(Entry[] tab) {
+        int count = 0;
+        for (Entry head : tab) {
+            for (Entry e = head; e != null; e = e.next) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Override public final String toString() {
-        readLock.lock();
-        try {
-            return map.toString();
-        } finally {
-            readLock.unlock();
+        StringBuilder builder = new StringBuilder("{");
+        for (Entry head : table) {
+            for (Entry e = head; e != null; e = e.next) {
+                Object key = e.key();
+                Object value = e.value();
+                if (key != null && value != null) {
+                    if (builder.length() > 1) {
+                        builder.append(", ");
+                    }
+                    builder.append(key).append('=').append(value);
+                }
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Immutable once published. Key and value are either the objects themselves or {@link Weak} references to them.
+     */
+    private static final class Entry {
+        final int hash;
+        final Object key;
+        final Object value;
+        final long sequence;
+        final Entry next;
+
+        Entry(int hash, Object key, Object value, long sequence, Entry next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.sequence = sequence;
+            this.next = next;
+        }
+
+        boolean matches(Object other, boolean weakReferences) {
+            if (weakReferences) {
+                return ((Weak) key).get() == other;
+            }
+            return other.equals(key);
+        }
+
+        Object key() {
+            return dereference(key);
+        }
+
+        Object value() {
+            return dereference(value);
+        }
+
+        boolean isCleared() {
+            return key() == null || value() == null;
+        }
+
+        private static Object dereference(Object object) {
+            if (object instanceof Weak) {
+                return ((Weak) object).get();
+            }
+            return object;
+        }
+    }
+
+    /**
+     * Private type so a weakly held entry can't be confused with a value that happens to be a {@link WeakReference}.
+     */
+    private static final class Weak extends WeakReference<Object> {
+        Weak(Object referent) {
+            super(referent);
         }
     }
 }
@@ -0,0 +1,677 @@
+package pocketknife.internal;
+
+import android.util.Log;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Packs collections of boxed primitives and strings into arrays, and maps with {@link String} keys into a pair of a key array and a
+ * parallel value array, which a parcel writes without serializing the elements one by one. A collection holding a null boxed primitive,
+ * or a map holding a null key or a null boxed primitive, is kept as a plain collection or map instead. Unpacking rebuilds the collection
+ * class given by one of the kind constants, and also reads collections and maps that were put as they are.
+ */
+public final class PackedCollections {
+
+    public static final int ARRAY_LIST = 0;
+    public static final int LINKED_LIST = 1;
+    public static final int HASH_SET = 2;
+    public static final int LINKED_HASH_SET = 3;
+    public static final int TREE_SET = 4;
+    public static final int HASH_MAP = 5;
+    public static final int LINKED_HASH_MAP = 6;
+    public static final int TREE_MAP = 7;
+
+    private static final String TAG = "PocketKnife";
+    private static final int KEYS = 0;
+    private static final int VALUES = 1;
+
+    private PackedCollections() {
+        throw new AssertionError("No instances.");
+    }
+
+    public static Serializable packBooleans(Collection<Boolean> collection) {
+        if (collection == null) {
+            return null;
+        }
+        boolean[] values = new boolean[collection.size()];
+        int i = 0;
+        for (Boolean value : collection) {
+            if (value == null) {
+                return new ArrayList<Boolean>(collection);
+            }
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<Boolean>> C unpackBooleans(Object stored, int kind) {
+        if (!(stored instanceof boolean[])) {
+            return unpackCollection(stored, kind);
+        }
+        boolean[] values = (boolean[]) stored;
+        Collection<Boolean> collection = newCollection(kind, values.length);
+        for (boolean value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packBooleanMap(Map<String, Boolean> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        boolean[] values = new boolean[map.size()];
+        int i = 0;
+        for (Map.Entry<String, Boolean> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return new HashMap<String, Boolean>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, Boolean>> M unpackBooleanMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof boolean[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        boolean[] values = (boolean[]) packed[VALUES];
+        Map<String, Boolean> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    public static Serializable packBytes(Collection<Byte> collection) {
+        if (collection == null) {
+            return null;
+        }
+        byte[] values = new byte[collection.size()];
+        int i = 0;
+        for (Byte value : collection) {
+            if (value == null) {
+                return new ArrayList<Byte>(collection);
+            }
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<Byte>> C unpackBytes(Object stored, int kind) {
+        if (!(stored instanceof byte[])) {
+            return unpackCollection(stored, kind);
+        }
+        byte[] values = (byte[]) stored;
+        Collection<Byte> collection = newCollection(kind, values.length);
+        for (byte value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packByteMap(Map<String, Byte> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        byte[] values = new byte[map.size()];
+        int i = 0;
+        for (Map.Entry<String, Byte> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return new HashMap<String, Byte>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, Byte>> M unpackByteMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof byte[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        byte[] values = (byte[]) packed[VALUES];
+        Map<String, Byte> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    public static Serializable packChars(Collection<Character> collection) {
+        if (collection == null) {
+            return null;
+        }
+        char[] values = new char[collection.size()];
+        int i = 0;
+        for (Character value : collection) {
+            if (value == null) {
+                return new ArrayList<Character>(collection);
+            }
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<Character>> C unpackChars(Object stored, int kind) {
+        if (!(stored instanceof char[])) {
+            return unpackCollection(stored, kind);
+        }
+        char[] values = (char[]) stored;
+        Collection<Character> collection = newCollection(kind, values.length);
+        for (char value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packCharMap(Map<String, Character> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        char[] values = new char[map.size()];
+        int i = 0;
+        for (Map.Entry<String, Character> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return new HashMap<String, Character>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, Character>> M unpackCharMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof char[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        char[] values = (char[]) packed[VALUES];
+        Map<String, Character> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    public static Serializable packShorts(Collection<Short> collection) {
+        if (collection == null) {
+            return null;
+        }
+        short[] values = new short[collection.size()];
+        int i = 0;
+        for (Short value : collection) {
+            if (value == null) {
+                return new ArrayList<Short>(collection);
+            }
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<Short>> C unpackShorts(Object stored, int kind) {
+        if (!(stored instanceof short[])) {
+            return unpackCollection(stored, kind);
+        }
+        short[] values = (short[]) stored;
+        Collection<Short> collection = newCollection(kind, values.length);
+        for (short value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packShortMap(Map<String, Short> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        short[] values = new short[map.size()];
+        int i = 0;
+        for (Map.Entry<String, Short> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return new HashMap<String, Short>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, Short>> M unpackShortMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof short[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        short[] values = (short[]) packed[VALUES];
+        Map<String, Short> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    public static Serializable packInts(Collection<Integer> collection) {
+        if (collection == null) {
+            return null;
+        }
+        int[] values = new int[collection.size()];
+        int i = 0;
+        for (Integer value : collection) {
+            if (value == null) {
+                return new ArrayList<Integer>(collection);
+            }
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<Integer>> C unpackInts(Object stored, int kind) {
+        if (!(stored instanceof int[])) {
+            return unpackCollection(stored, kind);
+        }
+        int[] values = (int[]) stored;
+        Collection<Integer> collection = newCollection(kind, values.length);
+        for (int value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packIntMap(Map<String, Integer> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        int[] values = new int[map.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return new HashMap<String, Integer>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, Integer>> M unpackIntMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof int[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        int[] values = (int[]) packed[VALUES];
+        Map<String, Integer> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    public static Serializable packLongs(Collection<Long> collection) {
+        if (collection == null) {
+            return null;
+        }
+        long[] values = new long[collection.size()];
+        int i = 0;
+        for (Long value : collection) {
+            if (value == null) {
+                return new ArrayList<Long>(collection);
+            }
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<Long>> C unpackLongs(Object stored, int kind) {
+        if (!(stored instanceof long[])) {
+            return unpackCollection(stored, kind);
+        }
+        long[] values = (long[]) stored;
+        Collection<Long> collection = newCollection(kind, values.length);
+        for (long value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packLongMap(Map<String, Long> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        long[] values = new long[map.size()];
+        int i = 0;
+        for (Map.Entry<String, Long> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return new HashMap<String, Long>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, Long>> M unpackLongMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof long[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        long[] values = (long[]) packed[VALUES];
+        Map<String, Long> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    public static Serializable packFloats(Collection<Float> collection) {
+        if (collection == null) {
+            return null;
+        }
+        float[] values = new float[collection.size()];
+        int i = 0;
+        for (Float value : collection) {
+            if (value == null) {
+                return new ArrayList<Float>(collection);
+            }
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<Float>> C unpackFloats(Object stored, int kind) {
+        if (!(stored instanceof float[])) {
+            return unpackCollection(stored, kind);
+        }
+        float[] values = (float[]) stored;
+        Collection<Float> collection = newCollection(kind, values.length);
+        for (float value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packFloatMap(Map<String, Float> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        float[] values = new float[map.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return new HashMap<String, Float>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, Float>> M unpackFloatMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof float[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        float[] values = (float[]) packed[VALUES];
+        Map<String, Float> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    public static Serializable packDoubles(Collection<Double> collection) {
+        if (collection == null) {
+            return null;
+        }
+        double[] values = new double[collection.size()];
+        int i = 0;
+        for (Double value : collection) {
+            if (value == null) {
+                return new ArrayList<Double>(collection);
+            }
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<Double>> C unpackDoubles(Object stored, int kind) {
+        if (!(stored instanceof double[])) {
+            return unpackCollection(stored, kind);
+        }
+        double[] values = (double[]) stored;
+        Collection<Double> collection = newCollection(kind, values.length);
+        for (double value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packDoubleMap(Map<String, Double> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        double[] values = new double[map.size()];
+        int i = 0;
+        for (Map.Entry<String, Double> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return new HashMap<String, Double>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, Double>> M unpackDoubleMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof double[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        double[] values = (double[]) packed[VALUES];
+        Map<String, Double> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    public static Serializable packStrings(Collection<String> collection) {
+        if (collection == null) {
+            return null;
+        }
+        String[] values = new String[collection.size()];
+        int i = 0;
+        for (String value : collection) {
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static <C extends Collection<String>> C unpackStrings(Object stored, int kind) {
+        if (!(stored instanceof String[])) {
+            return unpackCollection(stored, kind);
+        }
+        String[] values = (String[]) stored;
+        Collection<String> collection = newCollection(kind, values.length);
+        for (String value : values) {
+            collection.add(value);
+        }
+        return cast(collection);
+    }
+
+    public static Serializable packStringMap(Map<String, String> map) {
+        if (map == null) {
+            return null;
+        }
+        String[] keys = new String[map.size()];
+        String[] values = new String[map.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey() == null) {
+                return new HashMap<String, String>(map);
+            }
+            keys[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new Object[]{keys, values};
+    }
+
+    public static <M extends Map<String, String>> M unpackStringMap(Object stored, int kind) {
+        if (!(stored instanceof Object[])) {
+            return unpackMap(stored, kind);
+        }
+        Object[] packed = (Object[]) stored;
+        if (packed.length != 2 || !(packed[KEYS] instanceof String[]) || !(packed[VALUES] instanceof String[])) {
+            return unpackMap(null, kind);
+        }
+        String[] keys = (String[]) packed[KEYS];
+        String[] values = (String[]) packed[VALUES];
+        Map<String, String> map = newMap(kind, keys.length);
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return cast(map);
+    }
+
+    /**
+     * @return an empty collection of the given kind, for the generated codecs of {@code @Columnar} types.
+     */
+    public static <T> Collection<T> newCollection(int kind, int size) {
+        switch (kind) {
+            case ARRAY_LIST:
+                return new ArrayList<T>(size);
+            case LINKED_LIST:
+                return new LinkedList<T>();
+            case HASH_SET:
+                return new HashSet<T>(capacity(size));
+            case LINKED_HASH_SET:
+                return new LinkedHashSet<T>(capacity(size));
+            case TREE_SET:
+                return new TreeSet<T>();
+            default:
+                throw new IllegalArgumentException("Unknown collection kind " + kind);
+        }
+    }
+
+    private static <T> Map<String, T> newMap(int kind, int size) {
+        switch (kind) {
+            case HASH_MAP:
+                return new HashMap<String, T>(capacity(size));
+            case LINKED_HASH_MAP:
+                return new LinkedHashMap<String, T>(capacity(size));
+            case TREE_MAP:
+                return new TreeMap<String, T>();
+            default:
+                throw new IllegalArgumentException("Unknown map kind " + kind);
+        }
+    }
+
+    /**
+     * @return a collection of the given kind holding the elements of a collection that was stored as it is, which a parcel may have read
+     * back as another collection class. Anything else is logged and read as {@code null}.
+     */
+    private static <C> C unpackCollection(Object stored, int kind) {
+        if (!(stored instanceof Collection)) {
+            warnUnexpected(stored, kind);
+            return null;
+        }
+        Collection<?> elements = (Collection<?>) stored;
+        Collection<Object> collection = newCollection(kind, elements.size());
+        if (collection.getClass() == stored.getClass()) {
+            return cast(stored);
+        }
+        collection.addAll(elements);
+        return cast(collection);
+    }
+
+    /**
+     * @return a map of the given kind holding the entries of a map that was stored as it is. Anything else is logged and read as
+     * {@code null}.
+     */
+    private static <M> M unpackMap(Object stored, int kind) {
+        if (!(stored instanceof Map)) {
+            warnUnexpected(stored, kind);
+            return null;
+        }
+        Map<?, ?> entries = (Map<?, ?>) stored;
+        Map<String, Object> map = newMap(kind, entries.size());
+        if (map.getClass() == stored.getClass()) {
+            return cast(stored);
+        }
+        for (Map.Entry<?, ?> entry : entries.entrySet()) {
+            map.put((String) entry.getKey(), entry.getValue());
+        }
+        return cast(map);
+    }
+
+    private static void warnUnexpected(Object stored, int kind) {
+        if (stored != null) {
+            Log.w(TAG, "Expected a packed collection of kind " + kind + " but value was a " + stored.getClass().getName()
+                    + ". The default value null was returned.");
+        }
+    }
+
+    /**
+     * @return a hash capacity that holds {@code size} entries at the default load factor without rehashing.
+     */
+    private static int capacity(int size) {
+        return size + size / 3 + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+}
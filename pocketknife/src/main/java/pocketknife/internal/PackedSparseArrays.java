@@ -0,0 +1,351 @@
+package pocketknife.internal;
+
+import android.os.Bundle;
+import android.util.LongSparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+/**
+ * Packs {@link SparseIntArray}, {@link SparseBooleanArray} and {@link LongSparseArray} into a {@link Bundle} holding a primitive key array
+ * and a parallel value array, so they are saved without boxing a key or value. Keys are stored in ascending order, so unpacking appends
+ * each entry instead of searching for its position. A {@link LongSparseArray} of boxed primitives may not contain null.
+ */
+public final class PackedSparseArrays {
+
+    private static final String KEYS = "keys";
+    private static final String VALUES = "values";
+
+    private PackedSparseArrays() {
+        throw new AssertionError("No instances.");
+    }
+
+    public static Bundle packSparseIntArray(SparseIntArray array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        int[] keys = new int[size];
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putIntArray(KEYS, keys);
+        bundle.putIntArray(VALUES, values);
+        return bundle;
+    }
+
+    public static SparseIntArray unpackSparseIntArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        int[] keys = bundle.getIntArray(KEYS);
+        int[] values = bundle.getIntArray(VALUES);
+        SparseIntArray array = new SparseIntArray(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packSparseBooleanArray(SparseBooleanArray array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        int[] keys = new int[size];
+        boolean[] values = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putIntArray(KEYS, keys);
+        bundle.putBooleanArray(VALUES, values);
+        return bundle;
+    }
+
+    public static SparseBooleanArray unpackSparseBooleanArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        int[] keys = bundle.getIntArray(KEYS);
+        boolean[] values = bundle.getBooleanArray(VALUES);
+        SparseBooleanArray array = new SparseBooleanArray(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packBooleanLongSparseArray(LongSparseArray<Boolean> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        boolean[] values = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putBooleanArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<Boolean> unpackBooleanLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        boolean[] values = bundle.getBooleanArray(VALUES);
+        LongSparseArray<Boolean> array = new LongSparseArray<Boolean>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packByteLongSparseArray(LongSparseArray<Byte> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        byte[] values = new byte[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putByteArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<Byte> unpackByteLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        byte[] values = bundle.getByteArray(VALUES);
+        LongSparseArray<Byte> array = new LongSparseArray<Byte>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packCharLongSparseArray(LongSparseArray<Character> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        char[] values = new char[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putCharArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<Character> unpackCharLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        char[] values = bundle.getCharArray(VALUES);
+        LongSparseArray<Character> array = new LongSparseArray<Character>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packShortLongSparseArray(LongSparseArray<Short> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        short[] values = new short[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putShortArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<Short> unpackShortLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        short[] values = bundle.getShortArray(VALUES);
+        LongSparseArray<Short> array = new LongSparseArray<Short>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packIntLongSparseArray(LongSparseArray<Integer> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putIntArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<Integer> unpackIntLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        int[] values = bundle.getIntArray(VALUES);
+        LongSparseArray<Integer> array = new LongSparseArray<Integer>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packLongLongSparseArray(LongSparseArray<Long> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putLongArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<Long> unpackLongLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        long[] values = bundle.getLongArray(VALUES);
+        LongSparseArray<Long> array = new LongSparseArray<Long>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packFloatLongSparseArray(LongSparseArray<Float> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putFloatArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<Float> unpackFloatLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        float[] values = bundle.getFloatArray(VALUES);
+        LongSparseArray<Float> array = new LongSparseArray<Float>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packDoubleLongSparseArray(LongSparseArray<Double> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putDoubleArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<Double> unpackDoubleLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        double[] values = bundle.getDoubleArray(VALUES);
+        LongSparseArray<Double> array = new LongSparseArray<Double>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+
+    public static Bundle packStringLongSparseArray(LongSparseArray<String> array) {
+        if (array == null) {
+            return null;
+        }
+        int size = array.size();
+        long[] keys = new long[size];
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = array.keyAt(i);
+            values[i] = array.valueAt(i);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(KEYS, keys);
+        bundle.putStringArray(VALUES, values);
+        return bundle;
+    }
+
+    public static LongSparseArray<String> unpackStringLongSparseArray(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        long[] keys = bundle.getLongArray(KEYS);
+        String[] values = bundle.getStringArray(VALUES);
+        LongSparseArray<String> array = new LongSparseArray<String>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            array.append(keys[i], values[i]);
+        }
+        return array;
+    }
+}
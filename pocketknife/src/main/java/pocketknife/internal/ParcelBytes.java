@@ -0,0 +1,35 @@
+package pocketknife.internal;
+
+import android.os.Parcel;
+
+/**
+ * Values written to bytes with {@link Parcel#writeValue(Object)}, for values stored outside of a bundle or put in one as a single
+ * {@code byte[]}. The bytes are only valid on the same platform version, so they are never kept longer than saved state.
+ */
+final class ParcelBytes {
+
+    private ParcelBytes() {
+        throw new AssertionError("No instances.");
+    }
+
+    static byte[] marshall(Object value) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeValue(value);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    static Object unmarshall(byte[] bytes, ClassLoader classLoader) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel.readValue(classLoader);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package pocketknife.internal;
+
+import android.graphics.Bitmap;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the values of {@code @SaveState(retain = true)} fields in memory, so state restored in the same process, as after a
+ * configuration change, gets the saved objects back without reading them from the bundle. The values of a target are kept together under
+ * a token that is saved in the bundle. The values are still put in the bundle in full, so saving costs the same, and they are read from
+ * there after the process was killed.
+ * <p>
+ * Saving a target again replaces its previous values, whose token then restores from the bundle. The values of a target that was
+ * garbage collected, as a finished activity or a dropped fragment that were saved but never restored, are dropped when values are saved.
+ * The least recently saved values are dropped once their estimated size exceeds the limit or there are more than {@link #MAX_ENTRIES} of
+ * them, their targets then restore from the bundle as well. {@link Handoffs} keeps its values here too, under the same limits.
+ * <p>
+ * The size limit only bounds what {@link #sizeOf} measures. Any other object counts as a few bytes whatever it references, so only
+ * {@link #MAX_ENTRIES} bounds values of those types.
+ */
+public final class RetainedState {
+    public static final long DEFAULT_MAX_SIZE = Runtime.getRuntime().maxMemory() / 16;
+    public static final int MAX_ENTRIES = 64;
+
+    // Per value, and for values of unknown size
+    private static final int OVERHEAD = 16;
+    // Tokens of an earlier process are never taken
+    private static final String SESSION = Long.toString(System.currentTimeMillis(), 36) + '-' + Integer.toString(new Random().nextInt() & 0xffff, 36) + '-';
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    // Guarded by itself
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<String, Entry>();
+    private static long maxSize = DEFAULT_MAX_SIZE;
+    private static long size;
+
+    private RetainedState() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Set the estimated size in bytes of the values kept, 1/16 of the heap by default.
+     */
+    public static void setMaxSize(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        synchronized (ENTRIES) {
+            RetainedState.maxSize = maxSize;
+            trimToSize();
+        }
+    }
+
+    /**
+     * @param target the object the values were saved from, whose previous values are dropped, or {@code null} to keep them.
+     * @return the token to take {@code values} back with.
+     */
+    public static String put(Object target, Object... values) {
+        String token = SESSION + COUNTER.incrementAndGet();
+        Entry entry = new Entry(target, values);
+        synchronized (ENTRIES) {
+            removeCollected();
+            if (target != null) {
+                remove(target);
+            }
+            ENTRIES.put(token, entry);
+            size += entry.size;
+            trimToSize();
+        }
+        return token;
+    }
+
+    /**
+     * @return the values saved with {@code token}, or {@code null} if they were dropped or already taken.
+     */
+    public static Object[] take(String token) {
+        if (token == null) {
+            return null;
+        }
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.remove(token);
+            if (entry == null) {
+                return null;
+            }
+            size -= entry.size;
+            return entry.values;
+        }
+    }
+
+    /**
+     * Drop the values saved from {@code target}. Only a single entry can match, the scan is bounded by {@link #MAX_ENTRIES}.
+     */
+    private static void remove(Object target) {
+        Iterator<Entry> iterator = ENTRIES.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.target != null && entry.target.get() == target) {
+                size -= entry.size;
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop the values saved from targets that were garbage collected, which are never restored.
+     */
+    private static void removeCollected() {
+        Iterator<Entry> iterator = ENTRIES.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.target != null && entry.target.get() == null) {
+                size -= entry.size;
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void trimToSize() {
+        Iterator<Entry> iterator = ENTRIES.values().iterator();
+        while ((size > maxSize || ENTRIES.size() > MAX_ENTRIES) && iterator.hasNext()) {
+            size -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A rough size of {@code value}. Only arrays, strings, collections, maps and bitmaps are measured, and the elements of object arrays,
+     * collections and the values of maps one level deep. Anything else counts as {@link #OVERHEAD} bytes, whatever it references.
+     */
+    static long sizeOf(Object value) {
+        if (value instanceof Object[]) {
+            long total = OVERHEAD;
+            for (Object element : (Object[]) value) {
+                total += 4 + sizeOfElement(element);
+            }
+            return total;
+        }
+        if (value instanceof Collection) {
+            long total = OVERHEAD;
+            for (Object element : (Collection<?>) value) {
+                total += 4 + sizeOfElement(element);
+            }
+            return total;
+        }
+        if (value instanceof Map) {
+            long total = OVERHEAD;
+            for (Map.Entry<?, ?> element : ((Map<?, ?>) value).entrySet()) {
+                total += OVERHEAD + sizeOfElement(element.getKey()) + sizeOfElement(element.getValue());
+            }
+            return total;
+        }
+        return sizeOfElement(value);
+    }
+
+    /**
+     * @return the size of {@code value} without looking into its elements.
+     */
+    private static long sizeOfElement(Object value) {
+        if (value instanceof byte[] || value instanceof boolean[]) {
+            return OVERHEAD + Array.getLength(value);
+        }
+        if (value instanceof char[] || value instanceof short[]) {
+            return OVERHEAD + 2L * Array.getLength(value);
+        }
+        if (value instanceof long[] || value instanceof double[]) {
+            return OVERHEAD + 8L * Array.getLength(value);
+        }
+        if (value != null && value.getClass().isArray()) {
+            return OVERHEAD + 4L * Array.getLength(value);
+        }
+        if (value instanceof CharSequence) {
+            return OVERHEAD + 2L * ((CharSequence) value).length();
+        }
+        if (value instanceof Collection) {
+            return OVERHEAD + OVERHEAD * ((Collection<?>) value).size();
+        }
+        if (value instanceof Map) {
+            return OVERHEAD + 2L * OVERHEAD * ((Map<?, ?>) value).size();
+        }
+        if (value instanceof Bitmap) {
+            Bitmap bitmap = (Bitmap) value;
+            return OVERHEAD + (long) bitmap.getRowBytes() * bitmap.getHeight();
+        }
+        return OVERHEAD;
+    }
+
+    private static final class Entry {
+        // Weak so a destroyed target is not kept alive by its values
+        final WeakReference<Object> target;
+        final Object[] values;
+        final long size;
+
+        Entry(Object target, Object[] values) {
+            if (target != null) {
+                this.target = new WeakReference<Object>(target);
+            } else {
+                this.target = null;
+            }
+            this.values = values;
+            long total = 0;
+            for (Object value : values) {
+                total += sizeOf(value);
+            }
+            this.size = total;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package pocketknife.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Called by the adapters of {@link pocketknife.TrackChanges} classes to count the written fields.
+ */
+public final class SavedFields {
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private SavedFields() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Count a written field.
+     */
+    public static void wrote() {
+        COUNT.incrementAndGet();
+    }
+
+    /**
+     * @return the number of fields written since the last call.
+     */
+    public static int takeCount() {
+        return COUNT.getAndSet(0);
+    }
+}
@@ -0,0 +1,280 @@
+package pocketknife.internal;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the values of {@code @SaveState(spill = true)} fields. A value is marshalled with a {@link android.os.Parcel}; if it is smaller than the
+ * threshold, or no spill directory is set, the bytes are put in the bundle. Otherwise they are written to a file in the spill directory
+ * and the bundle only holds the name of that file.
+ * <p>
+ * Files are written on a single background thread, all the values saved since the last write at once. Until a value is on disk it is
+ * kept in memory, so restoring it in the same process never waits for the write. A value that could not be written after
+ * {@link #MAX_WRITE_ATTEMPTS} tries is dropped. Restoring a spilled value deletes its file. Files that are never restored are deleted
+ * once they are older than {@link #MAX_AGE_MILLIS}, when the spill directory is set.
+ * <p>
+ * A spilled value can be gone when it is restored: the process was killed before it was written, it was dropped, or its file was
+ * deleted. The field then keeps its value, even if it is required.
+ */
+public final class SpilledState {
+    public static final int DEFAULT_THRESHOLD = 64 * 1024;
+    public static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+    public static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private static final String TAG = "PocketKnife";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Names files so the ones of an earlier process are never reused
+    private static final String SESSION = Long.toString(System.currentTimeMillis(), 36) + '-' + Integer.toString(new Random().nextInt() & 0xffff, 36);
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    // Guards PENDING and writeScheduled
+    private static final Object LOCK = new Object();
+    private static final Map<String, Pending> PENDING = new LinkedHashMap<String, Pending>();
+    private static boolean writeScheduled;
+
+    private static volatile File directory;
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+    private static Executor writer;
+
+    private SpilledState() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Spill values to files in {@code directory}, which is used by nothing else. Files left there longer than {@link #MAX_AGE_MILLIS}
+     * are deleted in the background.
+     */
+    public static void setDirectory(final File directory) {
+        SpilledState.directory = directory;
+        if (directory != null) {
+            getWriter().execute(new Runnable() {
+                @Override
+                public void run() {
+                    deleteOlderThan(directory, System.currentTimeMillis() - MAX_AGE_MILLIS);
+                }
+            });
+        }
+    }
+
+    /**
+     * Put values of at least {@code threshold} bytes in files.
+     */
+    public static void setThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold < 0");
+        }
+        SpilledState.threshold = threshold;
+    }
+
+    /**
+     * Store {@code value} under {@code key}, in a file if it is large.
+     */
+    public static void put(Bundle bundle, String key, Object value) {
+        byte[] bytes = ParcelBytes.marshall(value);
+        File dir = directory;
+        if (dir == null || bytes.length < threshold) {
+            bundle.putByteArray(key, bytes);
+            return;
+        }
+        String name = SESSION + '-' + COUNTER.incrementAndGet();
+        synchronized (LOCK) {
+            PENDING.put(name, new Pending(bytes));
+            scheduleWrite();
+        }
+        bundle.putString(key, name);
+    }
+
+    /**
+     * @return the number of spilled values that are not written yet.
+     */
+    public static int pendingCount() {
+        synchronized (LOCK) {
+            return PENDING.size();
+        }
+    }
+
+    /**
+     * @return the value stored under {@code key}, or {@code null} if there is none or its file is gone. A spilled value can only be taken
+     * once.
+     */
+    public static Object take(Bundle bundle, String key, ClassLoader classLoader) {
+        Object stored = bundle.get(key);
+        byte[] bytes;
+        if (stored instanceof String) {
+            bytes = takeSpilled((String) stored);
+        } else {
+            bytes = (byte[]) stored;
+        }
+        if (bytes == null) {
+            return null;
+        }
+        return ParcelBytes.unmarshall(bytes, classLoader);
+    }
+
+    private static byte[] takeSpilled(String name) {
+        synchronized (LOCK) {
+            // Still in memory, the writer deletes the file if it is written anyway
+            Pending pending = PENDING.remove(name);
+            if (pending != null) {
+                return pending.bytes;
+            }
+        }
+        File dir = directory;
+        if (dir == null) {
+            return null;
+        }
+        File file = new File(dir, name);
+        try {
+            return read(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Spilled value " + name + " is gone.", e);
+            return null;
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static final Runnable WRITE_PENDING = new Runnable() {
+        @Override
+        public void run() {
+            List<Map.Entry<String, Pending>> entries;
+            synchronized (LOCK) {
+                entries = new ArrayList<Map.Entry<String, Pending>>(PENDING.entrySet());
+                writeScheduled = false;
+            }
+            File dir = directory;
+            if (dir == null) {
+                return;
+            }
+            dir.mkdirs();
+            boolean failed = false;
+            for (Map.Entry<String, Pending> entry : entries) {
+                File file = new File(dir, entry.getKey());
+                Pending pending = entry.getValue();
+                boolean written = write(file, pending.bytes);
+                synchronized (LOCK) {
+                    if (PENDING.get(entry.getKey()) != pending) {
+                        // Taken while it was written
+                        file.delete();
+                    } else if (written) {
+                        PENDING.remove(entry.getKey());
+                    } else if (++pending.attempts >= MAX_WRITE_ATTEMPTS) {
+                        PENDING.remove(entry.getKey());
+                        Log.w(TAG, "Unable to write spilled value " + file + ". It was dropped.");
+                    } else {
+                        failed = true;
+                    }
+                }
+            }
+            if (failed) {
+                synchronized (LOCK) {
+                    scheduleWrite();
+                }
+            }
+        }
+    };
+
+    /**
+     * Must be called holding {@link #LOCK}.
+     */
+    private static void scheduleWrite() {
+        if (!writeScheduled) {
+            writeScheduled = true;
+            getWriter().execute(WRITE_PENDING);
+        }
+    }
+
+    /**
+     * Write to a temporary file first, so a file is never read half written.
+     */
+    private static boolean write(File file, byte[] bytes) {
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(bytes);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (temp.renameTo(file)) {
+                return true;
+            }
+            temp.delete();
+            return false;
+        } catch (IOException e) {
+            temp.delete();
+            return false;
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                offset += read;
+            }
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void deleteOlderThan(File dir, long time) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.lastModified() < time) {
+                file.delete();
+            }
+        }
+    }
+
+    private static final class Pending {
+        final byte[] bytes;
+        // Guarded by LOCK
+        int attempts;
+
+        Pending(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private static synchronized Executor getWriter() {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "PocketKnife spill writer");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return writer;
+    }
+}
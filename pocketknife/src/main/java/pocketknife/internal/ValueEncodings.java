@@ -0,0 +1,87 @@
+package pocketknife.internal;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Compact encodings of common {@link java.io.Serializable} value types, so they are stored with the typed {@link android.os.Bundle}
+ * methods. Enums are stored by name, {@link UUID} as its two halves, {@link Date} as its time and {@link BigDecimal} as its scale followed
+ * by the bytes of its unscaled value. Null is kept as null.
+ */
+public final class ValueEncodings {
+
+    private static final int SCALE_BYTES = 4;
+
+    private ValueEncodings() {
+        throw new AssertionError("No instances.");
+    }
+
+    public static String encodeEnum(Enum<?> value) {
+        if (value == null) {
+            return null;
+        }
+        return value.name();
+    }
+
+    public static <E extends Enum<E>> E decodeEnum(String name, Class<E> type) {
+        if (name == null) {
+            return null;
+        }
+        return Enum.valueOf(type, name);
+    }
+
+    public static long[] encodeUuid(UUID value) {
+        if (value == null) {
+            return null;
+        }
+        return new long[]{value.getMostSignificantBits(), value.getLeastSignificantBits()};
+    }
+
+    public static UUID decodeUuid(long[] bits) {
+        if (bits == null) {
+            return null;
+        }
+        return new UUID(bits[0], bits[1]);
+    }
+
+    public static Long encodeDate(Date value) {
+        if (value == null) {
+            return null;
+        }
+        return value.getTime();
+    }
+
+    public static Date decodeDate(Long time) {
+        if (time == null) {
+            return null;
+        }
+        return new Date(time);
+    }
+
+    public static byte[] encodeBigDecimal(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        byte[] bytes = new byte[SCALE_BYTES + unscaled.length];
+        int scale = value.scale();
+        bytes[0] = (byte) (scale >>> 24);
+        bytes[1] = (byte) (scale >>> 16);
+        bytes[2] = (byte) (scale >>> 8);
+        bytes[3] = (byte) scale;
+        System.arraycopy(unscaled, 0, bytes, SCALE_BYTES, unscaled.length);
+        return bytes;
+    }
+
+    public static BigDecimal decodeBigDecimal(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        int scale = (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+        byte[] unscaled = new byte[bytes.length - SCALE_BYTES];
+        System.arraycopy(bytes, SCALE_BYTES, unscaled, 0, unscaled.length);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,141 @@
+package pocketknife.internal;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.Assert.assertNull;
+
+/**
+ * Stress benchmark that hammers the lock-free {@link Memoizer} and the read-write lock implementation it replaced from several threads.
+ * Only correctness is asserted, the throughput is printed. Timings depend on the machine, so this is ignored by the build: remove the
+ * {@code @Ignore} or run {@link #main} by hand.
+ */
+@Ignore("Benchmark, run by hand")
+public class MemoizerBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int KEYS = 64;
+    private static final int ITERATIONS = 200000;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        new MemoizerBenchmark().testConcurrentReads();
+    }
+
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        final Memoizer<Integer, String> memoizer = new Memoizer<Integer, String>(false, 0) {
+            @Override
+            protected String create(Integer key) {
+                return String.valueOf(key);
+            }
+        };
+        final LockingMemoizer locking = new LockingMemoizer();
+        Lookup lockFreeLookup = new Lookup() {
+            @Override
+            public String get(Integer key) {
+                return memoizer.get(key);
+            }
+        };
+        Lookup lockingLookup = new Lookup() {
+            @Override
+            public String get(Integer key) {
+                return locking.get(key);
+            }
+        };
+
+        // Warm up both before timing them
+        run(lockFreeLookup);
+        run(lockingLookup);
+
+        long lockFree = Long.MAX_VALUE;
+        long readWriteLock = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            lockFree = Math.min(lockFree, run(lockFreeLookup));
+            readWriteLock = Math.min(readWriteLock, run(lockingLookup));
+        }
+        long lookups = (long) THREADS * ITERATIONS;
+        System.out.println(String.format("Memoizer: %d threads, %d lookups, best of %d. lock-free %d ms, read-write lock %d ms",
+                THREADS, lookups, RUNS, lockFree / 1000000, readWriteLock / 1000000));
+    }
+
+    private static long run(final Lookup lookup) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            int key = (i + offset) % KEYS;
+                            if (!String.valueOf(key).equals(lookup.get(key))) {
+                                throw new AssertionError("Wrong value for " + key);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        assertNull(String.valueOf(failure.get()), failure.get());
+        return elapsed;
+    }
+
+    private interface Lookup {
+        String get(Integer key);
+    }
+
+    /**
+     * The previous {@link Memoizer}: a {@link HashMap} guarded by a {@link ReadWriteLock}.
+     */
+    private static final class LockingMemoizer {
+        private final Map<Integer, String> map = new HashMap<Integer, String>();
+        private final Lock readLock;
+        private final Lock writeLock;
+
+        LockingMemoizer() {
+            ReadWriteLock lock = new ReentrantReadWriteLock();
+            this.readLock = lock.readLock();
+            this.writeLock = lock.writeLock();
+        }
+
+        String get(Integer key) {
+            readLock.lock();
+            try {
+                String value = map.get(key);
+                if (value != null) {
+                    return value;
+                }
+            } finally {
+                readLock.unlock();
+            }
+            String newValue = String.valueOf(key);
+            writeLock.lock();
+            try {
+                map.put(key, newValue);
+                return newValue;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package pocketknife.internal;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MemoizerTest {
+
+    private static final int THREADS = 8;
+    private static final int KEYS = 64;
+
+    @Test
+    public void testMemoizes() {
+        CountingMemoizer memoizer = new CountingMemoizer(false, 0);
+        String first = memoizer.get(1);
+        assertSame(first, memoizer.get(1));
+        assertSame(first, memoizer.get(Integer.valueOf(1)));
+        assertEquals(1, memoizer.creates.get());
+        memoizer.get(2);
+        assertEquals(2, memoizer.creates.get());
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        CountingMemoizer memoizer = new CountingMemoizer(false, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(String.valueOf(i), memoizer.get(i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(String.valueOf(i), memoizer.get(i));
+        }
+        assertEquals(1000, memoizer.creates.get());
+    }
+
+    @Test
+    public void testEvictsOldest() {
+        CountingMemoizer memoizer = new CountingMemoizer(false, 2);
+        memoizer.get(1);
+        memoizer.get(2);
+        memoizer.get(3);
+        assertEquals(3, memoizer.creates.get());
+        memoizer.get(3);
+        memoizer.get(2);
+        assertEquals(3, memoizer.creates.get());
+        memoizer.get(1);
+        assertEquals(4, memoizer.creates.get());
+    }
+
+    @Test
+    public void testWeakReferencesCompareByIdentity() {
+        CountingMemoizer memoizer = new CountingMemoizer(true, 0);
+        Integer first = new Integer(1000);
+        Integer second = new Integer(1000);
+        memoizer.get(first);
+        memoizer.get(first);
+        assertEquals(1, memoizer.creates.get());
+        memoizer.get(second);
+        assertEquals(2, memoizer.creates.get());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullKey() {
+        new CountingMemoizer(false, 0).get(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaximumSize() {
+        new CountingMemoizer(false, -1);
+    }
+
+    /**
+     * Threads racing for the same keys may each create a value, but every caller must see the one that was stored first.
+     */
+    @Test
+    public void testConcurrentReadsSeeOneValue() throws InterruptedException {
+        final CountingMemoizer memoizer = new CountingMemoizer(false, 0);
+        final String[][] seen = new String[THREADS][KEYS];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < KEYS; i++) {
+                            int key = (i + thread) % KEYS;
+                            seen[thread][key] = memoizer.get(key);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        assertNull(String.valueOf(failure.get()), failure.get());
+
+        for (int key = 0; key < KEYS; key++) {
+            String value = memoizer.get(key);
+            assertEquals(String.valueOf(key), value);
+            for (int t = 0; t < THREADS; t++) {
+                assertSame(value, seen[t][key]);
+            }
+        }
+    }
+
+    private static final class CountingMemoizer extends Memoizer<Integer, String> {
+        final AtomicInteger creates = new AtomicInteger();
+
+        CountingMemoizer(boolean weakReferences, int maximumSize) {
+            super(weakReferences, maximumSize);
+        }
+
+        @Override
+        protected String create(Integer key) {
+            creates.incrementAndGet();
+            return String.valueOf(key);
+        }
+    }
+}
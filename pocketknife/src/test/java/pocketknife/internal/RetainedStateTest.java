@@ -0,0 +1,53 @@
+package pocketknife.internal;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RetainedStateTest {
+
+    @Test
+    public void testDropsValuesOfCollectedTargets() throws InterruptedException {
+        Object target = new Object();
+        WeakReference<Object> reference = new WeakReference<Object>(target);
+        String collected = RetainedState.put(target, "value");
+        target = null;
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+
+        Object live = new Object();
+        String kept = RetainedState.put(live, "value");
+        // Saving another target drops the values of the collected one only
+        String other = RetainedState.put(new Object(), "value");
+        assertNull(RetainedState.take(collected));
+        assertNotNull(RetainedState.take(kept));
+        RetainedState.take(other);
+    }
+
+    @Test
+    public void testMeasuresElements() {
+        byte[] bytes = new byte[1000];
+        assertTrue(RetainedState.sizeOf(bytes) >= 1000);
+        assertTrue(RetainedState.sizeOf(Arrays.asList(bytes, bytes)) >= 2000);
+        assertTrue(RetainedState.sizeOf(new Object[]{bytes, bytes}) >= 2000);
+        assertTrue(RetainedState.sizeOf(Collections.singletonMap("key", bytes)) >= 1000);
+    }
+
+    @Test
+    public void testOnlyMeasuresKnownTypes() {
+        // An object holding a large array counts as a few bytes, the limit does not bound it
+        Object holder = new Object() {
+            final byte[] bytes = new byte[1000];
+        };
+        assertTrue(RetainedState.sizeOf(holder) < 100);
+    }
+}